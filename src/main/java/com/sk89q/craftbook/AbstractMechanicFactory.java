@@ -16,6 +16,8 @@
 
 package com.sk89q.craftbook;
 
+import java.util.Set;
+
 import com.sk89q.craftbook.util.exceptions.InvalidMechanismException;
 import com.sk89q.craftbook.util.exceptions.ProcessedMechanismException;
 import com.sk89q.worldedit.BlockWorldVector;
@@ -25,6 +27,32 @@ public abstract class AbstractMechanicFactory<T extends Mechanic> implements Mec
     public AbstractMechanicFactory() {
     }
 
+    /**
+     * Gets the block type IDs that can trigger this factory. Used by the {@link MechanicManager} to skip factories that
+     * could not possibly detect a mechanic at a position.
+     * <p>
+     * If both this and {@link #getTriggerSignTags()} return null, the factory is consulted for every block.
+     * </p>
+     *
+     * @return the block type IDs, or null if not filtered by block type.
+     */
+    public Set<Integer> getTriggerBlocks() {
+        return null;
+    }
+
+    /**
+     * Gets the sign tags (the second line of the sign, case insensitive) that can trigger this factory. Used by the
+     * {@link MechanicManager} to skip factories that could not possibly detect a mechanic at a sign.
+     * <p>
+     * If both this and {@link #getTriggerBlocks()} return null, the factory is consulted for every block.
+     * </p>
+     *
+     * @return the sign tags, or null if not filtered by sign tag.
+     */
+    public Set<String> getTriggerSignTags() {
+        return null;
+    }
+
     @Override
     public T detect(BlockWorldVector pos, LocalPlayer player, ChangedSign sign) throws InvalidMechanismException, ProcessedMechanismException {
         return null;
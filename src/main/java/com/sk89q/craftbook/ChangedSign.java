@@ -10,6 +10,7 @@ import org.bukkit.block.Sign;
 import com.sk89q.craftbook.bukkit.BukkitPlayer;
 import com.sk89q.craftbook.bukkit.commands.VariableCommands;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.util.LineTemplate;
 import com.sk89q.craftbook.util.ParsingUtil;
 import com.sk89q.craftbook.util.RegexUtil;
 import com.sk89q.worldedit.BlockWorldVector;
@@ -20,6 +21,11 @@ public class ChangedSign {
     private Sign sign;
     private String[] lines;
 
+    /**
+     * The compiled form of each line, made when a line with variables in it is first read.
+     */
+    private LineTemplate[] templates;
+
     public ChangedSign(Sign sign, String[] lines, LocalPlayer player) {
 
         Validate.notNull(sign);
@@ -31,6 +37,8 @@ public class ChangedSign {
             for(int i = 0; i < 4; i++) {
 
                 String line = lines[i];
+                if(line == null || line.indexOf('%') < 0)
+                    continue;
                 for(String var : ParsingUtil.getPossibleVariables(line)) {
 
                     String key;
@@ -109,7 +117,17 @@ public class ChangedSign {
 
     public String getLine(int index) throws IndexOutOfBoundsException {
 
-        return ParsingUtil.parseLine(lines[index], null);
+        String line = lines[index];
+        if (line == null || line.indexOf('%') < 0)
+            return line;
+
+        if (templates == null)
+            templates = new LineTemplate[lines.length];
+        LineTemplate template = templates[index];
+        // The lines array is handed out by getLines(), so it may have been changed without going through setLine.
+        if (template == null || !template.matches(line))
+            template = templates[index] = LineTemplate.compile(line);
+        return template.render();
     }
 
     public void setLine(int index, String line) throws IndexOutOfBoundsException {
@@ -0,0 +1,290 @@
+package com.sk89q.craftbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+
+/**
+ * Queues loaded chunks until their mechanics are enumerated.
+ * <p>
+ * Chunks wait a couple of ticks after loading, as they did when each one had its own task. After that, the queue is
+ * drained once per tick, nearest to a player first, until the tick's time budget is used up. At least one chunk is
+ * enumerated every tick, so the queue always makes progress. Chunks that unload while queued are dropped, and a chunk
+ * that loads again while still queued is only enumerated once.
+ * </p>
+ */
+public class ChunkEnumerationQueue {
+
+    /**
+     * The amount of ticks a chunk waits after loading before it may be enumerated.
+     */
+    private static final int DELAY = 2;
+
+    /**
+     * The amount of chunks picked out of the queue at a time, while the budget for the tick lasts.
+     */
+    private static final int BATCH = 16;
+
+    private static class Entry {
+
+        final Chunk chunk;
+        final long ready;
+        long distance;
+        /**
+         * The tick the distance was measured on.
+         */
+        long measured = -1;
+
+        Entry(Chunk chunk, long ready) {
+
+            this.chunk = chunk;
+            this.ready = ready;
+        }
+    }
+
+    private static final Comparator<Entry> NEAREST_FIRST = new Comparator<Entry>() {
+
+        @Override
+        public int compare(Entry o1, Entry o2) {
+
+            return o1.distance < o2.distance ? -1 : o1.distance > o2.distance ? 1 : 0;
+        }
+    };
+
+    private static final Comparator<Entry> FARTHEST_FIRST = Collections.reverseOrder(NEAREST_FIRST);
+
+    private final MechanicManager manager;
+    private final long budgetNanos;
+
+    /**
+     * World name -> packed chunk coordinates -> entry, in the order they were queued.
+     */
+    private final Map<String, Map<Long, Entry>> worlds = new HashMap<String, Map<Long, Entry>>();
+    private int size = 0;
+
+    private long tick = 0;
+
+    private long lastTickNanos = 0;
+    private int lastTickChunks = 0;
+    private long totalNanos = 0;
+    private long totalChunks = 0;
+
+    /**
+     * Construct the queue.
+     *
+     * @param manager the manager that enumerates the chunks
+     * @param budget the amount of milliseconds that may be spent enumerating each tick, or 0 for no limit
+     */
+    public ChunkEnumerationQueue(MechanicManager manager, double budget) {
+
+        this.manager = manager;
+        budgetNanos = (long) (budget * 1000000);
+    }
+
+    /**
+     * Queue a chunk to be enumerated. Nothing happens if it is already queued.
+     *
+     * @param chunk
+     */
+    public void add(Chunk chunk) {
+
+        Map<Long, Entry> chunks = worlds.get(chunk.getWorld().getName());
+        if (chunks == null) {
+            chunks = new LinkedHashMap<Long, Entry>();
+            worlds.put(chunk.getWorld().getName(), chunks);
+        }
+
+        long key = ChunkedBlockMap.getChunkKey(chunk.getX(), chunk.getZ());
+        if (chunks.containsKey(key))
+            return;
+        chunks.put(key, new Entry(chunk, tick + DELAY));
+        size++;
+    }
+
+    /**
+     * Drop a chunk from the queue, if it is queued.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     */
+    public void remove(String world, int chunkX, int chunkZ) {
+
+        Map<Long, Entry> chunks = worlds.get(world);
+        if (chunks != null && chunks.remove(ChunkedBlockMap.getChunkKey(chunkX, chunkZ)) != null)
+            size--;
+    }
+
+    /**
+     * Enumerate the chunks that are ready, until the budget for this tick is used up.
+     */
+    public void tick() {
+
+        tick++;
+        if (size == 0) {
+            lastTickNanos = 0;
+            lastTickChunks = 0;
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        // Without a budget every ready chunk is enumerated, so they may as well be picked all at once.
+        int batchSize = budgetNanos > 0 ? BATCH : Math.max(1, size);
+        int chunks = 0;
+        boolean more = true;
+        while (more) {
+            List<Entry> batch = getNearestReady(batchSize);
+            more = batch.size() == batchSize;
+            for (Entry entry : batch) {
+                if (chunks > 0 && budgetNanos > 0 && System.nanoTime() - start >= budgetNanos) {
+                    more = false;
+                    break;
+                }
+                // Enumerating may load neighbouring chunks, but it never unloads queued ones.
+                remove(entry.chunk.getWorld().getName(), entry.chunk.getX(), entry.chunk.getZ());
+                if (entry.chunk.isLoaded())
+                    manager.enumerate(entry.chunk);
+                chunks++;
+            }
+        }
+
+        lastTickNanos = System.nanoTime() - start;
+        lastTickChunks = chunks;
+        totalNanos += lastTickNanos;
+        totalChunks += chunks;
+    }
+
+    /**
+     * Gets the chunks nearest to a player out of those that have waited long enough. Only the chunks picked are kept
+     * in order, and distances are measured once per tick.
+     *
+     * @param limit the most chunks to get
+     *
+     * @return the ready chunks, nearest first
+     */
+    private List<Entry> getNearestReady(int limit) {
+
+        PriorityQueue<Entry> nearest = new PriorityQueue<Entry>(limit + 1, FARTHEST_FIRST);
+        Iterator<Map<Long, Entry>> it = worlds.values().iterator();
+        while (it.hasNext()) {
+            Map<Long, Entry> chunks = it.next();
+            if (chunks.isEmpty()) {
+                it.remove();
+                continue;
+            }
+
+            List<Location> players = null;
+            for (Entry entry : chunks.values()) {
+                if (entry.ready > tick)
+                    continue;
+                if (entry.measured != tick) {
+                    if (players == null)
+                        players = getPlayerLocations(entry.chunk.getWorld());
+                    entry.distance = getDistance(entry.chunk, players);
+                    entry.measured = tick;
+                }
+                if (nearest.size() < limit)
+                    nearest.add(entry);
+                else if (entry.distance < nearest.peek().distance) {
+                    nearest.poll();
+                    nearest.add(entry);
+                }
+            }
+        }
+
+        List<Entry> ready = new ArrayList<Entry>(nearest);
+        Collections.sort(ready, NEAREST_FIRST);
+        return ready;
+    }
+
+    private static List<Location> getPlayerLocations(World world) {
+
+        List<Location> locations = new ArrayList<Location>();
+        for (Player player : world.getPlayers())
+            locations.add(player.getLocation());
+        return locations;
+    }
+
+    /**
+     * Gets the squared distance, in chunks, from a chunk to the nearest player.
+     *
+     * @param chunk
+     * @param players the locations of the players in the chunk's world
+     *
+     * @return the squared distance, or {@link Long#MAX_VALUE} if there are no players
+     */
+    private static long getDistance(Chunk chunk, List<Location> players) {
+
+        long distance = Long.MAX_VALUE;
+        for (Location location : players) {
+            long x = (location.getBlockX() >> 4) - chunk.getX();
+            long z = (location.getBlockZ() >> 4) - chunk.getZ();
+            distance = Math.min(distance, x * x + z * z);
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the amount of chunks waiting to be enumerated.
+     *
+     * @return the queue depth
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Gets the time spent enumerating on the last tick.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getLastTickNanos() {
+
+        return lastTickNanos;
+    }
+
+    /**
+     * Gets the amount of chunks enumerated on the last tick.
+     *
+     * @return the amount of chunks
+     */
+    public int getLastTickChunks() {
+
+        return lastTickChunks;
+    }
+
+    /**
+     * Gets the total time spent enumerating queued chunks.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getTotalNanos() {
+
+        return totalNanos;
+    }
+
+    /**
+     * Gets the total amount of queued chunks that were enumerated.
+     *
+     * @return the amount of chunks
+     */
+    public long getTotalChunks() {
+
+        return totalChunks;
+    }
+}
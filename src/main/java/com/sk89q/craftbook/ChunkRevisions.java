@@ -0,0 +1,89 @@
+package com.sk89q.craftbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.craftbook.util.LongHashMap;
+
+/**
+ * Counts changes to the blocks of each chunk, so that mechanics can remember that they were valid at a given revision
+ * and skip re-checking their blocks until something in their chunk changes.
+ * <p>
+ * Revisions are drawn from a single counter, so they are never reused. A chunk that is forgotten (when it unloads) and
+ * asked for again gets a revision that no mechanic can have remembered.
+ * </p>
+ */
+public class ChunkRevisions {
+
+    /**
+     * World name -> packed chunk coordinates -> revision.
+     */
+    private final Map<String, LongHashMap<long[]>> worlds = new HashMap<String, LongHashMap<long[]>>();
+
+    private long counter = 0;
+
+    /**
+     * Gets the current revision of a chunk.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     *
+     * @return the revision, which is always positive
+     */
+    public long getRevision(String world, int chunkX, int chunkZ) {
+
+        return getEntry(world, chunkX, chunkZ)[0];
+    }
+
+    /**
+     * Record that a block in a chunk has changed.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     */
+    public void increment(String world, int chunkX, int chunkZ) {
+
+        LongHashMap<long[]> chunks = worlds.get(world);
+        long[] entry = chunks == null ? null : chunks.get(ChunkedBlockMap.getChunkKey(chunkX, chunkZ));
+        // Chunks nobody asked about do not need to be tracked yet.
+        if (entry != null)
+            entry[0] = ++counter;
+    }
+
+    /**
+     * Forget a chunk.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     */
+    public void remove(String world, int chunkX, int chunkZ) {
+
+        LongHashMap<long[]> chunks = worlds.get(world);
+        if (chunks == null)
+            return;
+        chunks.remove(ChunkedBlockMap.getChunkKey(chunkX, chunkZ));
+        if (chunks.isEmpty())
+            worlds.remove(world);
+    }
+
+    private long[] getEntry(String world, int chunkX, int chunkZ) {
+
+        LongHashMap<long[]> chunks = worlds.get(world);
+        if (chunks == null) {
+            chunks = new LongHashMap<long[]>();
+            worlds.put(world, chunks);
+        }
+
+        long key = ChunkedBlockMap.getChunkKey(chunkX, chunkZ);
+        long[] entry = chunks.get(key);
+        if (entry == null) {
+            entry = new long[] {++counter};
+            chunks.put(key, entry);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,255 @@
+package com.sk89q.craftbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sk89q.craftbook.util.BlockKey;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.craftbook.util.LongHashMap;
+import com.sk89q.worldedit.BlockWorldVector;
+
+/**
+ * Remembers positions where detection found no mechanic, so that repeated events at plain blocks (such as a redstone
+ * clock next to a wall) do not have to run every factory again.
+ * <p>
+ * Entries are grouped by chunk. Any change to a chunk (or to a block close enough to its border to define a mechanic
+ * inside it) drops every entry in that chunk. Each entry also remembers the block type it was detected at, so changes
+ * that are not reported through an event still invalidate the entry at that position. When the cache grows past its
+ * size, the least recently used chunks are dropped.
+ * </p>
+ */
+public class DetectionCache {
+
+    /**
+     * How far away from a block a change may still affect detection. Some mechanics are defined by blocks that are
+     * next to (or two blocks away from) their trigger, such as buttons on teleporters or signs on pistons.
+     */
+    private static final int CHANGE_RADIUS = 2;
+
+    /**
+     * The positions of a single chunk, linked into the least recently used list.
+     */
+    private static class CachedChunk {
+
+        final String world;
+        final long key;
+        final LongHashMap<Integer> positions = new LongHashMap<Integer>();
+        CachedChunk previous;
+        CachedChunk next;
+
+        CachedChunk(String world, long key) {
+
+            this.world = world;
+            this.key = key;
+        }
+    }
+
+    /**
+     * World name -> packed chunk coordinates -> chunk.
+     */
+    private final Map<String, LongHashMap<CachedChunk>> worlds = new HashMap<String, LongHashMap<CachedChunk>>();
+
+    /**
+     * The least and most recently used chunks.
+     */
+    private CachedChunk eldest;
+    private CachedChunk youngest;
+
+    private final int maxSize;
+    private int size = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Construct the cache.
+     *
+     * @param maxSize the maximum number of positions to remember, or 0 to disable the cache.
+     */
+    public DetectionCache(int maxSize) {
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks whether a position is known to hold no mechanic.
+     *
+     * @param pos
+     * @param typeId the current block type at the position
+     *
+     * @return true if detection at this position can be skipped
+     */
+    public boolean isEmpty(BlockWorldVector pos, int typeId) {
+
+        return isEmpty(pos.getWorld().getName(), pos.getBlockX(), pos.getBlockY(), pos.getBlockZ(), typeId);
+    }
+
+    /**
+     * Checks whether a position is known to hold no mechanic.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     * @param typeId the current block type at the position
+     *
+     * @return true if detection at this position can be skipped
+     */
+    public boolean isEmpty(String world, int x, int y, int z, int typeId) {
+
+        if (maxSize <= 0)
+            return false;
+
+        CachedChunk chunk = getChunk(world, ChunkedBlockMap.getChunkKey(x >> 4, z >> 4), false);
+        Integer cached = chunk == null ? null : chunk.positions.get(BlockKey.pack(x, y, z));
+        if (cached != null && cached == typeId) {
+            touch(chunk);
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    /**
+     * Remember that a position holds no mechanic.
+     *
+     * @param pos
+     * @param typeId the block type at the position when detection was performed
+     */
+    public void setEmpty(BlockWorldVector pos, int typeId) {
+
+        if (maxSize <= 0)
+            return;
+
+        CachedChunk chunk = getChunk(pos.getWorld().getName(), ChunkedBlockMap.getChunkKey(pos.getBlockX() >> 4, pos.getBlockZ() >> 4), true);
+        touch(chunk);
+        if (chunk.positions.put(BlockKey.pack(pos.getBlockX(), pos.getBlockY(), pos.getBlockZ()), typeId) == null)
+            size++;
+
+        while (size > maxSize && eldest != null)
+            drop(eldest);
+    }
+
+    /**
+     * Invalidate everything that a change at a block may have affected.
+     *
+     * @param world
+     * @param x
+     * @param z
+     */
+    public void invalidate(String world, int x, int z) {
+
+        if (size == 0)
+            return;
+
+        for (int chunkX = x - CHANGE_RADIUS >> 4; chunkX <= x + CHANGE_RADIUS >> 4; chunkX++)
+            for (int chunkZ = z - CHANGE_RADIUS >> 4; chunkZ <= z + CHANGE_RADIUS >> 4; chunkZ++)
+                invalidateChunk(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Invalidate every entry within a chunk.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     */
+    public void invalidateChunk(String world, int chunkX, int chunkZ) {
+
+        CachedChunk chunk = getChunk(world, ChunkedBlockMap.getChunkKey(chunkX, chunkZ), false);
+        if (chunk != null)
+            drop(chunk);
+    }
+
+    /**
+     * Forget every position.
+     */
+    public void clear() {
+
+        worlds.clear();
+        eldest = null;
+        youngest = null;
+        size = 0;
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    public int getMaxSize() {
+
+        return maxSize;
+    }
+
+    public long getHits() {
+
+        return hits;
+    }
+
+    public long getMisses() {
+
+        return misses;
+    }
+
+    private CachedChunk getChunk(String world, long chunkKey, boolean create) {
+
+        LongHashMap<CachedChunk> chunks = worlds.get(world);
+        if (chunks == null) {
+            if (!create)
+                return null;
+            chunks = new LongHashMap<CachedChunk>();
+            worlds.put(world, chunks);
+        }
+
+        CachedChunk chunk = chunks.get(chunkKey);
+        if (chunk == null && create) {
+            chunk = new CachedChunk(world, chunkKey);
+            chunks.put(chunkKey, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Mark a chunk as the most recently used one.
+     *
+     * @param chunk
+     */
+    private void touch(CachedChunk chunk) {
+
+        if (chunk == youngest)
+            return;
+        unlink(chunk);
+        chunk.previous = youngest;
+        if (youngest != null)
+            youngest.next = chunk;
+        youngest = chunk;
+        if (eldest == null)
+            eldest = chunk;
+    }
+
+    private void unlink(CachedChunk chunk) {
+
+        if (chunk.previous != null)
+            chunk.previous.next = chunk.next;
+        else if (eldest == chunk)
+            eldest = chunk.next;
+        if (chunk.next != null)
+            chunk.next.previous = chunk.previous;
+        else if (youngest == chunk)
+            youngest = chunk.previous;
+        chunk.previous = null;
+        chunk.next = null;
+    }
+
+    private void drop(CachedChunk chunk) {
+
+        unlink(chunk);
+        size -= chunk.positions.size();
+        LongHashMap<CachedChunk> chunks = worlds.get(chunk.world);
+        chunks.remove(chunk.key);
+        if (chunks.isEmpty())
+            worlds.remove(chunk.world);
+    }
+}
@@ -0,0 +1,296 @@
+package com.sk89q.craftbook;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.World;
+
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.craftbook.util.LongHashMap;
+import com.sk89q.worldedit.blocks.BlockID;
+
+/**
+ * Tracks which blocks redstone could possibly trigger a mechanic at, so that wire changes next to plain blocks do not
+ * have to build and fire an event for every neighbour.
+ * <p>
+ * A block is interesting if it is a tagged sign, or if its type is one that a mechanic reacts to by itself (such as a
+ * piston or a pumpkin). Tagged signs are signs with a <code>[</code> or a <code>%</code> on any line, which covers every
+ * sign tag and any variable that could resolve into one. They are kept in a bitmap per 16x16x16 chunk section, filled
+ * in when the chunk's mechanics are enumerated and kept up to date as signs are placed, edited and broken.
+ * </p>
+ * <p>
+ * Chunks that have not been enumerated yet are treated as entirely interesting, so nothing is missed while a chunk
+ * waits in the enumeration queue. Signs that are created without an event (for example by another plugin editing the
+ * world) are picked up the next time their chunk loads.
+ * </p>
+ */
+public class InterestingBlockMap {
+
+    private static final int SECTIONS = 16;
+    private static final int SECTION_LONGS = 16 * 16 * 16 / 64;
+
+    /**
+     * The signs of a single chunk.
+     */
+    private static class ChunkBits {
+
+        final long[][] sections = new long[SECTIONS][];
+        boolean indexed = false;
+    }
+
+    /**
+     * World name -> packed chunk coordinates -> chunk.
+     */
+    private final Map<String, LongHashMap<ChunkBits>> worlds = new HashMap<String, LongHashMap<ChunkBits>>();
+
+    /**
+     * Block types that mechanics listening for redstone react to on their own.
+     */
+    private final boolean[] listenerTypes = new boolean[4096];
+
+    /**
+     * Block types that mechanic factories are triggered by.
+     */
+    private final boolean[] factoryTypes = new boolean[4096];
+
+    private final boolean enabled;
+
+    private long skipped = 0;
+    private long passed = 0;
+
+    /**
+     * Construct the map.
+     *
+     * @param enabled whether to filter at all; if false every block is interesting
+     */
+    public InterestingBlockMap(boolean enabled) {
+
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks whether redstone changing next to a block could trigger a mechanic there.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     *
+     * @return true if an event should be fired for the block
+     */
+    public boolean isInteresting(World world, int x, int y, int z) {
+
+        if (!enabled || y < 0 || y >= SECTIONS * 16) {
+            passed++;
+            return true;
+        }
+
+        ChunkBits chunk = getChunk(world.getName(), x >> 4, z >> 4, false);
+        if (chunk == null || !chunk.indexed || isSet(chunk, x, y, z)) {
+            passed++;
+            return true;
+        }
+
+        int typeId = world.getBlockTypeIdAt(x, y, z);
+        if (typeId >= 0 && typeId < listenerTypes.length && (listenerTypes[typeId] || factoryTypes[typeId])) {
+            passed++;
+            return true;
+        }
+
+        skipped++;
+        return false;
+    }
+
+    /**
+     * Add a block type that a mechanic reacts to when redstone changes next to it, without needing a sign.
+     *
+     * @param typeId
+     */
+    public void addTriggerBlock(int typeId) {
+
+        if (typeId >= 0 && typeId < listenerTypes.length)
+            listenerTypes[typeId] = true;
+    }
+
+    /**
+     * Replace the block types that mechanic factories are triggered by. Signs are tracked individually, so they are left
+     * out.
+     *
+     * @param typeIds
+     */
+    public void setFactoryTriggerBlocks(Set<Integer> typeIds) {
+
+        for (int i = 0; i < factoryTypes.length; i++)
+            factoryTypes[i] = false;
+        for (Integer typeId : typeIds)
+            if (typeId >= 0 && typeId < factoryTypes.length && typeId != BlockID.SIGN_POST && typeId != BlockID.WALL_SIGN)
+                factoryTypes[typeId] = true;
+    }
+
+    /**
+     * Checks whether the lines of a sign mark it as a possible mechanic.
+     *
+     * @param lines
+     *
+     * @return true if the sign should be tracked
+     */
+    public static boolean isTagged(String[] lines) {
+
+        for (String line : lines)
+            if (line != null && (line.indexOf('[') >= 0 || line.indexOf('%') >= 0))
+                return true;
+        return false;
+    }
+
+    /**
+     * Update the state of a sign.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     * @param lines the current lines of the sign
+     */
+    public void updateSign(String world, int x, int y, int z, String[] lines) {
+
+        if (isTagged(lines))
+            mark(world, x, y, z);
+        else
+            unmark(world, x, y, z);
+    }
+
+    /**
+     * Mark a block as interesting.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void mark(String world, int x, int y, int z) {
+
+        if (!enabled || y < 0 || y >= SECTIONS * 16)
+            return;
+
+        ChunkBits chunk = getChunk(world, x >> 4, z >> 4, true);
+        long[] section = chunk.sections[y >> 4];
+        if (section == null)
+            section = chunk.sections[y >> 4] = new long[SECTION_LONGS];
+        int bit = getBit(x, y, z);
+        section[bit >> 6] |= 1L << bit;
+    }
+
+    /**
+     * Stop marking a block as interesting.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void unmark(String world, int x, int y, int z) {
+
+        if (!enabled || y < 0 || y >= SECTIONS * 16)
+            return;
+
+        ChunkBits chunk = getChunk(world, x >> 4, z >> 4, false);
+        if (chunk == null || chunk.sections[y >> 4] == null)
+            return;
+        int bit = getBit(x, y, z);
+        chunk.sections[y >> 4][bit >> 6] &= ~(1L << bit);
+    }
+
+    /**
+     * Mark a chunk as enumerated, from then on only its marked blocks and trigger block types are interesting.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     */
+    public void setIndexed(String world, int chunkX, int chunkZ) {
+
+        if (enabled)
+            getChunk(world, chunkX, chunkZ, true).indexed = true;
+    }
+
+    /**
+     * Forget a chunk, making it entirely interesting again until it is enumerated.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     */
+    public void unloadChunk(String world, int chunkX, int chunkZ) {
+
+        LongHashMap<ChunkBits> chunks = worlds.get(world);
+        if (chunks == null)
+            return;
+        chunks.remove(ChunkedBlockMap.getChunkKey(chunkX, chunkZ));
+        if (chunks.isEmpty())
+            worlds.remove(world);
+    }
+
+    /**
+     * Gets the amount of chunks that have been enumerated.
+     *
+     * @return the amount of chunks
+     */
+    public int getIndexedChunks() {
+
+        int count = 0;
+        for (LongHashMap<ChunkBits> chunks : worlds.values())
+            for (ChunkBits chunk : chunks.values())
+                if (chunk.indexed)
+                    count++;
+        return count;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public long getSkipped() {
+
+        return skipped;
+    }
+
+    public long getPassed() {
+
+        return passed;
+    }
+
+    private ChunkBits getChunk(String world, int chunkX, int chunkZ, boolean create) {
+
+        LongHashMap<ChunkBits> chunks = worlds.get(world);
+        if (chunks == null) {
+            if (!create)
+                return null;
+            chunks = new LongHashMap<ChunkBits>();
+            worlds.put(world, chunks);
+        }
+
+        long key = ChunkedBlockMap.getChunkKey(chunkX, chunkZ);
+        ChunkBits chunk = chunks.get(key);
+        if (chunk == null && create) {
+            chunk = new ChunkBits();
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    private static boolean isSet(ChunkBits chunk, int x, int y, int z) {
+
+        long[] section = chunk.sections[y >> 4];
+        if (section == null)
+            return false;
+        int bit = getBit(x, y, z);
+        return (section[bit >> 6] & 1L << bit) != 0;
+    }
+
+    private static int getBit(int x, int y, int z) {
+
+        return (y & 15) << 8 | (z & 15) << 4 | x & 15;
+    }
+}
@@ -18,11 +18,14 @@ public abstract class LocalConfiguration {
     public boolean variablesCommandBlockOverride;
     public boolean variablesPlayerCommandOverride;
     public boolean variablesPlayerChatOverride;
+    public int variablesSaveInterval;
+    public int variablesCompactThreshold;
 
     // Circuits
     // Circuits - IC
     public boolean ICEnabled;
     public boolean ICCached;
+    public int ICCacheSize;
     public boolean ICShortHandEnabled;
     public int ICMaxRange;
     public List<String> ICsDisabled;
@@ -31,6 +34,9 @@ public abstract class LocalConfiguration {
     public boolean ICSavePersistentData;
     public boolean ICMidiUsePercussion;
     public boolean ICBreakOnError;
+    public int ICPlcSaveInterval;
+    public boolean ICCompileNetworks;
+    public boolean ICBufferOutputs;
     // Circuits - Wiring
     public boolean netherrackEnabled;
     public boolean pumpkinsEnabled;
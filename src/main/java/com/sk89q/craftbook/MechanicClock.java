@@ -23,6 +23,7 @@ public class MechanicClock implements Runnable {
     @Override
     public void run() {
 
+        CraftBookPlugin.inst().getManager().getEnumerationQueue().tick();
         CraftBookPlugin.inst().getManager().think();
     }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.sk89q.craftbook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Sign;
+
+import com.sk89q.craftbook.util.SignUtil;
+import com.sk89q.worldedit.blocks.BlockID;
+
+/**
+ * A lookup table from block types and sign tags to the factories that may detect a mechanic there. Factories that
+ * extend {@link AbstractMechanicFactory} can declare what they are triggered by, every other factory is always
+ * consulted.
+ * <p>
+ * Every candidate list is precomputed, and keeps the order that the factories were registered in.
+ * </p>
+ */
+class MechanicFactoryIndex {
+
+    /**
+     * Candidates for a block type, including unfiltered factories.
+     */
+    private final Map<Integer, List<MechanicFactory<? extends Mechanic>>> byBlock = new HashMap<Integer, List<MechanicFactory<? extends Mechanic>>>();
+
+    /**
+     * Candidates for a sign tag, including sign and unfiltered factories.
+     */
+    private final Map<String, List<MechanicFactory<? extends Mechanic>>> bySignTag = new HashMap<String, List<MechanicFactory<? extends Mechanic>>>();
+
+    /**
+     * Candidates for any sign, including unfiltered factories.
+     */
+    private final List<MechanicFactory<? extends Mechanic>> signFactories = new ArrayList<MechanicFactory<? extends Mechanic>>();
+
+    /**
+     * Candidates for a sign whose tag contains variables, which can resolve into any tag.
+     */
+    private final List<MechanicFactory<? extends Mechanic>> variableSignFactories = new ArrayList<MechanicFactory<? extends Mechanic>>();
+
+    /**
+     * Factories that have not declared any triggers.
+     */
+    private final List<MechanicFactory<? extends Mechanic>> unfiltered = new ArrayList<MechanicFactory<? extends Mechanic>>();
+
+    /**
+     * Rebuild the lookup tables from a list of factories.
+     *
+     * @param factories
+     */
+    public void rebuild(List<MechanicFactory<? extends Mechanic>> factories) {
+
+        byBlock.clear();
+        bySignTag.clear();
+        signFactories.clear();
+        variableSignFactories.clear();
+        unfiltered.clear();
+
+        // Collect every key first, so each list can be filled in registration order.
+        for (MechanicFactory<? extends Mechanic> factory : factories) {
+            for (Integer id : getTriggerBlocks(factory))
+                byBlock.put(id, new ArrayList<MechanicFactory<? extends Mechanic>>());
+            for (String tag : getTriggerSignTags(factory))
+                bySignTag.put(tag.toLowerCase(Locale.ENGLISH), new ArrayList<MechanicFactory<? extends Mechanic>>());
+        }
+
+        for (MechanicFactory<? extends Mechanic> factory : factories) {
+            if (!isFiltered(factory)) {
+                unfiltered.add(factory);
+                signFactories.add(factory);
+                for (List<MechanicFactory<? extends Mechanic>> list : byBlock.values())
+                    list.add(factory);
+                for (List<MechanicFactory<? extends Mechanic>> list : bySignTag.values())
+                    list.add(factory);
+                continue;
+            }
+
+            Set<Integer> blocks = getTriggerBlocks(factory);
+            for (Integer id : blocks)
+                byBlock.get(id).add(factory);
+
+            if (blocks.contains(BlockID.SIGN_POST) || blocks.contains(BlockID.WALL_SIGN)) {
+                signFactories.add(factory);
+                for (List<MechanicFactory<? extends Mechanic>> list : bySignTag.values())
+                    list.add(factory);
+            } else {
+                for (String tag : getTriggerSignTags(factory))
+                    bySignTag.get(tag.toLowerCase(Locale.ENGLISH)).add(factory);
+            }
+        }
+
+        variableSignFactories.addAll(signFactories);
+        for (List<MechanicFactory<? extends Mechanic>> list : bySignTag.values())
+            for (MechanicFactory<? extends Mechanic> factory : list)
+                if (!variableSignFactories.contains(factory))
+                    variableSignFactories.add(factory);
+    }
+
+    /**
+     * Get every block type that a factory has declared as its trigger.
+     *
+     * @return the block type IDs
+     */
+    public Set<Integer> getTriggerBlocks() {
+
+        return byBlock.keySet();
+    }
+
+    /**
+     * Get the factories that may detect a mechanic at a block. Signs are read once here, so the result should be
+     * reused for every detection at the same block.
+     *
+     * @param block
+     *
+     * @return the candidate factories
+     */
+    public List<MechanicFactory<? extends Mechanic>> getCandidates(Block block) {
+
+        if (SignUtil.isSign(block)) {
+            BlockState state = block.getState();
+            if (state instanceof Sign)
+                return getSignCandidates(((Sign) state).getLine(1));
+            return signFactories;
+        }
+
+        List<MechanicFactory<? extends Mechanic>> candidates = byBlock.get(block.getTypeId());
+        return candidates == null ? unfiltered : candidates;
+    }
+
+    /**
+     * Get the factories that may detect a mechanic at a sign.
+     *
+     * @param sign
+     *
+     * @return the candidate factories
+     */
+    public List<MechanicFactory<? extends Mechanic>> getCandidates(ChangedSign sign) {
+
+        return getSignCandidates(sign.getLines()[1]);
+    }
+
+    private List<MechanicFactory<? extends Mechanic>> getSignCandidates(String tag) {
+
+        if (tag == null)
+            return signFactories;
+        // Variables can resolve into any tag, and are left for the factories to parse.
+        if (tag.indexOf('%') >= 0)
+            return variableSignFactories;
+
+        List<MechanicFactory<? extends Mechanic>> candidates = bySignTag.get(tag.toLowerCase(Locale.ENGLISH));
+        return candidates == null ? signFactories : candidates;
+    }
+
+    private static boolean isFiltered(MechanicFactory<? extends Mechanic> factory) {
+
+        return factory instanceof AbstractMechanicFactory
+                && (((AbstractMechanicFactory<?>) factory).getTriggerBlocks() != null || ((AbstractMechanicFactory<?>) factory).getTriggerSignTags() != null);
+    }
+
+    private static Set<Integer> getTriggerBlocks(MechanicFactory<? extends Mechanic> factory) {
+
+        if (!(factory instanceof AbstractMechanicFactory))
+            return Collections.emptySet();
+        Set<Integer> blocks = ((AbstractMechanicFactory<?>) factory).getTriggerBlocks();
+        return blocks == null ? Collections.<Integer>emptySet() : blocks;
+    }
+
+    private static Set<String> getTriggerSignTags(MechanicFactory<? extends Mechanic> factory) {
+
+        if (!(factory instanceof AbstractMechanicFactory))
+            return Collections.emptySet();
+        Set<String> tags = ((AbstractMechanicFactory<?>) factory).getTriggerSignTags();
+        return tags == null ? Collections.<String>emptySet() : tags;
+    }
+}
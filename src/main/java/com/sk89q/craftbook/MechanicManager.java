@@ -28,6 +28,8 @@ import java.util.Set;
 import java.util.logging.Level;
 
 import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -40,6 +42,7 @@ import com.sk89q.craftbook.bukkit.util.BukkitUtil;
 import com.sk89q.craftbook.circuits.ic.ICMechanic;
 import com.sk89q.craftbook.circuits.pipe.PipePutEvent;
 import com.sk89q.craftbook.util.EventUtil;
+import com.sk89q.craftbook.util.Profiler;
 import com.sk89q.craftbook.util.ProtectionUtil;
 import com.sk89q.craftbook.util.SignUtil;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
@@ -64,6 +67,21 @@ public class MechanicManager {
      */
     public final LinkedList<MechanicFactory<? extends Mechanic>> factories;
 
+    /**
+     * Lookup table of the factories that may detect a mechanic for a given block type or sign tag.
+     */
+    private final MechanicFactoryIndex factoryIndex;
+
+    /**
+     * Whether the factory list has changed since the factory index was last built.
+     */
+    private boolean factoryIndexDirty = true;
+
+    /**
+     * Remembers positions where no mechanic could be detected.
+     */
+    private final DetectionCache detectionCache;
+
     /**
      * Keeps track of trigger blocks. Trigger blocks are the blocks that will activate mechanics. No block can be a
      * trigger block for two mechanics at
@@ -83,12 +101,38 @@ public class MechanicManager {
      */
     public final Set<SelfTriggeringMechanic> thinkingMechanics = new LinkedHashSet<SelfTriggeringMechanic>();
 
+    /**
+     * Spreads the thinking of the thinking mechanics over multiple ticks.
+     */
+    private final ThinkScheduler thinkScheduler;
+
+    /**
+     * Loaded chunks that still need their mechanics enumerated.
+     */
+    private final ChunkEnumerationQueue enumerationQueue;
+
+    /**
+     * The blocks that redstone could trigger a mechanic at.
+     */
+    private final InterestingBlockMap interestingBlocks;
+
+    /**
+     * Counts block changes per chunk, for mechanics that cache their validity.
+     */
+    private final ChunkRevisions revisions = new ChunkRevisions();
+
     /**
      * Construct the manager.
      */
     public MechanicManager() {
 
         factories = new LinkedList<MechanicFactory<? extends Mechanic>>();
+        factoryIndex = new MechanicFactoryIndex();
+        detectionCache = new DetectionCache(CraftBookPlugin.inst().getConfiguration().detectionCacheSize);
+        thinkScheduler = new ThinkScheduler(this, CraftBookPlugin.inst().getConfiguration().stThinkRate,
+                CraftBookPlugin.inst().getConfiguration().stThinkBudget, CraftBookPlugin.inst().getConfiguration().stThinkMaxDelay);
+        enumerationQueue = new ChunkEnumerationQueue(this, CraftBookPlugin.inst().getConfiguration().chunkEnumerationBudget);
+        interestingBlocks = new InterestingBlockMap(CraftBookPlugin.inst().getConfiguration().redstoneFanoutFilter);
         triggersManager = new TriggerBlockManager();
         watchBlockManager = new WatchBlockManager();
     }
@@ -102,6 +146,7 @@ public class MechanicManager {
 
         if (!factories.contains(factory)) {
             factories.add(factory);
+            factoryIndexDirty = true;
         }
     }
 
@@ -114,6 +159,7 @@ public class MechanicManager {
 
         if (factories.contains(factory)) {
             factories.remove(factory);
+            factoryIndexDirty = true;
             return true;
         }
         return false;
@@ -127,6 +173,7 @@ public class MechanicManager {
     public boolean unregister(Iterator<MechanicFactory<? extends Mechanic>> factory) {
 
         factory.remove();
+        factoryIndexDirty = true;
         return true;
     }
 
@@ -201,7 +248,9 @@ public class MechanicManager {
                     if(plugin.getConfiguration().advancedBlockChecks && event.isCancelled())
                         return returnValue;
 
+                    long start = Profiler.start();
                     aMechanic.onBlockBreak(event);
+                    Profiler.stop(aMechanic, "break", start, pos);
                     returnValue++;
                 }
             }
@@ -240,7 +289,9 @@ public class MechanicManager {
                     if(plugin.getConfiguration().advancedBlockChecks && event.isCancelled())
                         return returnValue;
 
+                    long start = Profiler.start();
                     aMechanic.onPipePut(event);
+                    Profiler.stop(aMechanic, "pipe put", start, pos);
                     returnValue++;
                 }
             }
@@ -284,7 +335,9 @@ public class MechanicManager {
                     if(plugin.getConfiguration().advancedBlockChecks && event.isCancelled())
                         return returnValue;
 
+                    long start = Profiler.start();
                     aMechanic.onRightClick(event);
+                    Profiler.stop(aMechanic, "right click", start, pos);
                     returnValue++;
                 }
             }
@@ -329,7 +382,9 @@ public class MechanicManager {
                     if(plugin.getConfiguration().advancedBlockChecks && event.isCancelled())
                         return returnValue;
 
+                    long start = Profiler.start();
                     aMechanic.onLeftClick(event);
+                    Profiler.stop(aMechanic, "left click", start, pos);
                     returnValue++;
                 }
             }
@@ -353,14 +408,24 @@ public class MechanicManager {
         // We don't need to handle events that no mechanic we use makes use of
         if (!EventUtil.passesFilter(event)) return 0;
 
+        // Most redstone changes happen at plain blocks, so check that without allocating anything first.
+        Block block = event.getBlock();
+        String world = block.getWorld().getName();
+        boolean triggered = triggersManager.get(world, block.getX(), block.getY(), block.getZ()) != null;
+        if (!triggered && detectionCache.isEmpty(world, block.getX(), block.getY(), block.getZ(), block.getTypeId()))
+            return 0;
+
         short returnValue = 0;
         // See if this event could be occurring on any mechanism's triggering blocks
-        BlockWorldVector pos = toWorldVector(event.getBlock());
+        BlockWorldVector pos = toWorldVector(block);
         try {
-            HashSet<Mechanic> mechanics = load(pos, null);
+            // The detection cache was already asked about this position, unless a mechanic is triggered here.
+            HashSet<Mechanic> mechanics = load(pos, null, !triggered);
             for (Mechanic aMechanic : mechanics) {
                 if (aMechanic != null) {
+                    long start = Profiler.start();
                     aMechanic.onBlockRedstoneChange(event);
+                    Profiler.stop(aMechanic, "redstone", start, pos);
                     returnValue++;
                 }
             }
@@ -386,9 +451,34 @@ public class MechanicManager {
      */
     public HashSet<Mechanic> load(BlockWorldVector pos, LocalPlayer player) throws InvalidMechanismException {
 
-        HashSet<Mechanic> detectedMechanics = detect(pos);
+        return load(pos, player, false);
+    }
+
+    /**
+     * Load a Mechanic at a position.
+     *
+     * @param pos
+     * @param player If a player is available, the player who is interacting.
+     * @param notEmpty true if the detection cache has already been checked, and does not know the position to be empty
+     *
+     * @return a list of all {@link Mechanic} at the location;
+     *
+     * @throws InvalidMechanismException if it appears that the position is intended to me a mechanism,
+     *                                   but the mechanism is misconfigured and inoperable.
+     */
+    private HashSet<Mechanic> load(BlockWorldVector pos, LocalPlayer player, boolean notEmpty) throws InvalidMechanismException {
+
+        // Find the candidates once, as it reads the sign at signs.
+        MechanicFactoryIndex index = getFactoryIndex();
+        Block block = BukkitUtil.toBlock(pos);
+        boolean empty = !notEmpty && detectionCache.isEmpty(pos, block.getTypeId());
+        if (empty && player == null)
+            return loadDetectedMechanics(pos, new HashSet<Mechanic>());
+        List<MechanicFactory<? extends Mechanic>> candidates = index.getCandidates(block);
+
+        HashSet<Mechanic> detectedMechanics = empty ? new HashSet<Mechanic>() : detect(pos, block.getTypeId(), candidates);
         if(player != null)
-            detectedMechanics.addAll(detect(pos,player));
+            detectedMechanics.addAll(detect(pos, player, candidates));
 
         return loadDetectedMechanics(pos, detectedMechanics);
     }
@@ -435,6 +525,7 @@ public class MechanicManager {
                     if (aMechanic instanceof SelfTriggeringMechanic) {
                         synchronized (this) {
                             thinkingMechanics.add((SelfTriggeringMechanic) aMechanic);
+                            thinkScheduler.add((SelfTriggeringMechanic) aMechanic);
                         }
                     }
                     break;
@@ -465,22 +556,27 @@ public class MechanicManager {
      * PersistentMechanic cannot be found.
      *
      * @param pos
+     * @param typeId the type of the block at the location
+     * @param candidates the factories that may detect a mechanic at the location
      *
      * @return a {@link Mechanic} if a mechanism could be found at the location; null otherwise
      *
      * @throws InvalidMechanismException if it appears that the position is intended to me a mechanism,
      *                                   but the mechanism is misconfigured and inoperable.
      */
-    protected HashSet<Mechanic> detect(BlockWorldVector pos) throws InvalidMechanismException {
+    protected HashSet<Mechanic> detect(BlockWorldVector pos, int typeId, List<MechanicFactory<? extends Mechanic>> candidates) throws InvalidMechanismException {
 
         HashSet<Mechanic> mechanics = new HashSet<Mechanic>();
 
-        for (MechanicFactory<? extends Mechanic> factory : factories) {
+        for (MechanicFactory<? extends Mechanic> factory : candidates) {
             Mechanic mechanic;
             if ((mechanic = factory.detect(pos)) != null) {
                 mechanics.add(mechanic);
             }
         }
+
+        if (mechanics.isEmpty())
+            detectionCache.setEmpty(pos, typeId);
         return mechanics;
     }
 
@@ -491,17 +587,18 @@ public class MechanicManager {
      *
      * @param pos
      * @param player
+     * @param candidates the factories that may detect a mechanic at the location
      *
      * @return a {@link Mechanic} if a mechanism could be found at the location; null otherwise
      *
      * @throws InvalidMechanismException if it appears that the position is intended to me a mechanism,
      *                                   but the mechanism is misconfigured and inoperable.
      */
-    protected HashSet<Mechanic> detect(BlockWorldVector pos, LocalPlayer player) throws InvalidMechanismException {
+    protected HashSet<Mechanic> detect(BlockWorldVector pos, LocalPlayer player, List<MechanicFactory<? extends Mechanic>> candidates) throws InvalidMechanismException {
 
         HashSet<Mechanic> mechanics = new HashSet<Mechanic>();
 
-        for (MechanicFactory<? extends Mechanic> factory : factories) {
+        for (MechanicFactory<? extends Mechanic> factory : candidates) {
             Mechanic mechanic;
             if ((mechanic = factory.detect(pos, player)) != null) {
                 mechanics.add(mechanic);
@@ -526,7 +623,7 @@ public class MechanicManager {
 
         HashSet<Mechanic> mechanics = new HashSet<Mechanic>();
 
-        for (MechanicFactory<? extends Mechanic> factory : factories) {
+        for (MechanicFactory<? extends Mechanic> factory : getFactoryIndex().getCandidates(sign)) {
             try {
                 Mechanic mechanic;
                 if ((mechanic = factory.detect(pos, player, sign)) != null) {
@@ -539,6 +636,96 @@ public class MechanicManager {
         return mechanics;
     }
 
+    /**
+     * Gets the factory lookup table, rebuilding it if the factory list has changed.
+     *
+     * @return the factory index
+     */
+    private MechanicFactoryIndex getFactoryIndex() {
+
+        if (factoryIndexDirty) {
+            factoryIndex.rebuild(factories);
+            detectionCache.clear();
+            interestingBlocks.setFactoryTriggerBlocks(factoryIndex.getTriggerBlocks());
+            factoryIndexDirty = false;
+        }
+        return factoryIndex;
+    }
+
+    /**
+     * Forget any cached detection results that a change to the given block may have affected. This must be called
+     * whenever a block is placed, broken, moved or has its sign text changed.
+     *
+     * @param block
+     */
+    public void invalidateDetection(Block block) {
+
+        detectionCache.invalidate(block.getWorld().getName(), block.getX(), block.getZ());
+        revisions.increment(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    /**
+     * Gets the revision of a chunk. The revision changes whenever {@link #invalidateDetection(Block)} is called for a
+     * block in the chunk, or the chunk unloads, so a mechanic that was valid at a revision is still valid while the
+     * revision stays the same.
+     *
+     * @param world
+     * @param chunkX
+     * @param chunkZ
+     *
+     * @return the revision
+     */
+    public long getRevision(String world, int chunkX, int chunkZ) {
+
+        return revisions.getRevision(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Gets the cache of positions where no mechanic could be detected.
+     *
+     * @return the detection cache
+     */
+    public DetectionCache getDetectionCache() {
+
+        return detectionCache;
+    }
+
+    /**
+     * Checks whether redstone changing next to a block could trigger a mechanic there, without creating the block.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     *
+     * @return true if a redstone event should be fired for the block
+     */
+    public boolean isRedstoneInteresting(World world, int x, int y, int z) {
+
+        getFactoryIndex();
+        return interestingBlocks.isInteresting(world, x, y, z) || triggersManager.get(world.getName(), x, y, z) != null;
+    }
+
+    /**
+     * Gets the map of blocks that redstone could trigger a mechanic at.
+     *
+     * @return the interesting block map
+     */
+    public InterestingBlockMap getInterestingBlocks() {
+
+        return interestingBlocks;
+    }
+
+    /**
+     * Gets the queue of loaded chunks that still need their mechanics enumerated.
+     *
+     * @return the enumeration queue
+     */
+    public ChunkEnumerationQueue getEnumerationQueue() {
+
+        return enumerationQueue;
+    }
+
     /**
      * Handles chunk load.
      *
@@ -550,6 +737,8 @@ public class MechanicManager {
             for (BlockState state : chunk.getTileEntities()) {
                 if (state == null) continue;
                 if (state instanceof Sign) {
+                    if (InterestingBlockMap.isTagged(((Sign) state).getLines()))
+                        interestingBlocks.mark(chunk.getWorld().getName(), state.getX(), state.getY(), state.getZ());
                     try {
                         load(BukkitUtil.toWorldVector(state.getBlock()), null);
                     } catch (InvalidMechanismException ignored) {
@@ -558,6 +747,7 @@ public class MechanicManager {
                     }
                 }
             }
+            interestingBlocks.setIndexed(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
         } catch (NullPointerException e) {
             // Ignore: Generally thrown by Bukkit even for valid chunks
         } catch (Throwable error) {
@@ -579,6 +769,11 @@ public class MechanicManager {
      * @param chunk
      */
     public void unload(BlockWorldVector2D chunk, ChunkUnloadEvent event) {
+
+        detectionCache.invalidateChunk(chunk.getWorld().getName(), chunk.getBlockX(), chunk.getBlockZ());
+        interestingBlocks.unloadChunk(chunk.getWorld().getName(), chunk.getBlockX(), chunk.getBlockZ());
+        revisions.remove(chunk.getWorld().getName(), chunk.getBlockX(), chunk.getBlockZ());
+
         // Find mechanics that we need to unload
         Set<PersistentMechanic> applicable = triggersManager.getByChunk(chunk);
         applicable.addAll(watchBlockManager.getByChunk(chunk));
@@ -588,6 +783,8 @@ public class MechanicManager {
                 return;
             unload(m, event);
         }
+
+        enumerationQueue.remove(chunk.getWorld().getName(), chunk.getBlockX(), chunk.getBlockZ());
     }
 
     /**
@@ -644,6 +841,8 @@ public class MechanicManager {
 
         synchronized (this) {
             thinkingMechanics.remove(mechanic);
+            if (mechanic instanceof SelfTriggeringMechanic)
+                thinkScheduler.remove((SelfTriggeringMechanic) mechanic);
         }
 
         if (mechanic instanceof PersistentMechanic) {
@@ -654,36 +853,49 @@ public class MechanicManager {
     }
 
     /**
-     * Causes all thinking mechanics to think.
+     * Runs the think scheduler for a single tick, causing thinking mechanics that are due to think.
      */
     public void think() {
 
-        SelfTriggeringMechanic[] mechs;
+        thinkScheduler.tick();
+    }
 
-        synchronized (this) {
-            // Copy to array to get rid of concurrency snafus
-            mechs = thinkingMechanics.toArray(new SelfTriggeringMechanic[thinkingMechanics.size()]);
-        }
+    /**
+     * Causes a single thinking mechanic to think, or reloads it if it is no longer active.
+     *
+     * @param mechanic
+     */
+    protected void think(SelfTriggeringMechanic mechanic) {
 
-        for (SelfTriggeringMechanic mechanic : mechs) {
-            if (mechanic instanceof PersistentMechanic && ((PersistentMechanic) mechanic).isActive()) {
+        if (mechanic instanceof PersistentMechanic && ((PersistentMechanic) mechanic).isActive()) {
+            long start = Profiler.start();
+            try {
+                mechanic.think();
+            } catch (Throwable t) { // Mechanic failed to think for some reason
+                CraftBookPlugin.logger().log(Level.WARNING, "CraftBook mechanic: Failed to think for " + mechanic.getClass().getSimpleName());
+                BukkitUtil.printStacktrace(t);
+                if(mechanic instanceof ICMechanic && CraftBookPlugin.inst().getConfiguration().ICBreakOnError)
+                    BukkitUtil.toSign(((ICMechanic)mechanic).getIC().getSign()).getBlock().breakNaturally();
+            }
+            Profiler.stop(mechanic, "think", start, mechanic);
+        } else {
+            unload(mechanic, null);
+            if(mechanic instanceof ICMechanic) {
                 try {
-                    mechanic.think();
-                } catch (Throwable t) { // Mechanic failed to think for some reason
-                    CraftBookPlugin.logger().log(Level.WARNING, "CraftBook mechanic: Failed to think for " + mechanic.getClass().getSimpleName());
-                    BukkitUtil.printStacktrace(t);
-                    if(mechanic instanceof ICMechanic && CraftBookPlugin.inst().getConfiguration().ICBreakOnError)
-                        BukkitUtil.toSign(((ICMechanic)mechanic).getIC().getSign()).getBlock().breakNaturally();
-                }
-            } else {
-                unload(mechanic, null);
-                if(mechanic instanceof ICMechanic) {
-                    try {
-                        load(((ICMechanic) mechanic).getIC().getSign().getBlockVector(), null);
-                    } catch (InvalidMechanismException ignored) {
-                    }
+                    load(((ICMechanic) mechanic).getIC().getSign().getBlockVector(), null);
+                } catch (InvalidMechanismException ignored) {
                 }
             }
         }
     }
+
+    /**
+     * Gets the scheduler that spreads the thinking of thinking mechanics over multiple ticks.
+     *
+     * @return the think scheduler
+     */
+    public ThinkScheduler getThinkScheduler() {
+
+        return thinkScheduler;
+    }
 }
\ No newline at end of file
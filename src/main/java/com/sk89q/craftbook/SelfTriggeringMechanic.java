@@ -25,9 +25,24 @@ package com.sk89q.craftbook;
 public interface SelfTriggeringMechanic extends Mechanic {
 
     /**
-     * Think. This is called every 2 ticks if this mechanic is self-triggering. Implementation should be aware that
+     * Think. This is called every {@link #getThinkInterval()} ticks if this mechanic is self-triggering, although a
+     * think budget may delay it by a few ticks. Implementation should be aware that
      * the mechanic may no longer exist
      * in the world.
      */
     public void think();
+
+    /**
+     * Gets the amount of ticks between thinks. This is read once, when the mechanic is loaded.
+     *
+     * @return the think interval, or 0 to use the configured st-think-ticks.
+     */
+    public int getThinkInterval();
+
+    /**
+     * Gets the tick within the think interval on which this mechanic thinks, so that slow mechanics can be spread out.
+     *
+     * @return the think phase, or -1 to let the scheduler decide.
+     */
+    public int getThinkPhase();
 }
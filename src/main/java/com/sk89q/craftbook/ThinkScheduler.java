@@ -0,0 +1,300 @@
+package com.sk89q.craftbook;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Schedules the thinking of {@link SelfTriggeringMechanic}s, each at its own interval and phase.
+ * <p>
+ * Mechanics are kept on a hierarchical timing wheel, so a tick only costs work for the mechanics that are due on it;
+ * a sensor that thinks once a second is not looked at on the other nineteen ticks. The lowest level has a slot for
+ * each of the next 64 ticks, every level above covers 64 times the range of the one below it. When a lower level
+ * wraps around, the next slot of the level above is cascaded down into it.
+ * </p>
+ * <p>
+ * Due mechanics are thought in the order they became due until the tick's time budget is used up, the rest carry on
+ * at the next tick. Once a mechanic is more than the maximum delay late, the budget is ignored so that it still thinks.
+ * </p>
+ */
+public class ThinkScheduler {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    /**
+     * The longest interval that fits on the wheel, about nine and a half days.
+     */
+    public static final int MAX_INTERVAL = (1 << SLOT_BITS * LEVELS) - 1;
+
+    private static class Entry {
+
+        final SelfTriggeringMechanic mechanic;
+        final int interval;
+        long due;
+        boolean removed = false;
+        Entry next;
+
+        Entry(SelfTriggeringMechanic mechanic, int interval) {
+
+            this.mechanic = mechanic;
+            this.interval = interval;
+        }
+    }
+
+    private final MechanicManager manager;
+
+    private final int thinkRate;
+    private final long budgetNanos;
+    private final int maxDelay;
+
+    private final Map<SelfTriggeringMechanic, Entry> entries = new HashMap<SelfTriggeringMechanic, Entry>();
+    private final Entry[][] wheel = new Entry[LEVELS][SLOTS];
+    private final ArrayDeque<Entry> due = new ArrayDeque<Entry>();
+
+    private long tick = 0;
+
+    private long secondThinks = 0;
+    private long secondMaxDelay = 0;
+    private long lastSecondThinks = 0;
+    private long lastSecondMaxDelay = 0;
+    private long lastTickNanos = 0;
+    private int lastTickThinks = 0;
+
+    /**
+     * Construct the scheduler.
+     *
+     * @param manager the manager that performs the thinking
+     * @param thinkRate the interval, in ticks, of mechanics that do not declare their own
+     * @param budget the amount of milliseconds that may be spent thinking each tick, or 0 for no limit
+     * @param maxDelay the amount of ticks a mechanic may be late before the budget is ignored, or 0 for no limit
+     */
+    public ThinkScheduler(MechanicManager manager, int thinkRate, double budget, int maxDelay) {
+
+        this.manager = manager;
+        this.thinkRate = Math.max(1, thinkRate);
+        budgetNanos = (long) (budget * 1000000);
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * Add a mechanic to the scheduler. It will first think on the next tick that matches its interval and phase.
+     *
+     * @param mechanic
+     */
+    public synchronized void add(SelfTriggeringMechanic mechanic) {
+
+        if (entries.containsKey(mechanic))
+            return;
+
+        int interval = mechanic.getThinkInterval();
+        interval = interval <= 0 ? thinkRate : Math.min(interval, MAX_INTERVAL);
+
+        int phase = mechanic.getThinkPhase();
+        if (phase < 0) {
+            // Mechanics at the default rate keep thinking in step with each other, slower ones are spread out.
+            phase = interval == thinkRate ? 0 : (mechanic.hashCode() & Integer.MAX_VALUE) % interval;
+        } else
+            phase %= interval;
+
+        Entry entry = new Entry(mechanic, interval);
+        long first = tick + 1;
+        entry.due = first + ((phase - first) % interval + interval) % interval;
+        entries.put(mechanic, entry);
+        schedule(entry);
+    }
+
+    /**
+     * Remove a mechanic from the scheduler.
+     *
+     * @param mechanic
+     */
+    public synchronized void remove(SelfTriggeringMechanic mechanic) {
+
+        Entry entry = entries.remove(mechanic);
+        if (entry != null)
+            entry.removed = true;
+    }
+
+    /**
+     * Run the scheduler for a single tick.
+     */
+    public void tick() {
+
+        advance();
+
+        long start = System.nanoTime();
+        int thinks = 0;
+
+        Entry entry;
+        while ((entry = nextDue(start)) != null) {
+            manager.think(entry.mechanic);
+            thinks++;
+            reschedule(entry);
+        }
+
+        lastTickNanos = System.nanoTime() - start;
+        lastTickThinks = thinks;
+        secondThinks += thinks;
+    }
+
+    /**
+     * Move the wheel on by one tick, collecting the mechanics that are due.
+     */
+    private synchronized void advance() {
+
+        tick++;
+
+        if (tick % 20 == 0) {
+            lastSecondThinks = secondThinks;
+            lastSecondMaxDelay = secondMaxDelay;
+            secondThinks = 0;
+            secondMaxDelay = 0;
+        }
+
+        // Cascade from the lower levels up, each level only when the one below it has wrapped around.
+        for (int level = 1; level < LEVELS; level++) {
+            if ((tick & (1L << SLOT_BITS * level) - 1) != 0)
+                break;
+            int slot = (int) (tick >> SLOT_BITS * level) & SLOT_MASK;
+            Entry entry = wheel[level][slot];
+            wheel[level][slot] = null;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (!entry.removed)
+                    schedule(entry);
+                entry = next;
+            }
+        }
+
+        int slot = (int) tick & SLOT_MASK;
+        Entry entry = wheel[0][slot];
+        wheel[0][slot] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.next = null;
+            if (!entry.removed)
+                due.add(entry);
+            entry = next;
+        }
+    }
+
+    private synchronized Entry nextDue(long start) {
+
+        Entry entry;
+        while ((entry = due.peek()) != null && entry.removed)
+            due.poll();
+        if (entry == null)
+            return null;
+
+        long delay = tick - entry.due;
+        if (budgetNanos > 0 && (maxDelay <= 0 || delay < maxDelay) && System.nanoTime() - start >= budgetNanos)
+            return null;
+
+        secondMaxDelay = Math.max(secondMaxDelay, delay);
+        return due.poll();
+    }
+
+    private synchronized void reschedule(Entry entry) {
+
+        if (entry.removed)
+            return;
+
+        entry.due += entry.interval;
+        if (entry.due <= tick) {
+            // Skip the thinks that were missed while waiting on the budget, keeping the phase.
+            entry.due += ((tick - entry.due) / entry.interval + 1) * entry.interval;
+        }
+        schedule(entry);
+    }
+
+    /**
+     * Put an entry into the wheel slot for its due tick.
+     *
+     * @param entry
+     */
+    private void schedule(Entry entry) {
+
+        // An entry cascaded onto the current tick lands on level 0, whose slot is collected right after.
+        long delta = entry.due - tick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << SLOT_BITS * (level + 1))
+            level++;
+
+        int slot = (int) (entry.due >> SLOT_BITS * level) & SLOT_MASK;
+        entry.next = wheel[level][slot];
+        wheel[level][slot] = entry;
+    }
+
+    /**
+     * Gets the amount of mechanics in the scheduler.
+     *
+     * @return the amount of mechanics
+     */
+    public synchronized int size() {
+
+        return entries.size();
+    }
+
+    /**
+     * Gets the amount of mechanics that are due, but have not thought yet because of the budget.
+     *
+     * @return the amount of waiting mechanics
+     */
+    public synchronized int getBacklog() {
+
+        return due.size();
+    }
+
+    /**
+     * Gets the amount of thinks during the last full second.
+     *
+     * @return the amount of thinks
+     */
+    public long getLastSecondThinks() {
+
+        return lastSecondThinks;
+    }
+
+    /**
+     * Gets the longest amount of ticks a mechanic was late to think during the last full second.
+     *
+     * @return the longest delay
+     */
+    public long getLastSecondMaxDelay() {
+
+        return lastSecondMaxDelay;
+    }
+
+    /**
+     * Gets the time spent thinking on the last tick.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getLastTickNanos() {
+
+        return lastTickNanos;
+    }
+
+    /**
+     * Gets the amount of mechanics that thought on the last tick.
+     *
+     * @return the amount of mechanics
+     */
+    public int getLastTickThinks() {
+
+        return lastTickThinks;
+    }
+
+    /**
+     * Gets the interval of mechanics that do not declare their own.
+     *
+     * @return the think rate
+     */
+    public int getThinkRate() {
+
+        return thinkRate;
+    }
+}
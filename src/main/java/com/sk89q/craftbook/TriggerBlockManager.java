@@ -16,13 +16,11 @@
 
 package com.sk89q.craftbook;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
 import com.sk89q.craftbook.util.exceptions.CraftbookRuntimeException;
 import com.sk89q.worldedit.BlockWorldVector;
 import com.sk89q.worldedit.BlockWorldVector2D;
@@ -35,16 +33,16 @@ import com.sk89q.worldedit.BlockWorldVector2D;
 class TriggerBlockManager {
 
     /**
-     * Holds the list of triggers.
+     * Holds the list of triggers, indexed by world and chunk.
      */
-    private final Map<BlockWorldVector, PersistentMechanic> triggers;
+    private final ChunkedBlockMap<PersistentMechanic> triggers;
 
     /**
      * Construct the manager.
      */
     public TriggerBlockManager() {
 
-        triggers = new HashMap<BlockWorldVector, PersistentMechanic>();
+        triggers = new ChunkedBlockMap<PersistentMechanic>();
     }
 
     /**
@@ -80,7 +78,7 @@ class TriggerBlockManager {
         }
 
         for (BlockWorldVector p : m.getTriggerPositions())
-            triggers.put(p, null);
+            triggers.remove(p);
     }
 
     /**
@@ -98,9 +96,22 @@ class TriggerBlockManager {
     }
 
     /**
-     * Get a list of mechanics that in a specified chunk. Implemented by performing a walk over the entire list of
-     * loaded PersistentMechanic in the
-     * universe.
+     * Get the persistent mechanic associated with a particular position, without creating a vector for it.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     *
+     * @return a persistent mechanic if one is triggered by the location; null otherwise
+     */
+    public PersistentMechanic get(String world, int x, int y, int z) {
+
+        return triggers.get(world, x, y, z);
+    }
+
+    /**
+     * Get a list of mechanics that in a specified chunk. Only the triggers within the chunk are visited.
      *
      * @param chunk
      *
@@ -111,24 +122,7 @@ class TriggerBlockManager {
     public Set<PersistentMechanic> getByChunk(BlockWorldVector2D chunk) {
 
         Set<PersistentMechanic> folks = new HashSet<PersistentMechanic>();
-        int chunkX = chunk.getBlockX();
-        int chunkZ = chunk.getBlockZ();
-        for (Entry<BlockWorldVector, PersistentMechanic> entry : triggers.entrySet()) {
-            BlockWorldVector pos = entry.getKey();
-
-            // Different world! Abort
-            if (!pos.getWorld().equals(chunk.getWorld())) {
-                continue;
-            }
-
-            int curChunkX = pos.getBlockX() >> 4;
-            int curChunkZ = pos.getBlockZ() >> 4;
-            // Not involved in this chunk!
-            if (curChunkX != chunkX || curChunkZ != chunkZ)
-                continue;
-
-            PersistentMechanic pMechanic = entry.getValue();
-
+        for (PersistentMechanic pMechanic : triggers.getChunkValues(chunk)) {
             if (pMechanic != null)
                 folks.add(pMechanic);
         }
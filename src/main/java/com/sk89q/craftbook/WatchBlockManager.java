@@ -17,17 +17,15 @@
 package com.sk89q.craftbook;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
+import org.bukkit.block.Block;
 import org.bukkit.event.block.BlockEvent;
 
+import com.sk89q.craftbook.util.ChunkedBlockMap;
 import com.sk89q.worldedit.BlockWorldVector;
 import com.sk89q.worldedit.BlockWorldVector2D;
-import com.sk89q.worldedit.bukkit.BukkitUtil;
 
 /**
  * Holds the blocks that are watched by mechanics.
@@ -37,16 +35,16 @@ import com.sk89q.worldedit.bukkit.BukkitUtil;
 class WatchBlockManager {
 
     /**
-     * Stores the list of watch blocks.
+     * Stores the list of watch blocks, indexed by world and chunk.
      */
-    private final Map<BlockWorldVector, Set<PersistentMechanic>> watchBlocks;
+    private final ChunkedBlockMap<Set<PersistentMechanic>> watchBlocks;
 
     /**
      * Construct the object.
      */
     public WatchBlockManager() {
 
-        watchBlocks = new HashMap<BlockWorldVector, Set<PersistentMechanic>>();
+        watchBlocks = new ChunkedBlockMap<Set<PersistentMechanic>>();
     }
 
     /**
@@ -76,7 +74,7 @@ class WatchBlockManager {
 
         // This could be more efficient.
         for (BlockWorldVector p : oldWatchBlocks)
-            watchBlocks.get(p).remove(m);
+            remove(p, m);
 
         register(m);
     }
@@ -89,13 +87,27 @@ class WatchBlockManager {
     public void deregister(PersistentMechanic m) {
 
         for (BlockWorldVector p : m.getWatchedPositions()) {
-            Set<PersistentMechanic> watchBlock = watchBlocks.get(p);
-            if (p != null && watchBlock != null) {
-                watchBlock.remove(m);
-            }
+            if (p != null)
+                remove(p, m);
         }
     }
 
+    /**
+     * Removes a mechanic from a single watch block, releasing the block if nothing else watches it.
+     *
+     * @param p
+     * @param m
+     */
+    private void remove(BlockWorldVector p, PersistentMechanic m) {
+
+        Set<PersistentMechanic> watchBlock = watchBlocks.get(p);
+        if (watchBlock == null)
+            return;
+        watchBlock.remove(m);
+        if (watchBlock.isEmpty())
+            watchBlocks.remove(p);
+    }
+
     /**
      * Notify mechanics about a changed block that they are watching.
      *
@@ -103,7 +115,8 @@ class WatchBlockManager {
      */
     public void notify(BlockEvent event) {
 
-        Set<PersistentMechanic> pms = watchBlocks.get(BukkitUtil.toWorldVector(event.getBlock()));
+        Block block = event.getBlock();
+        Set<PersistentMechanic> pms = watchBlocks.get(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
 
         if (pms == null || pms.isEmpty()) return;
 
@@ -121,24 +134,8 @@ class WatchBlockManager {
     public Set<PersistentMechanic> getByChunk(BlockWorldVector2D chunk) {
 
         Set<PersistentMechanic> folks = new HashSet<PersistentMechanic>();
-        int chunkX = chunk.getBlockX();
-        int chunkZ = chunk.getBlockZ();
-        for (Entry<BlockWorldVector, Set<PersistentMechanic>> entry : watchBlocks.entrySet()) {
-            BlockWorldVector pos = entry.getKey();
-
-            // Different world! Abort
-            if (!pos.getWorld().equals(chunk.getWorld()))
-                continue;
-
-            int curChunkX = pos.getBlockX() >> 4;
-            int curChunkZ = pos.getBlockZ() >> 4;
-            // Not involved in this chunk!
-            if (curChunkX != chunkX || curChunkZ != chunkZ) {
-                continue;
-            }
-
-            folks.addAll(entry.getValue());
-        }
+        for (Set<PersistentMechanic> pms : watchBlocks.getChunkValues(chunk))
+            folks.addAll(pms);
         return folks;
     }
 
@@ -152,9 +149,10 @@ class WatchBlockManager {
     public Set<PersistentMechanic> get(BlockWorldVector pos) {
 
         Set<PersistentMechanic> folks = new HashSet<PersistentMechanic>();
-        if(watchBlocks.get(pos) == null)
+        Set<PersistentMechanic> pms = watchBlocks.get(pos);
+        if(pms == null)
             return folks;
-        folks.addAll(watchBlocks.get(pos));
+        folks.addAll(pms);
         return folks;
     }
 }
\ No newline at end of file
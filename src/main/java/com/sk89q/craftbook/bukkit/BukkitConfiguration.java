@@ -23,6 +23,11 @@ public class BukkitConfiguration extends YAMLConfiguration {
     public boolean useBlockDistance;
     public boolean safeDestruction;
     public int stThinkRate;
+    public double stThinkBudget;
+    public int stThinkMaxDelay;
+    public double chunkEnumerationBudget;
+    public int detectionCacheSize;
+    public boolean redstoneFanoutFilter;
     public boolean obeyWorldguard;
     public boolean advancedBlockChecks;
     public boolean pedanticBlockChecks;
@@ -40,6 +45,7 @@ public class BukkitConfiguration extends YAMLConfiguration {
     public List<String> debugFlags;
 
     public String persistentStorageType;
+    public int persistentStorageSnapshotInterval;
 
     public BukkitConfiguration(YAMLProcessor config, Logger logger) {
 
@@ -79,6 +85,21 @@ public class BukkitConfiguration extends YAMLConfiguration {
         config.setComment("st-think-ticks", "WARNING! Changing this can result in all ST mechanics acting very weirdly, only change this if you know what you are doing!");
         stThinkRate = config.getInt("st-think-ticks", 2);
 
+        config.setComment("st-think-budget", "The maximum amount of milliseconds per tick that ST mechanics may spend thinking. Mechanics that did not get to think continue on the next tick. Set to 0 for no limit.");
+        stThinkBudget = config.getDouble("st-think-budget", 0);
+
+        config.setComment("st-think-max-delay", "The maximum amount of ticks an ST mechanic may be delayed by st-think-budget, before the budget is ignored so that it still gets to think.");
+        stThinkMaxDelay = config.getInt("st-think-max-delay", 20);
+
+        config.setComment("chunk-enumeration-budget", "The maximum amount of milliseconds per tick spent finding the mechanics in newly loaded chunks. Chunks nearest to players go first, the rest wait for the next tick. Set to 0 for no limit.");
+        chunkEnumerationBudget = config.getDouble("chunk-enumeration-budget", 5);
+
+        config.setComment("detection-cache-size", "The maximum amount of blocks to remember as not being a mechanic, so that redstone next to them does not re-check them every pulse. Set to 0 to disable.");
+        detectionCacheSize = config.getInt("detection-cache-size", 20000);
+
+        config.setComment("redstone-fanout-filter", "Only fire redstone events at blocks that could be a mechanic, such as tagged signs and pistons. Disable if a mechanic from another plugin stops reacting to redstone.");
+        redstoneFanoutFilter = config.getBoolean("redstone-fanout-filter", true);
+
         config.setComment("notify-updates", "Enables the update notifier. This checks for updates on start, and notifies anyone with the permission when they join. They can then use /cb update to download the update.");
         updateNotifier = config.getBoolean("notify-updates", true);
 
@@ -127,9 +148,12 @@ public class BukkitConfiguration extends YAMLConfiguration {
         config.setComment("show-permission-messages", "Show messages when a player does not have permission to do something.");
         showPermissionMessages = config.getBoolean("show-permission-messages", true);
 
-        config.setComment("persistent-storage-type", "PersistentStorage stores data that can be accessed across server restart. Method of PersistentStorage storage (Note: DUMMY is practically off, and may cause issues). Can currently be any of the following: YAML, DUMMY");
+        config.setComment("persistent-storage-type", "PersistentStorage stores data that can be accessed across server restart. Method of PersistentStorage storage (Note: DUMMY is practically off, and may cause issues). Can currently be any of the following: YAML, BINARY, DUMMY");
         persistentStorageType = config.getString("persistent-storage-type", "YAML");
 
+        config.setComment("persistent-storage-snapshot-interval", "The amount of ticks between saving changed PersistentStorage data in the background, so it survives a crash. 0 only saves on shutdown.");
+        persistentStorageSnapshotInterval = config.getInt("persistent-storage-snapshot-interval", 1200);
+
         super.load();
     }
 }
\ No newline at end of file
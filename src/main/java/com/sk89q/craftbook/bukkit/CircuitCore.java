@@ -10,11 +10,14 @@ import java.util.Map;
 import org.bukkit.ChatColor;
 import org.bukkit.Server;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.scheduler.BukkitTask;
 
 import com.sk89q.craftbook.CraftBookMechanic;
 import com.sk89q.craftbook.LocalComponent;
 import com.sk89q.craftbook.bukkit.commands.CircuitCommands;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.bukkit.util.ProfiledEventExecutor;
 import com.sk89q.craftbook.circuits.GlowStone;
 import com.sk89q.craftbook.circuits.JackOLantern;
 import com.sk89q.craftbook.circuits.Netherrack;
@@ -145,8 +148,11 @@ import com.sk89q.craftbook.circuits.gates.world.weather.WeatherFaker;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 import com.sk89q.craftbook.circuits.ic.ICFamily;
+import com.sk89q.craftbook.circuits.ic.ICInputScheduler;
 import com.sk89q.craftbook.circuits.ic.ICManager;
 import com.sk89q.craftbook.circuits.ic.ICMechanicFactory;
+import com.sk89q.craftbook.circuits.ic.ICOutputBuffer;
+import com.sk89q.craftbook.circuits.ic.LogicNetworkManager;
 import com.sk89q.craftbook.circuits.ic.RegisteredICFactory;
 import com.sk89q.craftbook.circuits.ic.RestrictedIC;
 import com.sk89q.craftbook.circuits.ic.SelfTriggeredIC;
@@ -158,8 +164,11 @@ import com.sk89q.craftbook.circuits.ic.families.FamilySI5O;
 import com.sk89q.craftbook.circuits.ic.families.FamilySISO;
 import com.sk89q.craftbook.circuits.ic.families.FamilyVIVO;
 import com.sk89q.craftbook.circuits.pipe.Pipes;
+import com.sk89q.craftbook.circuits.plc.PlcCodeCache;
 import com.sk89q.craftbook.circuits.plc.PlcFactory;
+import com.sk89q.craftbook.circuits.plc.PlcStateBank;
 import com.sk89q.craftbook.circuits.plc.lang.Perlstone;
+import com.sk89q.craftbook.util.VariableStore;
 import com.sk89q.craftbook.util.config.YAMLICConfiguration;
 import com.sk89q.util.yaml.YAMLFormat;
 import com.sk89q.util.yaml.YAMLProcessor;
@@ -178,6 +187,20 @@ public class CircuitCore implements LocalComponent {
 
     private ICMechanicFactory ICFactory;
 
+    private ICInputScheduler inputScheduler;
+    private BukkitTask inputSchedulerTask;
+
+    private ICOutputBuffer outputBuffer;
+    private BukkitTask outputBufferTask;
+
+    private LogicNetworkManager logicNetworks;
+
+    private PlcStateBank plcStateBank;
+    private PlcCodeCache plcCodeCache;
+    private BukkitTask plcStateTask;
+
+    private VariableStore.Listener variableListener;
+
     private File romFolder;
     private File midiFolder;
     private File fireworkFolder;
@@ -224,12 +247,45 @@ public class CircuitCore implements LocalComponent {
         mechanics = null;
 
         if(icManager != null) {
+            HandlerList.unregisterAll(icManager);
             for(RegisteredICFactory factory : icManager.registered.values()) {
                 factory.getFactory().unload();
             }
         }
         icConfiguration = null;
         ICFactory = null;
+        if(inputSchedulerTask != null)
+            inputSchedulerTask.cancel();
+        inputSchedulerTask = null;
+        inputScheduler = null;
+        if(logicNetworks != null) {
+            HandlerList.unregisterAll(logicNetworks);
+            logicNetworks.dissolveAll();
+        }
+        logicNetworks = null;
+        if(outputBufferTask != null)
+            outputBufferTask.cancel();
+        outputBufferTask = null;
+        if(outputBuffer != null) {
+            // Write whatever is left, including levers set while flushing.
+            for(int i = 0; i < 16 && outputBuffer.size() > 0; i++)
+                outputBuffer.flush();
+        }
+        outputBuffer = null;
+        if(plcStateTask != null)
+            plcStateTask.cancel();
+        plcStateTask = null;
+        if(plcStateBank != null) {
+            HandlerList.unregisterAll(plcStateBank);
+            plcStateBank.close();
+        }
+        plcStateBank = null;
+        if(plcCodeCache != null)
+            HandlerList.unregisterAll(plcCodeCache);
+        plcCodeCache = null;
+        if(variableListener != null)
+            plugin.getVariableStore().removeListener(variableListener);
+        variableListener = null;
         ICManager.emptyCache();
         instance = null;
     }
@@ -257,6 +313,41 @@ public class CircuitCore implements LocalComponent {
         return ICFactory;
     }
 
+    public ICInputScheduler getInputScheduler() {
+
+        return inputScheduler;
+    }
+
+    /**
+     * Gets the buffer IC outputs are written through.
+     *
+     * @return the buffer, or null if outputs are written straight away
+     */
+    public ICOutputBuffer getOutputBuffer() {
+
+        return outputBuffer;
+    }
+
+    /**
+     * Gets the networks of logic ICs that are evaluated in memory.
+     *
+     * @return the networks, or null if compiling them is disabled
+     */
+    public LogicNetworkManager getLogicNetworks() {
+
+        return logicNetworks;
+    }
+
+    public PlcStateBank getPlcStateBank() {
+
+        return plcStateBank;
+    }
+
+    public PlcCodeCache getPlcCodeCache() {
+
+        return plcCodeCache;
+    }
+
     private void registerMechanics() {
 
         BukkitConfiguration config = CraftBookPlugin.inst().getConfiguration();
@@ -273,8 +364,41 @@ public class CircuitCore implements LocalComponent {
             fireworkFolder = new File(plugin.getDataFolder(), "fireworks/");
             getFireworkFolder();
 
+            plcStateBank = new PlcStateBank();
+            int plcSaveInterval = Math.max(1, config.ICPlcSaveInterval);
+            plcStateTask = plugin.getServer().getScheduler().runTaskTimer(plugin, plcStateBank, plcSaveInterval, plcSaveInterval);
+            ProfiledEventExecutor.registerEvents(plcStateBank, plugin);
+            plcCodeCache = new PlcCodeCache();
+            ProfiledEventExecutor.registerEvents(plcCodeCache, plugin);
+
             registerICs();
             plugin.registerMechanic(ICFactory = new ICMechanicFactory(getIcManager()));
+            if (config.ICCached)
+                ProfiledEventExecutor.registerEvents(getIcManager(), plugin);
+
+            inputScheduler = new ICInputScheduler();
+            inputSchedulerTask = plugin.getServer().getScheduler().runTaskTimer(plugin, inputScheduler, 1, 1);
+
+            if (config.ICBufferOutputs) {
+                outputBuffer = new ICOutputBuffer();
+                outputBufferTask = plugin.getServer().getScheduler().runTaskTimer(plugin, outputBuffer, 1, 1);
+            }
+
+            if (config.ICCompileNetworks) {
+                logicNetworks = new LogicNetworkManager();
+                ProfiledEventExecutor.registerEvents(logicNetworks, plugin);
+            }
+
+            // Cached ICs read their sign when they are loaded, so reload the ones that use a variable when it changes.
+            variableListener = new VariableStore.Listener() {
+
+                @Override
+                public void variableChanged(String variable, String namespace) {
+
+                    ICManager.variableChanged(variable, namespace);
+                }
+            };
+            plugin.getVariableStore().addListener(variableListener);
 
             try {
                 icConfiguration.load();
@@ -299,7 +423,7 @@ public class CircuitCore implements LocalComponent {
                 iter.remove();
                 continue;
             }
-            plugin.getServer().getPluginManager().registerEvents(mech, plugin);
+            ProfiledEventExecutor.registerEvents(mech, plugin);
         }
     }
 
@@ -45,8 +45,9 @@ import com.sk89q.craftbook.mech.CommandItems;
 import com.sk89q.craftbook.mech.CommandItems.CommandItemDefinition;
 import com.sk89q.craftbook.util.CompatabilityUtil;
 import com.sk89q.craftbook.util.ItemSyntax;
+import com.sk89q.craftbook.util.LineTemplate;
 import com.sk89q.craftbook.util.RegexUtil;
-import com.sk89q.craftbook.util.Tuple2;
+import com.sk89q.craftbook.util.VariableStore;
 import com.sk89q.craftbook.util.compat.companion.CompanionPlugins;
 import com.sk89q.craftbook.util.config.VariableConfiguration;
 import com.sk89q.craftbook.util.persistent.PersistentStorage;
@@ -119,7 +120,7 @@ public class CraftBookPlugin extends JavaPlugin {
     /**
      * Stores the variables used in VariableStore.
      */
-    protected HashMap<Tuple2<String, String>, String> variableStore = new HashMap<Tuple2<String, String>, String>();
+    protected VariableStore variableStore = new VariableStore();
 
     /**
      * The persistent storage database of CraftBook.
@@ -134,6 +135,16 @@ public class CraftBookPlugin extends JavaPlugin {
 
         // Set the instance
         instance = this;
+
+        // Sign lines that reference a variable are parsed again when it changes.
+        variableStore.addListener(new VariableStore.Listener() {
+
+            @Override
+            public void variableChanged(String variable, String namespace) {
+
+                LineTemplate.variableChanged(variable, namespace);
+            }
+        });
     }
 
     public static String getVersion() {
@@ -259,6 +270,19 @@ public class CraftBookPlugin extends JavaPlugin {
         languageManager = new LanguageManager();
         languageManager.init();
 
+        // Periodically save the PersistentStorage changes in the background.
+        if(config.persistentStorageSnapshotInterval > 0) {
+            getServer().getScheduler().runTaskTimer(this, new Runnable() {
+
+                @Override
+                public void run() {
+
+                    if(hasPersistentStorage())
+                        getPersistentStorage().snapshot();
+                }
+            }, config.persistentStorageSnapshotInterval, config.persistentStorageSnapshotInterval);
+        }
+
         getServer().getScheduler().runTask(this, new Runnable() {
 
             @Override
@@ -282,31 +306,52 @@ public class CraftBookPlugin extends JavaPlugin {
 
         if(!config.variablesEnabled)
             return false;
-        return variableStore.containsKey(new Tuple2<String, String>(variable, namespace));
+        return variableStore.has(variable, namespace);
     }
 
     public String getVariable(String variable, String namespace) {
 
         if(!config.variablesEnabled)
             return "Variables Are Disabled!";
-        return variableStore.get(new Tuple2<String, String>(variable, namespace));
+        return variableStore.get(variable, namespace);
     }
 
     public String setVariable(String variable, String namespace, String value) {
 
         if(!config.variablesEnabled)
             return "Variables Are Disabled!";
-        return variableStore.put(new Tuple2<String, String>(variable, namespace), value);
+        return variableStore.set(variable, namespace, value);
     }
 
     public String removeVariable(String variable, String namespace) {
 
         if(!config.variablesEnabled)
             return "Variables Are Disabled!";
-        return variableStore.remove(new Tuple2<String, String>(variable, namespace));
+        return variableStore.remove(variable, namespace);
+    }
+
+    public boolean isNumericVariable(String variable, String namespace) {
+
+        if(!config.variablesEnabled)
+            return false;
+        return variableStore.isNumeric(variable, namespace);
+    }
+
+    public double getNumericVariable(String variable, String namespace) throws NumberFormatException {
+
+        if(!config.variablesEnabled)
+            return 0;
+        return variableStore.getNumber(variable, namespace);
+    }
+
+    public void setNumericVariable(String variable, String namespace, double number) {
+
+        if(!config.variablesEnabled)
+            return;
+        variableStore.setNumber(variable, namespace, number);
     }
 
-    public HashMap<Tuple2<String, String>, String> getVariableStore() {
+    public VariableStore getVariableStore() {
 
         return variableStore;
     }
@@ -454,7 +499,7 @@ public class CraftBookPlugin extends JavaPlugin {
                 File varFile = new File(getDataFolder(), "variables.yml");
                 if(!varFile.exists())
                     varFile.createNewFile();
-                variableConfiguration = new VariableConfiguration(new YAMLProcessor(varFile, true, YAMLFormat.EXTENDED), logger());
+                variableConfiguration = new VariableConfiguration(new YAMLProcessor(varFile, true, YAMLFormat.EXTENDED), varFile, new File(getDataFolder(), "variables.journal"), logger());
                 variableConfiguration.load();
             } catch(Exception ignored){}
         }
@@ -494,8 +539,8 @@ public class CraftBookPlugin extends JavaPlugin {
         for (LocalComponent component : components) {
             component.disable();
         }
-        if(config.variablesEnabled)
-            variableConfiguration.save();
+        if(config.variablesEnabled && variableConfiguration != null)
+            variableConfiguration.close();
         components.clear();
 
         if(hasPersistentStorage())
@@ -641,8 +686,8 @@ public class CraftBookPlugin extends JavaPlugin {
         getLogger().info(numChunks + " chunk(s) for " + numWorlds + " world(s) processed " + "(" + time + "ms " +
                 "elapsed)");
 
-        // Set up the clock for self-triggered ICs.
-        getServer().getScheduler().runTaskTimer(this, mechanicClock, 0, getConfiguration().stThinkRate);
+        // Set up the clock for self-triggered ICs. It runs every tick, the manager decides which mechanics are due.
+        getServer().getScheduler().runTaskTimer(this, mechanicClock, 0, 1);
     }
 
     /**
@@ -851,8 +896,8 @@ public class CraftBookPlugin extends JavaPlugin {
         for (LocalComponent component : components) {
             component.disable();
         }
-        if(config.variablesEnabled)
-            variableConfiguration.save();
+        if(config.variablesEnabled && variableConfiguration != null)
+            variableConfiguration.close();
         components.clear();
         getServer().getScheduler().cancelTasks(inst());
         HandlerList.unregisterAll(inst());
@@ -29,6 +29,9 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.BlockRedstoneEvent;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
@@ -54,15 +57,10 @@ import com.sk89q.craftbook.util.SignUtil;
 import com.sk89q.craftbook.util.events.SignClickEvent;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
 import com.sk89q.craftbook.util.exceptions.InvalidMechanismException;
-import com.sk89q.craftbook.vehicles.cart.CartBlockMechanism;
 import com.sk89q.craftbook.vehicles.cart.CartMechanismBlocks;
 import com.sk89q.craftbook.vehicles.cart.events.CartBlockEnterEvent;
 import com.sk89q.craftbook.vehicles.cart.events.CartBlockImpactEvent;
-import com.sk89q.craftbook.vehicles.cart.events.CartBlockRedstoneEvent;
-import com.sk89q.worldedit.BlockWorldVector;
 import com.sk89q.worldedit.BlockWorldVector2D;
-import com.sk89q.worldedit.LocalWorld;
-import com.sk89q.worldedit.WorldVector;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.bukkit.BukkitUtil;
@@ -116,7 +114,49 @@ public class MechanicListenerAdapter implements Listener {
         if (EventUtil.shouldIgnoreEvent(event))
             return;
 
+        CraftBookPlugin.inst().getManager().invalidateDetection(event.getBlock());
         CraftBookPlugin.inst().getManager().dispatchSignChange(event);
+
+        // Mechanics may have rewritten the lines, so check what the sign ended up with.
+        Block block = event.getBlock();
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().updateSign(block.getWorld().getName(), block.getX(), block.getY(), block.getZ(), event.getLines());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+
+        CraftBookPlugin.inst().getManager().invalidateDetection(event.getBlock());
+
+        // The text follows in a sign change event, until then treat the sign as a possible mechanic.
+        Block block = event.getBlock();
+        if (SignUtil.isSign(block))
+            CraftBookPlugin.inst().getManager().getInterestingBlocks().mark(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPistonExtend(BlockPistonExtendEvent event) {
+
+        CraftBookPlugin.inst().getManager().invalidateDetection(event.getBlock());
+        for (Block block : event.getBlocks())
+            CraftBookPlugin.inst().getManager().invalidateDetection(block);
+        // The last block is pushed into the block beyond it.
+        if (!event.getBlocks().isEmpty())
+            CraftBookPlugin.inst().getManager().invalidateDetection(event.getBlocks().get(event.getBlocks().size() - 1).getRelative(event.getDirection()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPistonRetract(BlockPistonRetractEvent event) {
+
+        CraftBookPlugin.inst().getManager().invalidateDetection(event.getBlock());
+        if (event.isSticky())
+            CraftBookPlugin.inst().getManager().invalidateDetection(event.getRetractLocation().getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBroken(BlockBreakEvent event) {
+
+        Block block = event.getBlock();
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().unmark(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -125,6 +165,8 @@ public class MechanicListenerAdapter implements Listener {
         if (EventUtil.shouldIgnoreEvent(event))
             return;
 
+        CraftBookPlugin.inst().getManager().invalidateDetection(event.getBlock());
+
         if(!(CraftBookPlugin.inst().getConfiguration().advancedBlockChecks && event.isCancelled())) {
             switch(event.getBlock().getTypeId()) {
 
@@ -185,9 +227,7 @@ public class MechanicListenerAdapter implements Listener {
     public void handleRedstoneForBlock(Block block, int oldLevel, int newLevel) {
 
         World world = block.getWorld();
-        BlockWorldVector v = BukkitUtil.toWorldVector(block);
 
-        // Give the method a BlockWorldVector instead of a Block
         boolean wasOn = oldLevel >= 1;
         boolean isOn = newLevel >= 1;
         boolean wasChange = wasOn != isOn;
@@ -196,10 +236,9 @@ public class MechanicListenerAdapter implements Listener {
         // off and on state, and ignore simple current changes (i.e. 15->13)
         if (!wasChange) return;
 
-        LocalWorld w = BukkitUtil.getLocalWorld(world);
-        int x = v.getBlockX();
-        int y = v.getBlockY();
-        int z = v.getBlockZ();
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
 
         // When this hook has been called, the level in the world has not
         // yet been updated, so we're going to do this very ugly thing of
@@ -211,17 +250,17 @@ public class MechanicListenerAdapter implements Listener {
 
                     // power all blocks around the redstone wire on the same y level
                     // north/south
-                    handleDirectWireInput(new WorldVector(w, x - 1, y, z), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x + 1, y, z), block, oldLevel, newLevel);
+                    handleDirectWireInput(x - 1, y, z, block, oldLevel, newLevel);
+                    handleDirectWireInput(x + 1, y, z, block, oldLevel, newLevel);
                     // east/west
-                    handleDirectWireInput(new WorldVector(w, x, y, z - 1), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x, y, z + 1), block, oldLevel, newLevel);
+                    handleDirectWireInput(x, y, z - 1, block, oldLevel, newLevel);
+                    handleDirectWireInput(x, y, z + 1, block, oldLevel, newLevel);
 
                     // Can be triggered from below
-                    handleDirectWireInput(new WorldVector(w, x, y + 1, z), block, oldLevel, newLevel);
+                    handleDirectWireInput(x, y + 1, z, block, oldLevel, newLevel);
 
                     // Can be triggered from above (Eg, glass->glowstone like redstone lamps)
-                    handleDirectWireInput(new WorldVector(w, x, y - 1, z), block, oldLevel, newLevel);
+                    handleDirectWireInput(x, y - 1, z, block, oldLevel, newLevel);
                 } else {
 
                     int above = world.getBlockTypeIdAt(x, y + 1, z);
@@ -247,10 +286,10 @@ public class MechanicListenerAdapter implements Listener {
                             && (!BlockType.isRedstoneBlock(westSideBelow) || westSide != 0)
                             && (!BlockType.isRedstoneBlock(eastSideBelow) || eastSide != 0)) {
                         // Possible blocks north / south
-                        handleDirectWireInput(new WorldVector(w, x - 1, y, z), block, oldLevel, newLevel);
-                        handleDirectWireInput(new WorldVector(w, x + 1, y, z), block, oldLevel, newLevel);
-                        handleDirectWireInput(new WorldVector(w, x - 1, y - 1, z), block, oldLevel, newLevel);
-                        handleDirectWireInput(new WorldVector(w, x + 1, y - 1, z), block, oldLevel, newLevel);
+                        handleDirectWireInput(x - 1, y, z, block, oldLevel, newLevel);
+                        handleDirectWireInput(x + 1, y, z, block, oldLevel, newLevel);
+                        handleDirectWireInput(x - 1, y - 1, z, block, oldLevel, newLevel);
+                        handleDirectWireInput(x + 1, y - 1, z, block, oldLevel, newLevel);
                     }
 
                     if (!BlockType.isRedstoneBlock(northSide) && !BlockType.isRedstoneBlock(southSide)
@@ -259,17 +298,17 @@ public class MechanicListenerAdapter implements Listener {
                             && (!BlockType.isRedstoneBlock(northSideBelow) || northSide != 0)
                             && (!BlockType.isRedstoneBlock(southSideBelow) || southSide != 0)) {
                         // Possible blocks west / east
-                        handleDirectWireInput(new WorldVector(w, x, y, z - 1), block, oldLevel, newLevel);
-                        handleDirectWireInput(new WorldVector(w, x, y, z + 1), block, oldLevel, newLevel);
-                        handleDirectWireInput(new WorldVector(w, x, y - 1, z - 1), block, oldLevel, newLevel);
-                        handleDirectWireInput(new WorldVector(w, x, y - 1, z + 1), block, oldLevel, newLevel);
+                        handleDirectWireInput(x, y, z - 1, block, oldLevel, newLevel);
+                        handleDirectWireInput(x, y, z + 1, block, oldLevel, newLevel);
+                        handleDirectWireInput(x, y - 1, z - 1, block, oldLevel, newLevel);
+                        handleDirectWireInput(x, y - 1, z + 1, block, oldLevel, newLevel);
                     }
 
                     // Can be triggered from below
-                    handleDirectWireInput(new WorldVector(w, x, y + 1, z), block, oldLevel, newLevel);
+                    handleDirectWireInput(x, y + 1, z, block, oldLevel, newLevel);
 
                     // Can be triggered from above
-                    handleDirectWireInput(new WorldVector(w, x, y - 1, z), block, oldLevel, newLevel);
+                    handleDirectWireInput(x, y - 1, z, block, oldLevel, newLevel);
                 }
                 return;
             case BlockID.REDSTONE_REPEATER_OFF:
@@ -278,14 +317,14 @@ public class MechanicListenerAdapter implements Listener {
             case BlockID.COMPARATOR_ON:
                 Directional diode = (Directional) block.getState().getData();
                 BlockFace f = diode.getFacing();
-                handleDirectWireInput(new WorldVector(w, x + f.getModX(), y, z + f.getModZ()), block, oldLevel, newLevel);
+                handleDirectWireInput(x + f.getModX(), y, z + f.getModZ(), block, oldLevel, newLevel);
                 if(block.getRelative(f).getTypeId() != 0) {
-                    handleDirectWireInput(new WorldVector(w, x + f.getModX(), y - 1, z + f.getModZ()), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x + f.getModX(), y + 1, z + f.getModZ()), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x + f.getModX() + 1, y - 1, z + f.getModZ()), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x + f.getModX() - 1, y - 1, z + f.getModZ()), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x + f.getModX() + 1, y - 1, z + f.getModZ() + 1), block, oldLevel, newLevel);
-                    handleDirectWireInput(new WorldVector(w, x + f.getModX() - 1, y - 1, z + f.getModZ() - 1), block, oldLevel, newLevel);
+                    handleDirectWireInput(x + f.getModX(), y - 1, z + f.getModZ(), block, oldLevel, newLevel);
+                    handleDirectWireInput(x + f.getModX(), y + 1, z + f.getModZ(), block, oldLevel, newLevel);
+                    handleDirectWireInput(x + f.getModX() + 1, y - 1, z + f.getModZ(), block, oldLevel, newLevel);
+                    handleDirectWireInput(x + f.getModX() - 1, y - 1, z + f.getModZ(), block, oldLevel, newLevel);
+                    handleDirectWireInput(x + f.getModX() + 1, y - 1, z + f.getModZ() + 1, block, oldLevel, newLevel);
+                    handleDirectWireInput(x + f.getModX() - 1, y - 1, z + f.getModZ() - 1, block, oldLevel, newLevel);
                 }
                 return;
             case BlockID.STONE_BUTTON:
@@ -295,59 +334,55 @@ public class MechanicListenerAdapter implements Listener {
                 if(button != null) {
                     BlockFace face = button.getAttachedFace();
                     if(face != null)
-                        handleDirectWireInput(new WorldVector(w, x + face.getModX()*2, y, z + face.getModZ()*2), block, oldLevel, newLevel);
+                        handleDirectWireInput(x + face.getModX()*2, y, z + face.getModZ()*2, block, oldLevel, newLevel);
                 }
         }
 
         // For redstone wires and repeaters, the code already exited this method
         // Non-wire blocks proceed
 
-        handleDirectWireInput(new WorldVector(w, x - 1, y, z), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x + 1, y, z), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x - 1, y - 1, z), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x + 1, y - 1, z), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x, y, z - 1), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x, y, z + 1), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x, y - 1, z - 1), block, oldLevel, newLevel);
-        handleDirectWireInput(new WorldVector(w, x, y - 1, z + 1), block, oldLevel, newLevel);
+        handleDirectWireInput(x - 1, y, z, block, oldLevel, newLevel);
+        handleDirectWireInput(x + 1, y, z, block, oldLevel, newLevel);
+        handleDirectWireInput(x - 1, y - 1, z, block, oldLevel, newLevel);
+        handleDirectWireInput(x + 1, y - 1, z, block, oldLevel, newLevel);
+        handleDirectWireInput(x, y, z - 1, block, oldLevel, newLevel);
+        handleDirectWireInput(x, y, z + 1, block, oldLevel, newLevel);
+        handleDirectWireInput(x, y - 1, z - 1, block, oldLevel, newLevel);
+        handleDirectWireInput(x, y - 1, z + 1, block, oldLevel, newLevel);
 
         // Can be triggered from below
-        handleDirectWireInput(new WorldVector(w, x, y + 1, z), block, oldLevel, newLevel);
+        handleDirectWireInput(x, y + 1, z, block, oldLevel, newLevel);
 
         // Can be triggered from above
-        handleDirectWireInput(new WorldVector(w, x, y - 1, z), block, oldLevel, newLevel);
+        handleDirectWireInput(x, y - 1, z, block, oldLevel, newLevel);
     }
 
     /**
      * Handle the direct wire input.
      *
-     * @param pt
+     * @param x
+     * @param y
+     * @param z
      * @param sourceBlock
      * @param oldLevel
      * @param newLevel
      */
-    protected void handleDirectWireInput(WorldVector pt, Block sourceBlock, int oldLevel, int newLevel) {
+    protected void handleDirectWireInput(int x, int y, int z, Block sourceBlock, int oldLevel, int newLevel) {
 
-        Block block = sourceBlock.getWorld().getBlockAt(pt.getBlockX(), pt.getBlockY(), pt.getBlockZ());
-        if(block.getLocation().equals(sourceBlock.getLocation())) //The same block, don't run.
+        if(x == sourceBlock.getX() && y == sourceBlock.getY() && z == sourceBlock.getZ()) //The same block, don't run.
             return;
-        final SourcedBlockRedstoneEvent event = new SourcedBlockRedstoneEvent(sourceBlock, block, oldLevel, newLevel);
+        World world = sourceBlock.getWorld();
 
-        CraftBookPlugin.inst().getServer().getPluginManager().callEvent(event);
-        CraftBookPlugin.inst().getManager().dispatchBlockRedstoneChange(event);
+        // Only build the event if a mechanic could be there, most neighbours of a wire are plain blocks.
+        if(CraftBookPlugin.inst().getManager().isRedstoneInteresting(world, x, y, z)) {
+            SourcedBlockRedstoneEvent event = new SourcedBlockRedstoneEvent(sourceBlock, world.getBlockAt(x, y, z), oldLevel, newLevel);
 
-        CraftBookPlugin.server().getScheduler().runTask(CraftBookPlugin.inst(), new Runnable() {
+            CraftBookPlugin.inst().getServer().getPluginManager().callEvent(event);
+            CraftBookPlugin.inst().getManager().dispatchBlockRedstoneChange(event);
+        }
 
-            @Override
-            public void run () {
-                try {
-                    CartMechanismBlocks cmb = CartMechanismBlocks.find(event.getBlock());
-                    CartBlockRedstoneEvent ev = new CartBlockRedstoneEvent(event.getBlock(), event.getSource(), event.getOldCurrent(), event.getNewCurrent(), cmb, CartBlockMechanism.getCart(cmb.rail));
-                    CraftBookPlugin.inst().getServer().getPluginManager().callEvent(ev);
-                } catch (InvalidMechanismException ignored) {
-                }
-            }
-        });
+        if(VehicleCore.isEnabled())
+            VehicleCore.inst().getRedstoneQueue().offer(world, x, y, z, sourceBlock, oldLevel, newLevel);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
@@ -396,18 +431,11 @@ public class MechanicListenerAdapter implements Listener {
      * Called when a chunk is loaded.
      */
     @EventHandler(priority = EventPriority.HIGHEST)
-    public void onChunkLoad(final ChunkLoadEvent event) {
+    public void onChunkLoad(ChunkLoadEvent event) {
 
         if (EventUtil.shouldIgnoreEvent(event))
             return;
-        CraftBookPlugin.server().getScheduler().runTaskLater(CraftBookPlugin.inst(), new Runnable() {
-
-            @Override
-            public void run() {
-
-                CraftBookPlugin.inst().getManager().enumerate(event.getChunk());
-            }
-        }, 2);
+        CraftBookPlugin.inst().getManager().getEnumerationQueue().add(event.getChunk());
     }
 
     /**
@@ -10,6 +10,7 @@ import org.bukkit.OfflinePlayer;
 import com.sk89q.craftbook.CraftBookMechanic;
 import com.sk89q.craftbook.LocalComponent;
 import com.sk89q.craftbook.bukkit.commands.MechanismCommands;
+import com.sk89q.craftbook.bukkit.util.ProfiledEventExecutor;
 import com.sk89q.craftbook.mech.Ammeter;
 import com.sk89q.craftbook.mech.BetterLeads;
 import com.sk89q.craftbook.mech.BetterPhysics;
@@ -174,7 +175,7 @@ public class MechanicalCore implements LocalComponent {
                 iter.remove();
                 continue;
             }
-            plugin.getServer().getPluginManager().registerEvents(mech, plugin);
+            ProfiledEventExecutor.registerEvents(mech, plugin);
         }
     }
 
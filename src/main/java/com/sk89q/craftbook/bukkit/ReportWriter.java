@@ -16,6 +16,7 @@ import org.bukkit.plugin.Plugin;
 
 import com.sk89q.craftbook.LocalConfiguration;
 import com.sk89q.craftbook.SelfTriggeringMechanic;
+import com.sk89q.craftbook.circuits.ic.ICManager;
 import com.sk89q.craftbook.circuits.ic.ICMechanic;
 import com.sk89q.craftbook.mech.crafting.CraftingItemStack;
 import com.sk89q.craftbook.mech.crafting.RecipeManager;
@@ -174,6 +175,24 @@ public class ReportWriter {
 
         log.put("Factories Loaded", "%d", plugin.getManager().factories.size());
         log.put("ST Mechanics Loaded", "%d", plugin.getManager().thinkingMechanics.size());
+        log.put("ST Thinks Per Second", "%d (longest delay %d tick(s), %d waiting)", plugin.getManager().getThinkScheduler().getLastSecondThinks(),
+                plugin.getManager().getThinkScheduler().getLastSecondMaxDelay(), plugin.getManager().getThinkScheduler().getBacklog());
+        log.put("Chunk Enumeration Queue", "%d (last tick %d chunk(s) in %.2fms, total %d chunk(s) in %dms)", plugin.getManager().getEnumerationQueue().size(),
+                plugin.getManager().getEnumerationQueue().getLastTickChunks(), plugin.getManager().getEnumerationQueue().getLastTickNanos() / 1000000D,
+                plugin.getManager().getEnumerationQueue().getTotalChunks(), plugin.getManager().getEnumerationQueue().getTotalNanos() / 1000000);
+        log.put("Detection Cache", "%d/%d (%d hits, %d misses)", plugin.getManager().getDetectionCache().size(), plugin.getManager().getDetectionCache().getMaxSize(),
+                plugin.getManager().getDetectionCache().getHits(), plugin.getManager().getDetectionCache().getMisses());
+        if(CircuitCore.isEnabled() && CircuitCore.inst().getInputScheduler() != null)
+            log.put("IC Input Scheduler", "%d pending (%d changes, %d evaluations)", CircuitCore.inst().getInputScheduler().size(),
+                    CircuitCore.inst().getInputScheduler().getChanges(), CircuitCore.inst().getInputScheduler().getEvaluations());
+        if(CircuitCore.isEnabled() && CircuitCore.inst().getOutputBuffer() != null)
+            log.put("IC Output Buffer", "%d pending (%d changes, %d writes in %d flushes)", CircuitCore.inst().getOutputBuffer().size(),
+                    CircuitCore.inst().getOutputBuffer().getSets(), CircuitCore.inst().getOutputBuffer().getWrites(), CircuitCore.inst().getOutputBuffer().getFlushes());
+        if(CircuitCore.isEnabled() && plugin.getConfiguration().ICCached)
+            log.put("IC Cache", "%d ICs, about %d KB (%d hits, %d misses, %d evicted, %d released with their chunk)", ICManager.getCachedICs().size(),
+                    ICManager.getCacheMemoryEstimate() / 1024, ICManager.getCacheHits(), ICManager.getCacheMisses(), ICManager.getCacheEvictions(), ICManager.getCacheReleases());
+        log.put("Redstone Fan-out Filter", "%s, %d chunks indexed (%d skipped, %d passed)", plugin.getManager().getInterestingBlocks().isEnabled() ? "enabled" : "disabled",
+                plugin.getManager().getInterestingBlocks().getIndexedChunks(), plugin.getManager().getInterestingBlocks().getSkipped(), plugin.getManager().getInterestingBlocks().getPassed());
 
         if(flags.contains("i")) {
 
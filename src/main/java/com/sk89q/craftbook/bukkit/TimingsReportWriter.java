@@ -0,0 +1,59 @@
+package com.sk89q.craftbook.bukkit;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import com.sk89q.craftbook.util.Profiler;
+import com.sk89q.craftbook.util.Profiler.Timing;
+import com.sk89q.craftbook.util.Tuple2;
+
+/**
+ * Writes the timings recorded by the {@link Profiler}.
+ */
+public class TimingsReportWriter extends ReportWriter {
+
+    private static final SimpleDateFormat dateFmt = new SimpleDateFormat("yyyy-MM-dd kk:mm Z");
+
+    public TimingsReportWriter(CraftBookPlugin plugin) {
+        super(plugin);
+    }
+
+    @Override
+    public void generate() {
+        appendln("CraftBook Timings Report");
+        appendln("Generated " + dateFmt.format(new Date()));
+        appendln();
+        appendln("Version: " + plugin.getDescription().getVersion());
+        appendln("Profiling: " + (Profiler.isEnabled() ? "on" : "off"));
+        appendln("Recorded over: %.1fs", (System.currentTimeMillis() - Profiler.getStartTime()) / 1000D);
+        appendln();
+
+        List<Timing> timings = Profiler.getTimings();
+
+        appendHeader("Timings (" + timings.size() + ")");
+
+        appendln("%-48s %10s %12s %10s %10s %10s", "Name", "Calls", "Total ms", "Mean us", "P99 us", "Max us");
+        for (Timing timing : timings) {
+            appendln("%-48s %10d %12.2f %10.1f %10.1f %10.1f", timing.getName(), timing.getCount(), timing.getTotal() / 1000000D,
+                    timing.getMean() / 1000D, timing.getPercentile(99) / 1000D, timing.getMax() / 1000D);
+        }
+        appendln();
+
+        appendHeader("Slowest Locations");
+
+        for (Timing timing : timings) {
+            List<Tuple2<String, Long>> worst = timing.getWorstLocations();
+            if (worst.isEmpty())
+                continue;
+            appendln(timing.getName() + ":");
+            for (Tuple2<String, Long> location : worst)
+                appendln("    %-40s %10.1f us", location.a, location.b / 1000D);
+        }
+        appendln();
+
+        appendln("-------------");
+        appendln("END OF REPORT");
+        appendln();
+    }
+}
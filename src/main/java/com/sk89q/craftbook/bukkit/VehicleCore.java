@@ -20,6 +20,7 @@ import com.sk89q.craftbook.LocalComponent;
 import com.sk89q.craftbook.LocalPlayer;
 import com.sk89q.craftbook.bukkit.commands.VehicleCommands;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.bukkit.util.ProfiledEventExecutor;
 import com.sk89q.craftbook.util.exceptions.InsufficientPermissionsException;
 import com.sk89q.craftbook.vehicles.boat.BoatDrops;
 import com.sk89q.craftbook.vehicles.boat.BoatExitRemover;
@@ -37,6 +38,7 @@ import com.sk89q.craftbook.vehicles.cart.CartExitRemover;
 import com.sk89q.craftbook.vehicles.cart.CartLift;
 import com.sk89q.craftbook.vehicles.cart.CartMaxSpeed;
 import com.sk89q.craftbook.vehicles.cart.CartMessenger;
+import com.sk89q.craftbook.vehicles.cart.CartRedstoneQueue;
 import com.sk89q.craftbook.vehicles.cart.CartRemoveEntities;
 import com.sk89q.craftbook.vehicles.cart.CartReverser;
 import com.sk89q.craftbook.vehicles.cart.CartSorter;
@@ -107,6 +109,8 @@ public class VehicleCore implements LocalComponent, Listener {
 
     private Set<CartBlockMechanism> cartBlockMechanisms = new HashSet<CartBlockMechanism>();
 
+    private CartRedstoneQueue redstoneQueue;
+
     protected void registerMechanics() {
 
         if(plugin.getConfiguration().minecartSpeedModEnabled) {
@@ -141,6 +145,7 @@ public class VehicleCore implements LocalComponent, Listener {
             cartBlockMechanisms.add(new CartMaxSpeed(plugin.getConfiguration().minecartMaxSpeedBlock));
 
         for(CartBlockMechanism mech : cartBlockMechanisms) mechanics.add(mech);
+        redstoneQueue = new CartRedstoneQueue(cartBlockMechanisms);
 
         if(plugin.getConfiguration().minecartMoreRailsEnabled) mechanics.add(new MoreRails());
         if(plugin.getConfiguration().minecartRemoveEntitiesEnabled) mechanics.add(new CartRemoveEntities());
@@ -174,12 +179,22 @@ public class VehicleCore implements LocalComponent, Listener {
                 iter.remove();
                 continue;
             }
-            plugin.getServer().getPluginManager().registerEvents(mech, plugin);
+            ProfiledEventExecutor.registerEvents(mech, plugin);
         }
 
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
     }
 
+    /**
+     * Gets the queue of redstone changes next to cart mechanisms.
+     *
+     * @return the redstone queue
+     */
+    public CartRedstoneQueue getRedstoneQueue() {
+
+        return redstoneQueue;
+    }
+
     public String getStation(String playerName) {
 
         return stationSelection.get(playerName);
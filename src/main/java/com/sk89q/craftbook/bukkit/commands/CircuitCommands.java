@@ -8,6 +8,7 @@ import java.util.Comparator;
 import java.util.List;
 
 import org.bukkit.ChatColor;
+import org.bukkit.block.Block;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
@@ -15,6 +16,9 @@ import com.sk89q.craftbook.bukkit.CircuitCore;
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.circuits.ic.CommandIC;
 import com.sk89q.craftbook.circuits.ic.ICDocsParser;
+import com.sk89q.craftbook.circuits.ic.ICManager;
+import com.sk89q.craftbook.circuits.ic.LogicNetwork;
+import com.sk89q.craftbook.circuits.ic.LogicNetworkManager;
 import com.sk89q.craftbook.circuits.ic.RegisteredICFactory;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
@@ -246,5 +250,76 @@ public class CircuitCommands {
                 player.sendMessage(ChatColor.GREEN + lines.get(i));
             }
         }
+
+        @Command(aliases = {"networks"}, desc = "List the logic IC networks evaluated in memory",
+                flags = "p:", usage = "[-p page]", min = 0, max = 0)
+        public void networksCmd(CommandContext args, CommandSender sender) {
+
+            LogicNetworkManager manager = circuitCore.getLogicNetworks();
+            if (manager == null) {
+                sender.sendMessage(ChatColor.RED + "Logic IC networks are not compiled. Enable circuits.ics.compile-networks to compile them.");
+                return;
+            }
+
+            List<String> lines = new ArrayList<String>();
+            long triggers = 0;
+            long nanos = 0;
+            for (LogicNetwork network : manager.getNetworks()) {
+                if (!network.isCompiled())
+                    continue;
+                triggers += network.getTriggers();
+                nanos += network.getNanos();
+                Block origin = network.getOrigin();
+                lines.add(network.getWorld().getName() + " " + origin.getX() + "," + origin.getY() + "," + origin.getZ() + ": "
+                        + network.getICCount() + " ICs, " + network.getNetCount() + " nets, " + network.getEvaluations() + " evaluations, "
+                        + network.getTriggers() + " triggers, " + network.getAvoidedWrites() + " world updates avoided");
+            }
+            int pages = Math.max(1, (lines.size() - 1) / 9 + 1);
+            int accessedPage;
+
+            try {
+                accessedPage = !args.hasFlag('p') ? 0 : args.getFlagInteger('p') - 1;
+                if (accessedPage < 0 || accessedPage >= pages) {
+                    sender.sendMessage(ChatColor.RED + "Invalid page \"" + args.getFlagInteger('p') + "\"");
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid page \"" + args.getFlag('p') + "\"");
+                return;
+            }
+
+            sender.sendMessage(ChatColor.BLUE + "  ");
+            sender.sendMessage(ChatColor.BLUE + "CraftBook Logic Networks (Page " + (accessedPage + 1) + " of " + pages + "):");
+            if (triggers > 0 && manager.getWorldTriggers() > 0) {
+                double network = (double) nanos / triggers;
+                double world = (double) manager.getWorldNanos() / manager.getWorldTriggers();
+                sender.sendMessage(ChatColor.YELLOW + String.format("%.1fus per IC in networks, %.1fus per IC in the world (%.1fx speedup)",
+                        network / 1000, world / 1000, world / network));
+            } else
+                sender.sendMessage(ChatColor.YELLOW + "Not enough ICs have been triggered to measure the speedup yet.");
+
+            for (int i = accessedPage * 9; i < lines.size() && i < (accessedPage + 1) * 9; i++) {
+                sender.sendMessage(ChatColor.GREEN + lines.get(i));
+            }
+        }
+
+        @Command(aliases = {"cache"}, desc = "Show the state of the IC cache", min = 0, max = 0)
+        public void cacheCmd(CommandContext args, CommandSender sender) {
+
+            if (!CraftBookPlugin.inst().getConfiguration().ICCached) {
+                sender.sendMessage(ChatColor.RED + "ICs are not cached. Enable circuits.ics.cache to cache them.");
+                return;
+            }
+
+            int maxSize = CraftBookPlugin.inst().getConfiguration().ICCacheSize;
+            long lookups = ICManager.getCacheHits() + ICManager.getCacheMisses();
+            sender.sendMessage(ChatColor.BLUE + "  ");
+            sender.sendMessage(ChatColor.BLUE + "CraftBook IC Cache:");
+            sender.sendMessage(ChatColor.YELLOW + "Size: " + ChatColor.GREEN + ICManager.getCachedICs().size() + (maxSize > 0 ? " of " + maxSize : "") + " ICs");
+            sender.sendMessage(ChatColor.YELLOW + "Memory: " + ChatColor.GREEN + "about " + ICManager.getCacheMemoryEstimate() / 1024 + " KB");
+            sender.sendMessage(ChatColor.YELLOW + "Hit rate: " + ChatColor.GREEN + (lookups == 0 ? "-" : String.format("%.1f%%", 100D * ICManager.getCacheHits() / lookups))
+                    + " (" + ICManager.getCacheHits() + " hits, " + ICManager.getCacheMisses() + " misses)");
+            sender.sendMessage(ChatColor.YELLOW + "Removed: " + ChatColor.GREEN + ICManager.getCacheEvictions() + " evicted, " + ICManager.getCacheReleases() + " released with their chunk");
+        }
     }
-}
+}
@@ -1,6 +1,7 @@
 package com.sk89q.craftbook.bukkit.commands;
 import java.io.File;
 import java.io.IOException;
+import java.util.Map.Entry;
 
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandException;
@@ -8,11 +9,14 @@ import org.bukkit.command.CommandSender;
 
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.ReportWriter;
+import com.sk89q.craftbook.bukkit.TimingsReportWriter;
 import com.sk89q.craftbook.bukkit.Updater;
 import com.sk89q.craftbook.bukkit.Updater.UpdateResult;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
 import com.sk89q.craftbook.util.PastebinPoster;
 import com.sk89q.craftbook.util.PastebinPoster.PasteCallback;
+import com.sk89q.craftbook.util.Profiler;
+import com.sk89q.craftbook.util.persistent.PersistentStorage;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
@@ -135,5 +139,87 @@ public class TopLevelCommands {
                 });
             }
         }
+
+        @Command(aliases = {"timings"}, desc = "Profiles the time taken by mechanics and ICs", usage = "<on|off|reset|paste>", min = 1, max = 1)
+        @CommandPermissions({"craftbook.timings"})
+        public void timings(CommandContext args, final CommandSender sender) throws CommandPermissionsException {
+
+            String action = args.getString(0);
+
+            if (action.equalsIgnoreCase("on")) {
+                Profiler.setEnabled(true);
+                sender.sendMessage(ChatColor.YELLOW + "CraftBook timings enabled.");
+            } else if (action.equalsIgnoreCase("off")) {
+                Profiler.setEnabled(false);
+                sender.sendMessage(ChatColor.YELLOW + "CraftBook timings disabled.");
+            } else if (action.equalsIgnoreCase("reset")) {
+                Profiler.reset();
+                sender.sendMessage(ChatColor.YELLOW + "CraftBook timings reset.");
+            } else if (action.equalsIgnoreCase("paste")) {
+                File dest = new File(CraftBookPlugin.inst().getDataFolder(), "timings.txt");
+                TimingsReportWriter report = new TimingsReportWriter(CraftBookPlugin.inst());
+
+                report.generate();
+
+                try {
+                    report.write(dest);
+                    sender.sendMessage(ChatColor.YELLOW + "CraftBook timings written to "
+                            + dest.getAbsolutePath());
+                } catch (IOException e) {
+                    throw new CommandException("Failed to write timings: " + e.getMessage());
+                }
+
+                CraftBookPlugin.inst().checkPermission(sender, "craftbook.timings.pastebin");
+
+                sender.sendMessage(ChatColor.YELLOW + "Now uploading to Pastebin...");
+                PastebinPoster.paste(report.toString(), new PasteCallback() {
+
+                    @Override
+                    public void handleSuccess(String url) {
+                        // Hope we don't have a thread safety issue here
+                        sender.sendMessage(ChatColor.YELLOW + "CraftBook timings (1 hour): " + url);
+                    }
+
+                    @Override
+                    public void handleError(String err) {
+                        // Hope we don't have a thread safety issue here
+                        sender.sendMessage(ChatColor.YELLOW + "CraftBook timings pastebin error: " + err);
+                    }
+                });
+            } else
+                sender.sendMessage(ChatColor.RED + "Usage: /cb timings <on|off|reset|paste>");
+        }
+
+        @Command(aliases = {"storage"}, desc = "Shows or converts the persistent storage", usage = "<stats|convert <type>>", min = 1, max = 2)
+        @CommandPermissions({"craftbook.storage"})
+        public void storage(CommandContext args, CommandSender sender) throws CommandPermissionsException {
+
+            if (!CraftBookPlugin.inst().hasPersistentStorage()) {
+                sender.sendMessage(ChatColor.RED + "Persistent storage is not available.");
+                return;
+            }
+            PersistentStorage storage = CraftBookPlugin.inst().getPersistentStorage();
+
+            String action = args.getString(0);
+
+            if (action.equalsIgnoreCase("stats")) {
+                for (Entry<String, String> stat : storage.getStatistics().entrySet())
+                    sender.sendMessage(ChatColor.YELLOW + stat.getKey() + ": " + ChatColor.WHITE + stat.getValue());
+            } else if (action.equalsIgnoreCase("convert") && args.argsLength() == 2) {
+                CraftBookPlugin.inst().checkPermission(sender, "craftbook.storage.convert");
+                String type = args.getString(1);
+                if (type.equalsIgnoreCase(storage.getType())) {
+                    sender.sendMessage(ChatColor.RED + "The persistent storage is already of type " + storage.getType() + ".");
+                    return;
+                }
+                if (PersistentStorage.createFromType(type) == null) {
+                    sender.sendMessage(ChatColor.RED + "Unknown persistent storage type: " + type);
+                    return;
+                }
+                storage.convertType(type);
+                sender.sendMessage(ChatColor.YELLOW + "Persistent storage converted to " + CraftBookPlugin.inst().getPersistentStorage().getType() + ".");
+            } else
+                sender.sendMessage(ChatColor.RED + "Usage: /cb storage <stats|convert <type>>");
+        }
     }
 }
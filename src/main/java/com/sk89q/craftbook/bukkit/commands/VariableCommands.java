@@ -1,22 +1,15 @@
 package com.sk89q.craftbook.bukkit.commands;
 
-import java.util.Iterator;
-import java.util.Map.Entry;
-
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 
-import com.sk89q.craftbook.bukkit.CircuitCore;
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
-import com.sk89q.craftbook.circuits.ic.IC;
-import com.sk89q.craftbook.circuits.ic.ICManager;
 import com.sk89q.craftbook.util.RegexUtil;
 import com.sk89q.craftbook.util.exceptions.FastCommandException;
 import com.sk89q.minecraft.util.commands.Command;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.minecraft.util.commands.CommandPermissionsException;
-import com.sk89q.worldedit.BlockWorldVector;
 
 public class VariableCommands {
 
@@ -48,7 +41,6 @@ public class VariableCommands {
             if(!RegexUtil.VARIABLE_VALUE_PATTERN.matcher(context.getString(1)).find())
                 throw new FastCommandException("Invalid Variable Value!");
             plugin.setVariable(context.getString(0), key, context.getString(1));
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + plugin.getVariable(context.getString(0), key));
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -74,7 +66,6 @@ public class VariableCommands {
             if(!RegexUtil.VARIABLE_VALUE_PATTERN.matcher(context.getString(1)).find())
                 throw new FastCommandException("Invalid Variable Value!");
             plugin.setVariable(context.getString(0), key, context.getString(1));
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + plugin.getVariable(context.getString(0), key));
         } else
             throw new FastCommandException("Existing Variable!");
@@ -120,26 +111,11 @@ public class VariableCommands {
             if(!RegexUtil.VARIABLE_KEY_PATTERN.matcher(context.getString(0)).find())
                 throw new FastCommandException("Invalid Variable Name!");
             plugin.removeVariable(context.getString(0), key);
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Removed variable: " + context.getString(0));
         } else
             throw new FastCommandException("Unknown Variable!");
     }
 
-    public void resetICCache(String variable, String namespace) {
-
-        if(CircuitCore.inst() != null)
-            if(CircuitCore.inst().getIcManager() != null) {//Make sure IC's are enabled.
-
-                Iterator<Entry<BlockWorldVector, IC>> iterator = ICManager.getCachedICs().entrySet().iterator();
-                while(iterator.hasNext()) {
-                    Entry<BlockWorldVector, IC> ic = iterator.next();
-                    if(ic.getValue().getSign().hasVariable(namespace + "|" + variable) || ic.getValue().getSign().hasVariable(variable))
-                        iterator.remove();
-                }
-            }
-    }
-
     @Command(aliases = "append", desc = "Append to a variable.", max=2, min=2, flags="n:")
     public void append(CommandContext context, CommandSender sender) throws CommandException {
 
@@ -161,7 +137,6 @@ public class VariableCommands {
             if(!RegexUtil.VARIABLE_VALUE_PATTERN.matcher(context.getString(1)).find())
                 throw new FastCommandException("Invalid Variable Value!");
             plugin.setVariable(context.getString(0), key, plugin.getVariable(context.getString(0), key) + context.getString(1));
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + plugin.getVariable(context.getString(0), key));
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -188,7 +163,6 @@ public class VariableCommands {
             if(!RegexUtil.VARIABLE_VALUE_PATTERN.matcher(context.getString(1)).find())
                 throw new FastCommandException("Invalid Variable Value!");
             plugin.setVariable(context.getString(0), key, context.getString(1) + plugin.getVariable(context.getString(0), key));
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + plugin.getVariable(context.getString(0), key));
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -222,7 +196,6 @@ public class VariableCommands {
             else
                 throw new FastCommandException("Variable not of boolean type!");
             plugin.setVariable(context.getString(0), key, var);
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + var);
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -261,7 +234,6 @@ public class VariableCommands {
                 throw new FastCommandException("Variable not of numeric type!");
             }
             plugin.setVariable(context.getString(0), key, var);
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + var);
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -300,7 +272,6 @@ public class VariableCommands {
                 throw new FastCommandException("Variable not of numeric type!");
             }
             plugin.setVariable(context.getString(0), key, var);
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + var);
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -339,7 +310,6 @@ public class VariableCommands {
                 throw new FastCommandException("Variable not of numeric type!");
             }
             plugin.setVariable(context.getString(0), key, var);
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + var);
         } else
             throw new FastCommandException("Unknown Variable!");
@@ -382,7 +352,6 @@ public class VariableCommands {
                 throw new FastCommandException("Variable not of numeric type!");
             }
             plugin.setVariable(context.getString(0), key, var);
-            resetICCache(context.getString(0), key);
             sender.sendMessage(ChatColor.YELLOW + "Variable is now: " + var);
         } else
             throw new FastCommandException("Unknown Variable!");
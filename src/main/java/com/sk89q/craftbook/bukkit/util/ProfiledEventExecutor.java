@@ -0,0 +1,77 @@
+package com.sk89q.craftbook.bukkit.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+
+import com.sk89q.craftbook.util.Profiler;
+
+/**
+ * Calls an {@link EventHandler} method, recording the time it takes in the {@link Profiler}.
+ */
+public class ProfiledEventExecutor implements EventExecutor {
+
+    private final Method method;
+    private final Class<? extends Event> eventClass;
+
+    public ProfiledEventExecutor(Method method, Class<? extends Event> eventClass) {
+
+        this.method = method;
+        this.eventClass = eventClass;
+    }
+
+    @Override
+    public void execute(Listener listener, Event event) throws EventException {
+
+        if (!eventClass.isAssignableFrom(event.getClass()))
+            return;
+
+        long start = Profiler.start();
+        try {
+            method.invoke(listener, event);
+        } catch (InvocationTargetException e) {
+            throw new EventException(e.getCause());
+        } catch (Throwable t) {
+            throw new EventException(t);
+        } finally {
+            Profiler.stop(listener, method.getName(), start, event);
+        }
+    }
+
+    /**
+     * Registers every {@link EventHandler} of a listener, the same way Bukkit would, but profiled.
+     *
+     * @param listener
+     * @param plugin
+     */
+    public static void registerEvents(Listener listener, Plugin plugin) {
+
+        Set<Method> methods = new HashSet<Method>(Arrays.asList(listener.getClass().getMethods()));
+        methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+
+        for (Method method : methods) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.isBridge() || method.isSynthetic())
+                continue;
+
+            Class<?>[] params = method.getParameterTypes();
+            if (params.length != 1 || !Event.class.isAssignableFrom(params[0])) {
+                plugin.getLogger().severe(listener.getClass().getName() + " attempted to register an invalid EventHandler method signature \"" + method.toGenericString() + "\"");
+                continue;
+            }
+
+            Class<? extends Event> eventClass = params[0].asSubclass(Event.class);
+            method.setAccessible(true);
+            plugin.getServer().getPluginManager().registerEvent(eventClass, listener, handler.priority(), new ProfiledEventExecutor(method, eventClass), plugin, handler.ignoreCancelled());
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.bukkit.event.block.BlockBreakEvent;
 import com.sk89q.craftbook.AbstractCraftBookMechanic;
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
+import com.sk89q.worldedit.blocks.BlockID;
 
 /**
  * This mechanism allow players to toggle GlowStone.
@@ -32,6 +33,14 @@ import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
  */
 public class GlowStone extends AbstractCraftBookMechanic {
 
+    @Override
+    public boolean enable() {
+
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(BlockID.LIGHTSTONE);
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(CraftBookPlugin.inst().getConfiguration().glowstoneOffBlock.getId());
+        return true;
+    }
+
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
     public void onBlockRedstoneChange(SourcedBlockRedstoneEvent event) {
 
@@ -23,7 +23,9 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.block.BlockBreakEvent;
 
 import com.sk89q.craftbook.AbstractCraftBookMechanic;
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
+import com.sk89q.worldedit.blocks.BlockID;
 
 /**
  * This mechanism allow players to toggle Jack-o-Lanterns.
@@ -32,6 +34,14 @@ import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
  */
 public class JackOLantern extends AbstractCraftBookMechanic {
 
+    @Override
+    public boolean enable() {
+
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(BlockID.PUMPKIN);
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(BlockID.JACKOLANTERN);
+        return true;
+    }
+
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
     public void onBlockRedstoneChange(SourcedBlockRedstoneEvent event) {
 
@@ -27,7 +27,9 @@ import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 
 import com.sk89q.craftbook.AbstractCraftBookMechanic;
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
+import com.sk89q.worldedit.blocks.BlockID;
 
 /**
  * This mechanism allow players to toggle the fire on top of Netherrack.
@@ -36,6 +38,13 @@ import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
  */
 public class Netherrack extends AbstractCraftBookMechanic {
 
+    @Override
+    public boolean enable() {
+
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(BlockID.NETHERRACK);
+        return true;
+    }
+
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
     public void onBlockRedstoneChange(SourcedBlockRedstoneEvent event) {
 
@@ -5,10 +5,19 @@ import org.bukkit.block.Jukebox;
 import org.bukkit.event.EventHandler;
 
 import com.sk89q.craftbook.AbstractCraftBookMechanic;
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
+import com.sk89q.worldedit.blocks.BlockID;
 
 public class RedstoneJukebox extends AbstractCraftBookMechanic {
 
+    @Override
+    public boolean enable() {
+
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(BlockID.JUKEBOX);
+        return true;
+    }
+
     @EventHandler
     public void onRedstonePower(SourcedBlockRedstoneEvent event) {
 
@@ -6,10 +6,11 @@ import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.AbstractICFactory;
 import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.ic.CompilableIC;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 
-public class FullSubtractor extends AbstractIC {
+public class FullSubtractor extends AbstractIC implements CompilableIC {
 
     public FullSubtractor(Server server, ChangedSign block, ICFactory factory) {
 
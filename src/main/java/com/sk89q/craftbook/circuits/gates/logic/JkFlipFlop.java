@@ -6,6 +6,7 @@ import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.AbstractICFactory;
 import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.ic.CompilableIC;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 
@@ -15,7 +16,7 @@ import com.sk89q.craftbook.circuits.ic.ICFactory;
  *
  * @author sindreij
  */
-public class JkFlipFlop extends AbstractIC {
+public class JkFlipFlop extends AbstractIC implements CompilableIC {
 
     public JkFlipFlop(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -6,13 +6,14 @@ import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.AbstractICFactory;
 import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.ic.CompilableIC;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 
 /**
  * Sets output based on D input while clock input is high.
  */
-public class LevelTriggeredDFlipFlop extends AbstractIC {
+public class LevelTriggeredDFlipFlop extends AbstractIC implements CompilableIC {
 
     public LevelTriggeredDFlipFlop(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -6,13 +6,14 @@ import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.AbstractICFactory;
 import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.ic.CompilableIC;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 
 /**
  * Chooses one of two inputs as the output.
  */
-public class Multiplexer extends AbstractIC {
+public class Multiplexer extends AbstractIC implements CompilableIC {
 
     public Multiplexer(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -6,13 +6,14 @@ import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.AbstractICFactory;
 import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.ic.CompilableIC;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 
 /**
  * Simulates the function of a SR latch made from NAND gates.
  */
-public class RsNandLatch extends AbstractIC {
+public class RsNandLatch extends AbstractIC implements CompilableIC {
 
     public RsNandLatch(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -5,9 +5,10 @@ import org.bukkit.Server;
 import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.ic.CompilableIC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 
-public abstract class SimpleTwoInputLogicGate extends AbstractIC {
+public abstract class SimpleTwoInputLogicGate extends AbstractIC implements CompilableIC {
 
     public SimpleTwoInputLogicGate(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -13,7 +13,6 @@ import com.sk89q.craftbook.circuits.ic.ChipState;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
 import com.sk89q.craftbook.circuits.ic.ICVerificationException;
-import com.sk89q.craftbook.util.ParsingUtil;
 import com.sk89q.craftbook.util.RegexUtil;
 
 public class NumericModifier extends AbstractIC {
@@ -34,13 +33,21 @@ public class NumericModifier extends AbstractIC {
 
     Function function;
     String variable;
+    String namespace;
     double amount;
 
     @Override
     public void load() {
 
         try {
-            variable = getLine(2);
+            String[] parts = RegexUtil.PIPE_PATTERN.split(getLine(2));
+            if(parts.length == 1) {
+                namespace = "global";
+                variable = parts[0];
+            } else {
+                namespace = parts[0];
+                variable = parts[1];
+            }
             function = Function.valueOf(getLine(3).split(":")[0]);
             amount = Double.parseDouble(getLine(3).split(":")[1]);
         } catch(Exception ignored) {}
@@ -49,13 +56,14 @@ public class NumericModifier extends AbstractIC {
     @Override
     public void trigger (ChipState chip) {
 
-        if(function == null) {
+        CraftBookPlugin plugin = CraftBookPlugin.inst();
+        if(function == null || variable == null || !plugin.isNumericVariable(variable, namespace)) {
             chip.setOutput(0, false);
             return;
         }
 
         try {
-            double currentValue = Double.parseDouble(ParsingUtil.parseVariables(variable, null));
+            double currentValue = plugin.getNumericVariable(variable, namespace);
 
             switch(function) {
                 case ADD:
@@ -78,11 +86,7 @@ public class NumericModifier extends AbstractIC {
                     break;
             }
 
-            String var = String.valueOf(currentValue);
-            if (var.endsWith(".0"))
-                var = var.replace(".0", "");
-
-            CraftBookPlugin.inst().setVariable(variable, "global", var);
+            plugin.setNumericVariable(variable, namespace, currentValue);
             chip.setOutput(0, true);
             return;
         } catch(Exception ignored){}
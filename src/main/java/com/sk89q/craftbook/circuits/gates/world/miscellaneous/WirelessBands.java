@@ -0,0 +1,155 @@
+package com.sk89q.craftbook.circuits.gates.world.miscellaneous;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
+
+/**
+ * The state of every wireless band, and the receivers listening to each.
+ * <p>
+ * Bands are known by an ID, assigned the first time a band name is seen, so transmitters and receivers only look their
+ * band up once when they are loaded. Receivers subscribe to their band and are told when its state changes, in the same
+ * tick it is transmitted. Receivers that subscribe are also brought up to date with their band once, in a single task
+ * for all receivers loaded within a tick.
+ * </p>
+ */
+public class WirelessBands {
+
+    private static final Map<String, Integer> ids = new HashMap<String, Integer>();
+    private static final List<String> names = new ArrayList<String>();
+    private static final List<List<WirelessReceiver>> subscribers = new ArrayList<List<WirelessReceiver>>();
+    private static final BitSet states = new BitSet();
+
+    private static final List<WirelessReceiver> unsynced = new ArrayList<WirelessReceiver>();
+    private static boolean syncScheduled = false;
+
+    /**
+     * Gets the ID of a band, assigning one if the band has not been seen before.
+     *
+     * @param band the name of the band
+     *
+     * @return the ID
+     */
+    public static int getId(String band) {
+
+        Integer id = ids.get(band);
+        if (id == null) {
+            id = names.size();
+            ids.put(band, id);
+            names.add(band);
+            subscribers.add(new ArrayList<WirelessReceiver>(1));
+        }
+        return id;
+    }
+
+    public static boolean get(int id) {
+
+        return states.get(id);
+    }
+
+    /**
+     * Sets the state of a band, and tells its receivers if it changed.
+     *
+     * @param id
+     * @param state
+     */
+    public static void set(int id, boolean state) {
+
+        if (states.get(id) == state)
+            return;
+        states.set(id, state);
+        List<WirelessReceiver> receivers = subscribers.get(id);
+        for (WirelessReceiver receiver : receivers.toArray(new WirelessReceiver[receivers.size()]))
+            receiver.bandChanged(state);
+    }
+
+    /**
+     * Subscribes a receiver to a band.
+     *
+     * @param id
+     * @param receiver
+     */
+    public static void subscribe(int id, WirelessReceiver receiver) {
+
+        List<WirelessReceiver> receivers = subscribers.get(id);
+        if (!receivers.contains(receiver))
+            receivers.add(receiver);
+
+        unsynced.add(receiver);
+        if (!syncScheduled) {
+            syncScheduled = true;
+            CraftBookPlugin.inst().getServer().getScheduler().runTask(CraftBookPlugin.inst(), new Runnable() {
+
+                @Override
+                public void run() {
+
+                    syncScheduled = false;
+                    WirelessReceiver[] receivers = unsynced.toArray(new WirelessReceiver[unsynced.size()]);
+                    unsynced.clear();
+                    for (WirelessReceiver receiver : receivers)
+                        if (receiver.isSubscribed())
+                            receiver.bandChanged(get(receiver.getBandId()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Unsubscribes a receiver from a band.
+     *
+     * @param id
+     * @param receiver
+     */
+    public static void unsubscribe(int id, WirelessReceiver receiver) {
+
+        subscribers.get(id).remove(receiver);
+    }
+
+    /**
+     * Gets the amount of receivers subscribed to a band.
+     *
+     * @param id
+     *
+     * @return the amount of receivers
+     */
+    public static int getSubscriberCount(int id) {
+
+        return subscribers.get(id).size();
+    }
+
+    /**
+     * Reads the bands that are on, turning every other band off.
+     *
+     * @param stream
+     *
+     * @throws IOException
+     */
+    public static void load(DataInputStream stream) throws IOException {
+
+        states.clear();
+        int length = stream.readInt();
+        for (int i = 0; i < length; i++)
+            states.set(getId(stream.readUTF()));
+    }
+
+    /**
+     * Writes the names of the bands that are on.
+     *
+     * @param stream
+     *
+     * @throws IOException
+     */
+    public static void save(DataOutputStream stream) throws IOException {
+
+        stream.writeInt(states.cardinality());
+        for (int id = states.nextSetBit(0); id >= 0; id = states.nextSetBit(id + 1))
+            stream.writeUTF(names.get(id));
+    }
+}
@@ -17,21 +17,34 @@
 package com.sk89q.craftbook.circuits.gates.world.miscellaneous;
 
 import org.bukkit.Server;
+import org.bukkit.block.Block;
+import org.bukkit.event.block.BlockBreakEvent;
 
 import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.LocalPlayer;
+import com.sk89q.craftbook.bukkit.CircuitCore;
+import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.circuits.ic.AbstractIC;
 import com.sk89q.craftbook.circuits.ic.AbstractICFactory;
-import com.sk89q.craftbook.circuits.ic.AbstractSelfTriggeredIC;
 import com.sk89q.craftbook.circuits.ic.ChipState;
 import com.sk89q.craftbook.circuits.ic.ConfigurableIC;
 import com.sk89q.craftbook.circuits.ic.IC;
 import com.sk89q.craftbook.circuits.ic.ICFactory;
+import com.sk89q.craftbook.circuits.ic.ICManager;
 import com.sk89q.craftbook.circuits.ic.ICVerificationException;
+import com.sk89q.craftbook.circuits.ic.PersistentIC;
+import com.sk89q.craftbook.util.SignUtil;
 import com.sk89q.util.yaml.YAMLProcessor;
 
-public class WirelessReceiver extends AbstractSelfTriggeredIC {
+/**
+ * Outputs the state of a wireless band. The receiver is subscribed to its band while it is loaded, and sets its output
+ * as soon as a transmitter changes the band.
+ */
+public class WirelessReceiver extends AbstractIC implements PersistentIC {
 
     private String band;
+    private int bandId = -1;
+    private ChipState output;
 
     public WirelessReceiver(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -41,9 +54,64 @@ public class WirelessReceiver extends AbstractSelfTriggeredIC {
     @Override
     public void load() {
 
+        // Loading again, such as when a variable on the sign changes, may move the receiver to another band.
+        unsubscribe();
         band = getSign().getLine(2);
         if (!getLine(3).trim().isEmpty())
             band = band + getSign().getLine(3);
+
+        Block block = BukkitUtil.toSign(getSign()).getBlock();
+        output = CircuitCore.FAMILY_SISO.detect(BukkitUtil.toWorldVector(block), getSign());
+        bandId = WirelessBands.getId(band);
+        WirelessBands.subscribe(bandId, this);
+    }
+
+    @Override
+    public void unload() {
+
+        unsubscribe();
+        // A cached receiver would be reused without being loaded, and so subscribed, again.
+        ICManager.removeCachedIC(BukkitUtil.toWorldVector(BukkitUtil.toSign(getSign()).getBlock()));
+        super.unload();
+    }
+
+    @Override
+    public void onICBreak(BlockBreakEvent event) {
+
+        unsubscribe();
+        super.onICBreak(event);
+    }
+
+    private void unsubscribe() {
+
+        if (bandId >= 0)
+            WirelessBands.unsubscribe(bandId, this);
+        bandId = -1;
+    }
+
+    boolean isSubscribed() {
+
+        return bandId >= 0;
+    }
+
+    int getBandId() {
+
+        return bandId;
+    }
+
+    /**
+     * Called by {@link WirelessBands} when the band of this receiver changes.
+     *
+     * @param state the new state of the band
+     */
+    void bandChanged(boolean state) {
+
+        // The sign may have been removed without this receiver being told.
+        if (!SignUtil.isSign(BukkitUtil.toSign(getSign()).getBlock())) {
+            unsubscribe();
+            return;
+        }
+        output.setOutput(0, state);
     }
 
     @Override
@@ -69,19 +137,7 @@ public class WirelessReceiver extends AbstractSelfTriggeredIC {
 
     public boolean getOutput() {
 
-        Boolean val = WirelessTransmitter.getValue(band);
-
-        if (val == null) {
-            return false;
-        }
-
-        return val;
-    }
-
-    @Override
-    public void think(ChipState chip) {
-
-        chip.setOutput(0, getOutput());
+        return bandId >= 0 ? WirelessBands.get(bandId) : WirelessTransmitter.getValue(band);
     }
 
     public static class Factory extends AbstractICFactory implements ConfigurableIC {
@@ -20,8 +20,6 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedHashSet;
-import java.util.Set;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Server;
@@ -44,9 +42,8 @@ import com.sk89q.util.yaml.YAMLProcessor;
 
 public class WirelessTransmitter extends AbstractIC {
 
-    protected static final Set<String> memory = new LinkedHashSet<String>();
-
     protected String band;
+    protected int bandId;
 
     public WirelessTransmitter(Server server, ChangedSign sign, ICFactory factory) {
 
@@ -59,6 +56,7 @@ public class WirelessTransmitter extends AbstractIC {
         band = getSign().getLine(2);
         if (!getLine(3).trim().isEmpty())
             band = band + getSign().getLine(3);
+        bandId = WirelessBands.getId(band);
     }
 
     @Override
@@ -76,21 +74,18 @@ public class WirelessTransmitter extends AbstractIC {
     @Override
     public void trigger(ChipState chip) {
 
-        setValue(band, chip.getInput(0));
+        WirelessBands.set(bandId, chip.getInput(0));
         chip.setOutput(0, chip.getInput(0));
     }
 
     public static Boolean getValue(String band) {
 
-        return memory.contains(band);
+        return WirelessBands.get(WirelessBands.getId(band));
     }
 
     public static void setValue(String band, boolean val) {
 
-        if(!val) //List preening
-            memory.remove(band);
-        else
-            memory.add(band);
+        WirelessBands.set(WirelessBands.getId(band), val);
     }
 
     public static class Factory extends AbstractICFactory implements PersistentDataIC, ConfigurableIC, CommandIC {
@@ -136,19 +131,13 @@ public class WirelessTransmitter extends AbstractIC {
         @Override
         public void loadPersistentData (DataInputStream stream) throws IOException {
 
-            memory.clear();
-            int length = stream.readInt();
-            for(int i = 0; i < length; i++)
-                memory.add(stream.readUTF());
+            WirelessBands.load(stream);
             stream.close();
         }
 
         @Override
         public void savePersistentData (DataOutputStream stream) throws IOException {
-            stream.writeInt(memory.size());
-            for(String band : memory) {
-                stream.writeUTF(band);
-            }
+            WirelessBands.save(stream);
             stream.close();
         }
 
@@ -160,18 +149,18 @@ public class WirelessTransmitter extends AbstractIC {
         @Override
         public void onICCommand (CommandContext args, CommandSender sender) {
 
-            if (args.getString(1).equalsIgnoreCase("get")) {
+            if (args.getString(1).equalsIgnoreCase("get") && args.argsLength() > 2) {
 
-                if(memory.contains(args.getString(1)))
+                if(getValue(args.getString(2)))
                     sender.sendMessage("Wireless-Band-State: TRUE");
                 else
                     sender.sendMessage("Wireless-Band-State: FALSE");
             } else if (args.getString(1).equalsIgnoreCase("set") && args.argsLength() > 3) {
 
                 if (args.getString(3).equalsIgnoreCase("true"))
-                    memory.add(args.getString(2));
+                    setValue(args.getString(2), true);
                 else if (args.getString(3).equalsIgnoreCase("false"))
-                    memory.remove(args.getString(2));
+                    setValue(args.getString(2), false);
                 else
                     sender.sendMessage(ChatColor.RED + "Invalid Boolean Argument!");
             } else
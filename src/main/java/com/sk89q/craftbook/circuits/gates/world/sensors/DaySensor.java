@@ -51,6 +51,12 @@ public class DaySensor extends AbstractSelfTriggeredIC {
             chip.setOutput(0, isDay());
     }
 
+    @Override
+    public int getThinkInterval() {
+
+        return 20;
+    }
+
     @Override
     public void think(ChipState chip) {
 
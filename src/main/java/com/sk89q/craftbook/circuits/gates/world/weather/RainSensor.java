@@ -37,6 +37,12 @@ public class RainSensor extends AbstractSelfTriggeredIC {
         }
     }
 
+    @Override
+    public int getThinkInterval() {
+
+        return 20;
+    }
+
     @Override
     public void think(ChipState chip) {
 
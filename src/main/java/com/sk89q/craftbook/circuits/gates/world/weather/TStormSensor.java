@@ -37,6 +37,12 @@ public class TStormSensor extends AbstractSelfTriggeredIC {
         }
     }
 
+    @Override
+    public int getThinkInterval() {
+
+        return 20;
+    }
+
     @Override
     public void think(ChipState chip) {
 
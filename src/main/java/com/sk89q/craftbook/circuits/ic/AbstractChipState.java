@@ -1,9 +1,11 @@
 package com.sk89q.craftbook.circuits.ic;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.lang.Validate;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
-import org.bukkit.material.Lever;
 
 import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
@@ -19,7 +21,19 @@ public abstract class AbstractChipState implements ChipState {
     protected final ChangedSign sign;
     protected final BlockWorldVector source;
     protected final boolean selfTriggered;
-    protected final Block icBlock;
+    protected Block icBlock;
+
+    /**
+     * The blocks of the pins that have been looked up so far, and a bit per pin that is set once it has been.
+     */
+    private Block[] pins = null;
+    private int resolvedPins = 0;
+
+    /**
+     * The input pins that were triggered, if more than the source block triggered this state.
+     */
+    private int triggeredPins = 0;
+    private boolean merged = false;
 
     protected AbstractChipState(BlockWorldVector source, ChangedSign sign, boolean selfTriggered) {
 
@@ -33,36 +47,102 @@ public abstract class AbstractChipState implements ChipState {
 
     protected abstract Block getBlock(int pin);
 
+    /**
+     * Gets the block of a pin, looking it up through {@link #getBlock(int)} only the first time it is asked for. The
+     * pins stay valid until {@link #refresh()} is called, so a state can be kept for as long as its sign does not
+     * change.
+     *
+     * @param pin
+     *
+     * @return the block, or null if the pin does not exist
+     */
+    protected final Block getPin(int pin) {
+
+        if (pin < 0 || pin >= 32)
+            return getBlock(pin);
+        if ((resolvedPins & 1 << pin) == 0) {
+            if (pins == null)
+                pins = new Block[Math.max(getInputCount() + getOutputCount(), pin + 1)];
+            else if (pin >= pins.length) {
+                Block[] grown = new Block[pin + 1];
+                System.arraycopy(pins, 0, grown, 0, pins.length);
+                pins = grown;
+            }
+            pins[pin] = getBlock(pin);
+            resolvedPins |= 1 << pin;
+        }
+        return pins[pin];
+    }
+
+    /**
+     * Forgets the blocks of the pins and which pins were triggered, for when the sign this state belongs to has been
+     * changed or turned.
+     */
+    public void refresh() {
+
+        resolvedPins = 0;
+        if (pins != null)
+            Arrays.fill(pins, null);
+        triggeredPins = 0;
+        merged = false;
+        icBlock = SignUtil.getBackBlock(BukkitUtil.toSign(sign).getBlock());
+    }
+
     @Override
     public boolean get(int pin) {
 
-        Block block = getBlock(pin);
+        Block block = getPin(pin);
         if(block == null) return false;
         if(block.getType() == Material.LEVER)
-            return ((Lever) block.getState().getData()).isPowered();
+            return ICUtil.getState(block);
         return block.isBlockIndirectlyPowered() || block.getType() == Material.DIODE_BLOCK_ON;
     }
 
     @Override
     public void set(int pin, boolean value) {
 
-        Block block = getBlock(pin);
+        Block block = getPin(pin);
         if (block != null) {
             ICUtil.setState(block, value, icBlock);
         }
     }
 
+    /**
+     * Marks every input pin at one of the given blocks as triggered, instead of only the pin at the source. Used when
+     * several input changes are evaluated at once.
+     *
+     * @param sources the blocks that changed
+     */
+    public void setTriggeredBy(List<Block> sources) {
+
+        triggeredPins = 0;
+        for (int pin = 0; pin < getInputCount() && pin < 32; pin++) {
+            Block block = getPin(pin);
+            if (block == null)
+                continue;
+            for (Block source : sources) {
+                if (block.getX() == source.getX() && block.getY() == source.getY() && block.getZ() == source.getZ()) {
+                    triggeredPins |= 1 << pin;
+                    break;
+                }
+            }
+        }
+        merged = true;
+    }
+
     @Override
     public boolean isTriggered(int pin) {
 
-        Block block = getBlock(pin);
-        return block != null && BukkitUtil.toWorldVector(block).equals(source);
+        if (merged)
+            return pin >= 0 && pin < 32 && (triggeredPins & 1 << pin) != 0;
+        Block block = getPin(pin);
+        return block != null && block.getX() == source.getBlockX() && block.getY() == source.getBlockY() && block.getZ() == source.getBlockZ();
     }
 
     @Override
     public boolean isValid(int pin) {
 
-        Block block = getBlock(pin);
+        Block block = getPin(pin);
         if (block != null)
             if (block.getType() == Material.REDSTONE_WIRE || block.getType() == Material.DIODE_BLOCK_OFF || block.getType() == Material.DIODE_BLOCK_ON || block.getType() == Material.LEVER)
                 return true;
@@ -21,4 +21,16 @@ public abstract class AbstractSelfTriggeredIC extends AbstractIC implements Self
 
         return false;
     }
+
+    @Override
+    public int getThinkInterval() {
+
+        return 0;
+    }
+
+    @Override
+    public int getThinkPhase() {
+
+        return -1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.sk89q.craftbook.circuits.ic;
+
+/**
+ * An IC whose outputs depend only on its pins, so that it can be evaluated as part of a {@link LogicNetwork}.
+ * <p>
+ * It must read and write the world only through the {@link ChipState} it is triggered with, and keep no state of its own
+ * besides the state of its outputs.
+ * </p>
+ */
+public interface CompilableIC extends IC {
+
+}
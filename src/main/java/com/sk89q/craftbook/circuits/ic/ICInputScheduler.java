@@ -0,0 +1,140 @@
+package com.sk89q.craftbook.circuits.ic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.bukkit.block.Block;
+
+import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+
+/**
+ * Delays IC input changes, and merges every change an IC receives within that delay into a single evaluation.
+ * <p>
+ * The first change at an IC opens a window of {@link #DELAY} ticks, the same delay each change used to get from its
+ * own task. Changes that arrive while the window is open only add their source block, so when the IC is evaluated
+ * every input that changed is marked as triggered. A fast clock feeding an IC costs one evaluation per window instead
+ * of a scheduler task per pulse.
+ * </p>
+ */
+public class ICInputScheduler implements Runnable {
+
+    /**
+     * The amount of ticks between the first change at an IC and its evaluation.
+     */
+    public static final int DELAY = 2;
+
+    /**
+     * The changes waiting at a single IC.
+     */
+    private static class Pending {
+
+        /**
+         * The latest mechanic of the IC. A new mechanic can be created for the same sign while the window is open.
+         */
+        ICMechanic mechanic;
+        final Block block;
+        final List<Block> sources = new ArrayList<Block>(2);
+        final long due;
+
+        Pending(ICMechanic mechanic, Block block, long due) {
+
+            this.mechanic = mechanic;
+            this.block = block;
+            this.due = due;
+        }
+    }
+
+    /**
+     * The open windows, by the position of the IC sign.
+     */
+    private final ChunkedBlockMap<Pending> pending = new ChunkedBlockMap<Pending>();
+
+    /**
+     * The open windows, in the order they are due.
+     */
+    private final Deque<Pending> queue = new ArrayDeque<Pending>();
+
+    private long tick = 0;
+
+    private long changes = 0;
+    private long evaluations = 0;
+
+    /**
+     * Schedule an IC to be evaluated because one of its inputs changed.
+     *
+     * @param mechanic the IC
+     * @param block the sign of the IC
+     * @param source the block that changed
+     */
+    public void schedule(ICMechanic mechanic, Block block, Block source) {
+
+        changes++;
+        String world = block.getWorld().getName();
+        Pending entry = pending.get(world, block.getX(), block.getY(), block.getZ());
+        if (entry == null) {
+            entry = new Pending(mechanic, block, tick + DELAY);
+            pending.put(world, block.getX(), block.getY(), block.getZ(), entry);
+            queue.add(entry);
+        } else
+            entry.mechanic = mechanic;
+
+        for (Block other : entry.sources)
+            if (other.getX() == source.getX() && other.getY() == source.getY() && other.getZ() == source.getZ())
+                return;
+        entry.sources.add(source);
+    }
+
+    /**
+     * Evaluates the ICs whose window has closed. Runs once per tick.
+     */
+    @Override
+    public void run() {
+
+        tick++;
+        while (!queue.isEmpty() && queue.peek().due <= tick) {
+            Pending entry = queue.poll();
+            pending.remove(entry.block.getWorld().getName(), entry.block.getX(), entry.block.getY(), entry.block.getZ());
+
+            evaluations++;
+            try {
+                entry.mechanic.onInputsChanged(entry.block, entry.sources);
+            } catch (Throwable t) {
+                BukkitUtil.printStacktrace(t);
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of ICs waiting to be evaluated.
+     *
+     * @return the amount of ICs
+     */
+    public int size() {
+
+        return queue.size();
+    }
+
+    /**
+     * Gets the amount of input changes received.
+     *
+     * @return the amount of changes
+     */
+    public long getChanges() {
+
+        return changes;
+    }
+
+    /**
+     * Gets the amount of times an IC was evaluated. The difference with {@link #getChanges()} is the amount of changes
+     * that were merged.
+     *
+     * @return the amount of evaluations
+     */
+    public long getEvaluations() {
+
+        return evaluations;
+    }
+}
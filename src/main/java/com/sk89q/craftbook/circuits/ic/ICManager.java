@@ -20,17 +20,29 @@ import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.craftbook.util.LineTemplate;
 import com.sk89q.craftbook.util.RegexUtil;
+import com.sk89q.craftbook.util.VariableStore;
 import com.sk89q.worldedit.BlockWorldVector;
+import com.sk89q.worldedit.BlockWorldVector2D;
 
 /**
  * Manages known registered ICs. For an IC to be detected in-world through CraftBook,
@@ -38,7 +50,7 @@ import com.sk89q.worldedit.BlockWorldVector;
  *
  * @author sk89q
  */
-public class ICManager {
+public class ICManager implements Listener {
 
     /**
      * Holds a map of registered IC factories with their ID.
@@ -54,7 +66,28 @@ public class ICManager {
      */
     public final Map<String, String> longRegistered = new HashMap<String, String>();
 
-    private static final Map<BlockWorldVector, IC> cachedICs = new HashMap<BlockWorldVector, IC>();
+    private static final ChunkedBlockMap<IC> cachedICs = new ChunkedBlockMap<IC>();
+
+    /**
+     * The positions of the cached ICs, least recently used first. Only kept when the cache has a maximum size.
+     */
+    private static final LinkedHashMap<BlockWorldVector, IC> recentlyUsed = new LinkedHashMap<BlockWorldVector, IC>(16, 0.75f, true);
+
+    /**
+     * The maximum size the recently used order was kept for.
+     */
+    private static int recentlyUsedSize = 0;
+
+    private static long cacheHits = 0;
+    private static long cacheMisses = 0;
+    private static long cacheEvictions = 0;
+    private static long cacheReleases = 0;
+
+    /**
+     * Holds the positions of cached ICs by the variables their signs may reference, so that they can be reloaded when
+     * one of them changes.
+     */
+    private static final Map<String, Set<BlockWorldVector>> variableDependents = new HashMap<String, Set<BlockWorldVector>>();
 
     private static final Set<String> customPrefix = new HashSet<String>();
 
@@ -149,7 +182,7 @@ public class ICManager {
      */
     public static boolean isCachedIC(BlockWorldVector pt) {
 
-        return cachedICs.containsKey(pt);
+        return cachedICs.get(pt) != null;
     }
 
     /**
@@ -164,6 +197,27 @@ public class ICManager {
         return cachedICs.get(pt);
     }
 
+    /**
+     * Looks up the cached IC at a location to load its mechanic. Unlike {@link #getCachedIC(BlockWorldVector)}, this
+     * counts towards the cache statistics and marks the IC as recently used.
+     *
+     * @param pt of the ic
+     *
+     * @return the cached ic, or null if there is none
+     */
+    public static IC lookupCachedIC(BlockWorldVector pt) {
+
+        IC ic = cachedICs.get(pt);
+        if (ic == null) {
+            cacheMisses++;
+            return null;
+        }
+        cacheHits++;
+        if (!recentlyUsed.isEmpty())
+            recentlyUsed.get(pt);
+        return ic;
+    }
+
     /**
      * Adds the given IC to the cached IC list.
      *
@@ -174,6 +228,26 @@ public class ICManager {
 
         if (!CraftBookPlugin.inst().getConfiguration().ICCached) return;
         cachedICs.put(pt, ic);
+        int maxSize = CraftBookPlugin.inst().getConfiguration().ICCacheSize;
+        if (maxSize != recentlyUsedSize)
+            resize(maxSize);
+        if (maxSize > 0) {
+            recentlyUsed.put(pt, ic);
+            evict(maxSize);
+        }
+
+        for (String line : ic.getSign().getLines()) {
+            if (line == null || line.indexOf('%') < 0)
+                continue;
+            for (String key : LineTemplate.compile(line).getDependencies()) {
+                Set<BlockWorldVector> dependents = variableDependents.get(key);
+                if (dependents == null) {
+                    dependents = new HashSet<BlockWorldVector>();
+                    variableDependents.put(key, dependents);
+                }
+                dependents.add(pt);
+            }
+        }
     }
 
     /**
@@ -185,8 +259,20 @@ public class ICManager {
      */
     public static IC removeCachedIC(BlockWorldVector pt) {
 
-        if (cachedICs.containsKey(pt)) return cachedICs.remove(pt);
-        return null;
+        IC ic = cachedICs.remove(pt);
+        if (ic != null) {
+            recentlyUsed.remove(pt);
+            for (String line : ic.getSign().getLines()) {
+                if (line == null || line.indexOf('%') < 0)
+                    continue;
+                for (String key : LineTemplate.compile(line).getDependencies()) {
+                    Set<BlockWorldVector> dependents = variableDependents.get(key);
+                    if (dependents != null && dependents.remove(pt) && dependents.isEmpty())
+                        variableDependents.remove(key);
+                }
+            }
+        }
+        return ic;
     }
 
     /**
@@ -206,16 +292,167 @@ public class ICManager {
     public static void emptyCache() {
 
         cachedICs.clear();
+        recentlyUsed.clear();
+        recentlyUsedSize = 0;
+        variableDependents.clear();
+    }
+
+    /**
+     * Rebuilds the recently used order for a new maximum size, as it is not kept while the cache has no maximum size.
+     * The ICs already cached are added in no particular order.
+     *
+     * @param maxSize
+     */
+    private static void resize(int maxSize) {
+
+        recentlyUsed.clear();
+        recentlyUsedSize = maxSize;
+        if (maxSize <= 0)
+            return;
+        for (IC ic : cachedICs.values())
+            recentlyUsed.put(ic.getSign().getBlockVector(), ic);
+    }
+
+    /**
+     * Removes the least recently used ICs until the cache is no larger than the given size. Active persistent ICs are
+     * kept, as their mechanics stop working once their IC is no longer cached.
+     *
+     * @param maxSize
+     */
+    private static void evict(int maxSize) {
+
+        int excess = cachedICs.size() - maxSize;
+        if (excess <= 0)
+            return;
+        List<BlockWorldVector> evicted = new ArrayList<BlockWorldVector>(excess);
+        for (Map.Entry<BlockWorldVector, IC> entry : recentlyUsed.entrySet()) {
+            if (evicted.size() >= excess)
+                break;
+            if (entry.getValue() instanceof PersistentIC && ((PersistentIC) entry.getValue()).isActive())
+                continue;
+            evicted.add(entry.getKey());
+        }
+        for (BlockWorldVector pt : evicted)
+            removeCachedIC(pt);
+        cacheEvictions += evicted.size();
+    }
+
+    /**
+     * Removes every cached IC within a chunk.
+     *
+     * @param chunk the chunk, with chunk (not block) coordinates
+     *
+     * @return the amount of ICs removed
+     */
+    public static int releaseChunk(BlockWorldVector2D chunk) {
+
+        List<IC> ics = cachedICs.getChunkValues(chunk);
+        for (IC ic : ics)
+            removeCachedIC(ic.getSign().getBlockVector());
+        cacheReleases += ics.size();
+        return ics.size();
+    }
+
+    /**
+     * Releases the cached ICs of chunks that unload. Chunks kept loaded for their ICs cancel the event, and so keep
+     * their ICs.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+
+        releaseChunk(new BlockWorldVector2D(BukkitUtil.getLocalWorld(event.getWorld()), event.getChunk().getX(), event.getChunk().getZ()));
+    }
+
+    /**
+     * Removes every cached IC whose sign may reference the given variable, so that it is loaded again with the new
+     * value. Active persistent ICs are loaded again where they are instead.
+     *
+     * @param variable
+     * @param namespace
+     */
+    public static void variableChanged(String variable, String namespace) {
+
+        Set<BlockWorldVector> dependents = variableDependents.get(VariableStore.getKey(variable, namespace));
+        if (dependents == null)
+            return;
+        for (BlockWorldVector pt : new ArrayList<BlockWorldVector>(dependents)) {
+            IC ic = cachedICs.get(pt);
+            // The mechanic of an active IC stops once the IC leaves the cache, so it reads its sign again in place.
+            if (ic instanceof PersistentIC && ((PersistentIC) ic).isActive())
+                ic.load();
+            else
+                removeCachedIC(pt);
+        }
     }
 
     /**
      * Gets the IC Cache map.
      */
-    public static Map<BlockWorldVector, IC> getCachedICs() {
+    public static ChunkedBlockMap<IC> getCachedICs() {
 
         return cachedICs;
     }
 
+    /**
+     * Gets the amount of times an IC was looked up in the cache and found.
+     *
+     * @return the amount of hits
+     */
+    public static long getCacheHits() {
+
+        return cacheHits;
+    }
+
+    /**
+     * Gets the amount of times an IC was looked up in the cache and not found.
+     *
+     * @return the amount of misses
+     */
+    public static long getCacheMisses() {
+
+        return cacheMisses;
+    }
+
+    /**
+     * Gets the amount of ICs removed because the cache was full.
+     *
+     * @return the amount of evictions
+     */
+    public static long getCacheEvictions() {
+
+        return cacheEvictions;
+    }
+
+    /**
+     * Gets the amount of ICs removed because their chunk unloaded.
+     *
+     * @return the amount of releases
+     */
+    public static long getCacheReleases() {
+
+        return cacheReleases;
+    }
+
+    /**
+     * Estimates the memory used by the cached ICs and their signs. The ICs' own fields are not counted.
+     *
+     * @return the estimate in bytes
+     */
+    public static long getCacheMemoryEstimate() {
+
+        long bytes = 0;
+        for (IC ic : cachedICs.values()) {
+            // The IC, its map entry and its sign, and the header of each line.
+            bytes += 48 + 32 + 32 + 4 * 40;
+            for (String line : ic.getSign().getLines())
+                if (line != null)
+                    bytes += 2 * line.length();
+        }
+        // The entry and position of each IC in the recently used order.
+        bytes += recentlyUsed.size() * (40 + 48);
+        return bytes;
+    }
+
     public boolean hasCustomPrefix(String prefix) {
 
         return customPrefix.contains(prefix.toLowerCase(Locale.ENGLISH));
@@ -21,12 +21,14 @@ import java.util.List;
 import java.util.regex.Matcher;
 
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 
 import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.PersistentMechanic;
+import com.sk89q.craftbook.bukkit.CircuitCore;
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
 import com.sk89q.craftbook.circuits.pipe.PipePutEvent;
@@ -34,6 +36,7 @@ import com.sk89q.craftbook.util.RegexUtil;
 import com.sk89q.craftbook.util.SignUtil;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
 import com.sk89q.worldedit.BlockWorldVector;
+import com.sk89q.worldedit.blocks.BlockID;
 
 /**
  * Mechanic wrapper for ICs. The mechanic manager dispatches events to this mechanic,
@@ -48,6 +51,11 @@ public class ICMechanic extends PersistentMechanic {
     protected final IC ic;
     protected final BlockWorldVector pos;
 
+    /**
+     * The chunk revision at which this IC was last found to be valid, or 0 if it has not been.
+     */
+    private long validRevision = 0;
+
     public ICMechanic(String id, IC ic, ICFamily family, BlockWorldVector pos) {
 
         super(pos);
@@ -57,6 +65,11 @@ public class ICMechanic extends PersistentMechanic {
         this.pos = pos;
     }
 
+    public String getId() {
+
+        return id;
+    }
+
     @Override
     public boolean equals(Object o) {
 
@@ -85,33 +98,56 @@ public class ICMechanic extends PersistentMechanic {
             // abort if the sign is the source or the block the sign is attached to
             if (SignUtil.getBackBlock(block).equals(source) || block.equals(source)) return;
 
-            Runnable runnable = new Runnable() {
-
-                @Override
-                public void run() {
-
-                    if (block.getType() != Material.WALL_SIGN) return;
-                    try {
-                        ChipState chipState = family.detect(BukkitUtil.toWorldVector(source), BukkitUtil.toChangedSign(block));
-                        int cnt = 0;
-                        for (int i = 0; i < chipState.getInputCount(); i++) {
-                            if (chipState.isTriggered(i)) {
-                                cnt++;
-                            }
-                        }
-                        if (cnt > 0) {
-                            ic.trigger(chipState);
-                        }
-                    } catch (IllegalArgumentException ex) {
-                        // Exclude these exceptions so that we don't spam consoles because of Bukkit
-                        if (!ex.getMessage().contains("Null ChangedSign found")) throw ex;
-                    }
+            CircuitCore.inst().getInputScheduler().schedule(this, block, source);
+        }
+    }
+
+    /**
+     * Evaluates the IC after its inputs have changed. Called by the {@link ICInputScheduler} once per set of input
+     * changes.
+     *
+     * @param block the sign of the IC
+     * @param sources the blocks that changed, in the order they changed
+     */
+    public void onInputsChanged(Block block, List<Block> sources) {
+
+        if (block.getType() != Material.WALL_SIGN) return;
+        LogicNetworkManager networks = CircuitCore.inst().getLogicNetworks();
+        if (networks != null && ic instanceof CompilableIC)
+            networks.inputsChanged(this, block, sources);
+        else
+            evaluate(block, sources);
+    }
+
+    /**
+     * Evaluates the IC in the world.
+     *
+     * @param block the sign of the IC
+     * @param sources the blocks that changed
+     *
+     * @return whether the IC was triggered
+     */
+    boolean evaluate(Block block, List<Block> sources) {
+
+        try {
+            ChipState chipState = family.detect(BukkitUtil.toWorldVector(sources.get(0)), BukkitUtil.toChangedSign(block));
+            if (sources.size() > 1 && chipState instanceof AbstractChipState)
+                ((AbstractChipState) chipState).setTriggeredBy(sources);
+            int cnt = 0;
+            for (int i = 0; i < chipState.getInputCount(); i++) {
+                if (chipState.isTriggered(i)) {
+                    cnt++;
                 }
-            };
-            // FIXME: these should be registered with a global scheduler so we can end up with one runnable actually
-            // running per set of inputs in a given time window.
-            CraftBookPlugin.server().getScheduler().runTaskLater(CraftBookPlugin.inst(), runnable, 2);
+            }
+            if (cnt > 0) {
+                ic.trigger(chipState);
+                return true;
+            }
+        } catch (IllegalArgumentException ex) {
+            // Exclude these exceptions so that we don't spam consoles because of Bukkit
+            if (!ex.getMessage().contains("Null ChangedSign found")) throw ex;
         }
+        return false;
     }
 
     @Override
@@ -130,7 +166,15 @@ public class ICMechanic extends PersistentMechanic {
     public boolean isActive() {
 
         BlockWorldVector pt = getTriggerPositions().get(0);
-        Block block = BukkitUtil.toWorld(pt).getBlockAt(BukkitUtil.toLocation(pt));
+        World world = BukkitUtil.toWorld(pt);
+
+        // Nothing in the chunk has changed since the sign was last checked, so only the cheap checks are needed.
+        long revision = CraftBookPlugin.inst().getManager().getRevision(world.getName(), pt.getBlockX() >> 4, pt.getBlockZ() >> 4);
+        if (revision == validRevision && world.getBlockTypeIdAt(pt.getBlockX(), pt.getBlockY(), pt.getBlockZ()) == BlockID.WALL_SIGN)
+            return ic instanceof PersistentIC && ((PersistentIC) ic).isActive() && isCached(pt);
+
+        validRevision = 0;
+        Block block = world.getBlockAt(BukkitUtil.toLocation(pt));
 
         if (block.getType() == Material.WALL_SIGN) {
 
@@ -140,13 +184,21 @@ public class ICMechanic extends PersistentMechanic {
             }
 
             Matcher matcher = RegexUtil.IC_PATTERN.matcher(sign.getLine(1));
+            if (!matcher.matches() || !matcher.group(1).equalsIgnoreCase(id))
+                return false;
+            validRevision = revision;
 
-            return matcher.matches() && matcher.group(1).equalsIgnoreCase(id) && ic instanceof PersistentIC && ((PersistentIC) ic).isActive() && (!CraftBookPlugin.inst().getConfiguration().ICCached || ICManager.isCachedIC(pt) && ICManager.getCachedIC(pt).equals(ic));
+            return ic instanceof PersistentIC && ((PersistentIC) ic).isActive() && isCached(pt);
         }
 
         return false;
     }
 
+    private boolean isCached(BlockWorldVector pt) {
+
+        return !CraftBookPlugin.inst().getConfiguration().ICCached || ic.equals(ICManager.getCachedIC(pt));
+    }
+
     @Override
     public List<BlockWorldVector> getWatchedPositions() {
         // this seems a little strange; you'd think you'd be watching the input blocks, right?
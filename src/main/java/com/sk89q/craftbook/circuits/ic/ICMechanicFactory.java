@@ -16,7 +16,9 @@
 
 package com.sk89q.craftbook.circuits.ic;
 
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.bukkit.Material;
@@ -53,6 +55,12 @@ public class ICMechanicFactory extends AbstractMechanicFactory<ICMechanic> {
         this.manager = manager;
     }
 
+    @Override
+    public Set<Integer> getTriggerBlocks() {
+
+        return Collections.singleton(Material.WALL_SIGN.getId());
+    }
+
     @Override
     public ICMechanic detect(BlockWorldVector pt) throws InvalidMechanismException {
 
@@ -106,12 +114,13 @@ public class ICMechanicFactory extends AbstractMechanicFactory<ICMechanic> {
             throw new InvalidMechanismException("\"" + sign.getLine(1) + "\" should be an IC ID, " +
                     "but no IC registered under that ID could be found.");
 
-        IC ic;
         // check if the ic is cached and get that single instance instead of creating a new one
-        if (ICManager.isCachedIC(pt)) {
-            ic = ICManager.getCachedIC(pt);
+        IC ic = ICManager.lookupCachedIC(pt);
+        if (ic != null) {
             if(ic.getSign().updateSign(sign)) {
 
+                // The old IC is replaced, so it has to let go of anything it registered.
+                ic.unload();
                 ICManager.removeCachedIC(pt);
                 ic = registration.getFactory().create(sign);
                 if(!sign.getLine(0).equals(ic.getSignTitle()) && !sign.getLine(0).startsWith("=")) {
@@ -136,7 +145,8 @@ public class ICMechanicFactory extends AbstractMechanicFactory<ICMechanic> {
         String suffix = "";
         String[] str = RegexUtil.RIGHT_BRACKET_PATTERN.split(sign.getLine(1));
         if (str.length > 1) {
-            suffix = str[1];
+            // the think override, as in [MC1234]S@20, is not part of the suffix
+            suffix = RegexUtil.IC_THINK_PATTERN.matcher(str[1]).replaceFirst("");
         }
 
         ICFamily family = registration.getFamilies()[0];
@@ -150,7 +160,7 @@ public class ICMechanicFactory extends AbstractMechanicFactory<ICMechanic> {
         }
 
         // okay, everything checked out. we can finally make it.
-        if (ic instanceof SelfTriggeredIC && (sign.getLine(1).trim().toUpperCase(Locale.ENGLISH).endsWith("S") || ((SelfTriggeredIC) ic).isAlwaysST()))
+        if (ic instanceof SelfTriggeredIC && (suffix.trim().toUpperCase(Locale.ENGLISH).endsWith("S") || ((SelfTriggeredIC) ic).isAlwaysST()))
             return new SelfTriggeredICMechanic(id, (SelfTriggeredIC) ic, family, pt);
         else
             return new ICMechanic(id, ic, family, pt);
@@ -259,10 +269,13 @@ public class ICMechanicFactory extends AbstractMechanicFactory<ICMechanic> {
             }
             sign.update(false);
 
+            // the think override, as in [MC1234]S@20, is not part of the family suffix
+            String familySuffix = RegexUtil.IC_THINK_PATTERN.matcher(suffix).replaceFirst("");
+
             ICFamily family = registration.getFamilies()[0];
-            if (suffix != null && !suffix.isEmpty()) {
+            if (!familySuffix.isEmpty()) {
                 for (ICFamily f : registration.getFamilies()) {
-                    if (f.getSuffix().equalsIgnoreCase(suffix)) {
+                    if (f.getSuffix().equalsIgnoreCase(familySuffix)) {
                         family = f;
                         break;
                     }
@@ -271,7 +284,7 @@ public class ICMechanicFactory extends AbstractMechanicFactory<ICMechanic> {
 
             ICMechanic mechanic;
 
-            if (ic instanceof SelfTriggeredIC && (sign.getLine(1).trim().toUpperCase(Locale.ENGLISH).endsWith("S") || ((SelfTriggeredIC) ic).isAlwaysST())) {
+            if (ic instanceof SelfTriggeredIC && (familySuffix.trim().toUpperCase(Locale.ENGLISH).endsWith("S") || ((SelfTriggeredIC) ic).isAlwaysST())) {
                 mechanic = new SelfTriggeredICMechanic(id, (SelfTriggeredIC) ic, family, pt);
             } else {
                 mechanic = new ICMechanic(id, ic, family, pt);
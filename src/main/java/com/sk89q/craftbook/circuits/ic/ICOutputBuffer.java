@@ -0,0 +1,208 @@
+package com.sk89q.craftbook.circuits.ic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.event.block.BlockRedstoneEvent;
+
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+
+/**
+ * Buffers the output levers set by ICs, and writes them once per tick.
+ * <p>
+ * Setting a lever that is already waiting to be written only replaces the state it will be written with, so a lever
+ * that is turned on and off again within a tick is not written at all. When the buffer is flushed every lever that
+ * changed is written first, then the blocks they are on are updated once each, and only then are the redstone events
+ * fired. Levers set while those events are handled wait for the next flush instead of being written further down the
+ * same call stack, and a flush writes at most {@link #MAX_WRITES} levers, leaving the rest for the next tick.
+ * </p>
+ * <p>
+ * The buffer is flushed by a scheduler task, which runs at the start of a tick before the world ticks. Outputs set while
+ * redstone is handled, which is nearly all of them, therefore reach the world one tick later than they would without
+ * the buffer.
+ * </p>
+ */
+public class ICOutputBuffer implements Runnable {
+
+    /**
+     * The most levers written by a single flush.
+     */
+    public static final int MAX_WRITES = 4096;
+
+    /**
+     * A lever waiting to be written.
+     */
+    private static class Write {
+
+        final Block lever;
+        final Block source;
+        /**
+         * The state of the lever in the world when it was first set.
+         */
+        final boolean was;
+        boolean state;
+
+        Write(Block lever, Block source, boolean was, boolean state) {
+
+            this.lever = lever;
+            this.source = source;
+            this.was = was;
+            this.state = state;
+        }
+    }
+
+    private final ChunkedBlockMap<Write> pending = new ChunkedBlockMap<Write>();
+    private List<Write> queue = new ArrayList<Write>();
+
+    private boolean flushing = false;
+
+    private long sets = 0;
+    private long writes = 0;
+    private long flushes = 0;
+
+    /**
+     * Sets the state of an output lever. The lever must be attached to the source block.
+     *
+     * @param lever
+     * @param state
+     * @param source the block the lever is attached to
+     *
+     * @return whether the state differs from what the lever was set to before
+     */
+    public boolean set(Block lever, boolean state, Block source) {
+
+        String world = lever.getWorld().getName();
+        Write write = pending.get(world, lever.getX(), lever.getY(), lever.getZ());
+        if (write == null) {
+            boolean was = (lever.getData() & 0x8) != 0;
+            if (was == state)
+                return false;
+            write = new Write(lever, source, was, state);
+            pending.put(world, lever.getX(), lever.getY(), lever.getZ(), write);
+            queue.add(write);
+        } else {
+            if (write.state == state)
+                return false;
+            write.state = state;
+        }
+        sets++;
+        return true;
+    }
+
+    /**
+     * Gets the state a lever will be written with.
+     *
+     * @param lever
+     *
+     * @return the state, or null if the lever is not waiting to be written
+     */
+    public Boolean get(Block lever) {
+
+        Write write = pending.get(lever.getWorld().getName(), lever.getX(), lever.getY(), lever.getZ());
+        return write == null ? null : write.state;
+    }
+
+    /**
+     * Writes the levers that were set since the last flush.
+     */
+    public void flush() {
+
+        if (flushing || queue.isEmpty())
+            return;
+        flushing = true;
+        flushes++;
+        try {
+            List<Write> batch = queue;
+            if (batch.size() > MAX_WRITES) {
+                queue = new ArrayList<Write>(batch.subList(MAX_WRITES, batch.size()));
+                batch = batch.subList(0, MAX_WRITES);
+            } else
+                queue = new ArrayList<Write>();
+
+            List<Write> written = new ArrayList<Write>(batch.size());
+            for (Write write : batch) {
+                Block lever = write.lever;
+                pending.remove(lever.getWorld().getName(), lever.getX(), lever.getY(), lever.getZ());
+                if (write.state == write.was || lever.getType() != Material.LEVER)
+                    continue;
+                byte data = lever.getData();
+                byte newData = (byte) (write.state ? data | 0x8 : data & 0x7);
+                if (newData == data)
+                    continue;
+                lever.setData(newData, true);
+                written.add(write);
+            }
+            writes += written.size();
+
+            // Update each block the levers are on once, along with everything around it.
+            Map<Block, Write> sources = new LinkedHashMap<Block, Write>();
+            for (Write write : written)
+                if (!sources.containsKey(write.source))
+                    sources.put(write.source, write);
+            for (Block source : sources.keySet()) {
+                byte data = source.getData();
+                source.setData((byte) (data - 1), true);
+                source.setData(data, true);
+            }
+
+            for (Write write : written)
+                CraftBookPlugin.inst().getServer().getPluginManager().callEvent(new BlockRedstoneEvent(write.lever, write.was ? 15 : 0, write.state ? 15 : 0));
+            for (Map.Entry<Block, Write> source : sources.entrySet())
+                CraftBookPlugin.inst().getServer().getPluginManager().callEvent(new BlockRedstoneEvent(source.getKey(), source.getValue().was ? 15 : 0, source.getValue().state ? 15 : 0));
+        } finally {
+            flushing = false;
+        }
+    }
+
+    @Override
+    public void run() {
+
+        flush();
+    }
+
+    /**
+     * Gets the amount of levers waiting to be written.
+     *
+     * @return the amount of levers
+     */
+    public int size() {
+
+        return queue.size();
+    }
+
+    /**
+     * Gets the amount of times an IC changed the state of a lever.
+     *
+     * @return the amount of changes
+     */
+    public long getSets() {
+
+        return sets;
+    }
+
+    /**
+     * Gets the amount of levers written. The difference with {@link #getSets()} is the amount of changes that were
+     * merged or cancelled.
+     *
+     * @return the amount of writes
+     */
+    public long getWrites() {
+
+        return writes;
+    }
+
+    /**
+     * Gets the amount of times the buffer was flushed.
+     *
+     * @return the amount of flushes
+     */
+    public long getFlushes() {
+
+        return flushes;
+    }
+}
@@ -0,0 +1,371 @@
+package com.sk89q.craftbook.circuits.ic;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.sk89q.craftbook.util.BlockKey;
+import com.sk89q.craftbook.util.LongHashMap;
+
+/**
+ * A group of {@link CompilableIC}s wired output to input, evaluated in memory.
+ * <p>
+ * The wires between the ICs of a network are nets: wire driven by a single output lever and read only by inputs of the
+ * network. The state of each net is kept here instead of in the world, so when an input of the network changes, every
+ * IC it affects is evaluated in one pass in the order the nets run, and only outputs that leave the network are
+ * written to the world. The levers that drive nets are left as they were until the network is dissolved, which writes
+ * them back.
+ * </p>
+ */
+public class LogicNetwork {
+
+    /**
+     * An IC in a network.
+     */
+    static class Node {
+
+        final Block sign;
+        ICMechanic mechanic;
+        final AbstractChipState world;
+
+        final int inputCount;
+        final int pinCount;
+
+        /**
+         * The net each pin reads or drives, or -1 if the pin is wired to the world.
+         */
+        int[] nets;
+        /**
+         * A bit per pin that was valid when the network was built.
+         */
+        int validPins;
+
+        /**
+         * The position of this node in evaluation order.
+         */
+        int index;
+
+        Node(Block sign, ICMechanic mechanic, AbstractChipState world) {
+
+            this.sign = sign;
+            this.mechanic = mechanic;
+            this.world = world;
+            inputCount = world.getInputCount();
+            pinCount = inputCount + world.getOutputCount();
+        }
+    }
+
+    /**
+     * A net between ICs of a network.
+     */
+    static class Net {
+
+        final Node driver;
+        final int driverPin;
+
+        /**
+         * The nodes reading this net, and the pin each reads it at.
+         */
+        int[] sinkNodes;
+        int[] sinkPins;
+
+        Net(Node driver, int driverPin) {
+
+            this.driver = driver;
+            this.driverPin = driverPin;
+        }
+    }
+
+    private final World world;
+    private final Node[] nodes;
+    private final LongHashMap<Node> nodesBySign;
+    private final Net[] nets;
+    private final long[] footprint;
+
+    private final boolean[] values;
+    private final int[] triggered;
+    private final NetworkChipState[] states;
+
+    private boolean valid = true;
+
+    private long evaluations = 0;
+    private long triggers = 0;
+    private long avoidedWrites = 0;
+    private long nanos = 0;
+
+    /**
+     * Creates a network. The nets are read from the world.
+     *
+     * @param world
+     * @param nodes the ICs, in an order where every driver comes before the nodes reading its nets
+     * @param nets
+     * @param footprint the keys of every block the network depends on
+     */
+    LogicNetwork(World world, Node[] nodes, Net[] nets, long[] footprint) {
+
+        this.world = world;
+        this.nodes = nodes;
+        this.nets = nets;
+        this.footprint = footprint;
+
+        nodesBySign = new LongHashMap<Node>(nodes.length);
+        states = new NetworkChipState[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i].index = i;
+            nodesBySign.put(BlockKey.pack(nodes[i].sign.getX(), nodes[i].sign.getY(), nodes[i].sign.getZ()), nodes[i]);
+            states[i] = new NetworkChipState(nodes[i]);
+        }
+        triggered = new int[nodes.length];
+
+        values = new boolean[nets.length];
+        for (int i = 0; i < nets.length; i++)
+            values[i] = nets[i].driver.world.get(nets[i].driverPin);
+    }
+
+    /**
+     * Evaluates the network after inputs of one of its ICs changed in the world. Changes at pins that read a net are
+     * ignored, as the network holds their state.
+     *
+     * @param mechanic the IC
+     * @param sign the sign of the IC
+     * @param sources the blocks that changed
+     */
+    public void inputsChanged(ICMechanic mechanic, Block sign, List<Block> sources) {
+
+        Node node = nodesBySign.get(BlockKey.pack(sign.getX(), sign.getY(), sign.getZ()));
+        if (!valid || node == null)
+            return;
+        // The mechanic may have been loaded again since the network was built.
+        node.mechanic = mechanic;
+
+        int mask = 0;
+        for (int pin = 0; pin < node.inputCount && pin < 32; pin++) {
+            if (node.nets[pin] >= 0)
+                continue;
+            Block block = node.world.getPin(pin);
+            if (block == null)
+                continue;
+            for (Block source : sources) {
+                if (block.getX() == source.getX() && block.getY() == source.getY() && block.getZ() == source.getZ()) {
+                    mask |= 1 << pin;
+                    break;
+                }
+            }
+        }
+        if (mask == 0)
+            return;
+
+        long start = System.nanoTime();
+        evaluations++;
+        triggered[node.index] = mask;
+        try {
+            for (int i = node.index; i < nodes.length && valid; i++) {
+                if (triggered[i] == 0)
+                    continue;
+                states[i].triggered = triggered[i];
+                triggered[i] = 0;
+                triggers++;
+                nodes[i].mechanic.getIC().trigger(states[i]);
+            }
+        } finally {
+            // Only left set if an IC failed or the network was dissolved while it ran.
+            Arrays.fill(triggered, 0);
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Marks this network as no longer matching the world, and writes the state of its nets back to their levers.
+     */
+    void dissolve() {
+
+        if (!valid)
+            return;
+        valid = false;
+        for (int i = 0; i < nets.length; i++)
+            if (nets[i].driver.world.get(nets[i].driverPin) != values[i])
+                nets[i].driver.world.set(nets[i].driverPin, values[i]);
+    }
+
+    public boolean isValid() {
+
+        return valid;
+    }
+
+    /**
+     * Gets whether any ICs of this network are wired to each other. A network without nets only records that its IC
+     * could not be compiled.
+     *
+     * @return whether the network has nets
+     */
+    public boolean isCompiled() {
+
+        return nets.length > 0;
+    }
+
+    public World getWorld() {
+
+        return world;
+    }
+
+    /**
+     * Gets the sign of the first IC of this network.
+     *
+     * @return the sign
+     */
+    public Block getOrigin() {
+
+        return nodes[0].sign;
+    }
+
+    Block[] getSigns() {
+
+        Block[] signs = new Block[nodes.length];
+        for (int i = 0; i < nodes.length; i++)
+            signs[i] = nodes[i].sign;
+        return signs;
+    }
+
+    long[] getFootprint() {
+
+        return footprint;
+    }
+
+    public int getICCount() {
+
+        return nodes.length;
+    }
+
+    public int getNetCount() {
+
+        return nets.length;
+    }
+
+    /**
+     * Gets the amount of input changes this network has been evaluated for.
+     *
+     * @return the amount of evaluations
+     */
+    public long getEvaluations() {
+
+        return evaluations;
+    }
+
+    /**
+     * Gets the amount of times an IC of this network was triggered.
+     *
+     * @return the amount of triggers
+     */
+    public long getTriggers() {
+
+        return triggers;
+    }
+
+    /**
+     * Gets the amount of times a net changed, each of which would have been a lever toggled in the world.
+     *
+     * @return the amount of writes
+     */
+    public long getAvoidedWrites() {
+
+        return avoidedWrites;
+    }
+
+    /**
+     * Gets the time spent evaluating this network.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+
+        return nanos;
+    }
+
+    /**
+     * The chip state an IC of a network is triggered with. Pins on a net use the state of the net, the others use the
+     * world.
+     */
+    private class NetworkChipState implements ChipState {
+
+        private final Node node;
+        int triggered;
+
+        NetworkChipState(Node node) {
+
+            this.node = node;
+        }
+
+        private int getNet(int pin) {
+
+            return pin >= 0 && pin < node.pinCount ? node.nets[pin] : -1;
+        }
+
+        @Override
+        public boolean get(int pin) {
+
+            int net = getNet(pin);
+            return net < 0 ? node.world.get(pin) : values[net];
+        }
+
+        @Override
+        public boolean getInput(int inputIndex) {
+
+            return get(inputIndex);
+        }
+
+        @Override
+        public boolean getOutput(int outputIndex) {
+
+            return get(node.inputCount + outputIndex);
+        }
+
+        @Override
+        public void set(int pin, boolean value) {
+
+            int net = getNet(pin);
+            if (net < 0 || nets[net].driver != node) {
+                node.world.set(pin, value);
+                return;
+            }
+            if (values[net] == value)
+                return;
+            values[net] = value;
+            avoidedWrites++;
+            Net n = nets[net];
+            for (int i = 0; i < n.sinkNodes.length; i++)
+                LogicNetwork.this.triggered[n.sinkNodes[i]] |= 1 << n.sinkPins[i];
+        }
+
+        @Override
+        public void setOutput(int outputIndex, boolean value) {
+
+            set(node.inputCount + outputIndex, value);
+        }
+
+        @Override
+        public boolean isTriggered(int pin) {
+
+            return pin >= 0 && pin < 32 && (triggered & 1 << pin) != 0;
+        }
+
+        @Override
+        public boolean isValid(int pin) {
+
+            return pin >= 0 && pin < 32 && (node.validPins & 1 << pin) != 0;
+        }
+
+        @Override
+        public int getInputCount() {
+
+            return node.world.getInputCount();
+        }
+
+        @Override
+        public int getOutputCount() {
+
+            return node.world.getOutputCount();
+        }
+    }
+}
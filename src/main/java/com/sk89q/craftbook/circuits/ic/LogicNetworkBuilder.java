@@ -0,0 +1,509 @@
+package com.sk89q.craftbook.circuits.ic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.material.Lever;
+
+import com.sk89q.craftbook.Mechanic;
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
+import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.circuits.ic.LogicNetwork.Net;
+import com.sk89q.craftbook.circuits.ic.LogicNetwork.Node;
+import com.sk89q.craftbook.circuits.ic.families.Family3I3O;
+import com.sk89q.craftbook.circuits.ic.families.Family3ISO;
+import com.sk89q.craftbook.circuits.ic.families.FamilySISO;
+import com.sk89q.craftbook.util.BlockKey;
+import com.sk89q.craftbook.util.LongHashMap;
+import com.sk89q.craftbook.util.SignUtil;
+import com.sk89q.craftbook.util.exceptions.InvalidMechanismException;
+
+/**
+ * Finds the {@link LogicNetwork} an IC belongs to.
+ * <p>
+ * Starting at an IC, it follows the wire at each of its pins to the ICs on the other end. Wire only becomes a net of
+ * the network if nothing but the network could notice its state: it has to lie flat, be driven by a single output
+ * lever of a {@link CompilableIC}, be read by inputs of such ICs, and neither it nor the lever may be next to anything
+ * else that powers or reacts to redstone. Any other wire is left to the world. If nets form a loop, the nets driven from
+ * inside the loop are left to the world as well, so a network can always be evaluated in a single pass.
+ * </p>
+ */
+class LogicNetworkBuilder {
+
+    private static final int MAX_NODES = 128;
+    private static final int MAX_WIRES = 256;
+
+    private static final BlockFace[] FACES = {BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST,
+        BlockFace.UP, BlockFace.DOWN};
+
+    /**
+     * Blocks that power wire, or that react to power, other than wire and signs.
+     */
+    private static final Set<Material> REDSTONE = EnumSet.of(Material.LEVER, Material.STONE_BUTTON,
+            Material.WOOD_BUTTON, Material.STONE_PLATE, Material.WOOD_PLATE, Material.GOLD_PLATE, Material.IRON_PLATE,
+            Material.TRIPWIRE_HOOK, Material.DETECTOR_RAIL, Material.REDSTONE_BLOCK, Material.DAYLIGHT_DETECTOR,
+            Material.TRAPPED_CHEST, Material.REDSTONE_TORCH_ON, Material.REDSTONE_TORCH_OFF, Material.DIODE_BLOCK_ON,
+            Material.DIODE_BLOCK_OFF, Material.REDSTONE_COMPARATOR_ON, Material.REDSTONE_COMPARATOR_OFF,
+            Material.PISTON_BASE, Material.PISTON_STICKY_BASE, Material.PISTON_EXTENSION, Material.REDSTONE_LAMP_ON,
+            Material.REDSTONE_LAMP_OFF, Material.DISPENSER, Material.DROPPER, Material.HOPPER, Material.NOTE_BLOCK,
+            Material.TNT, Material.WOODEN_DOOR, Material.IRON_DOOR_BLOCK, Material.TRAP_DOOR, Material.FENCE_GATE,
+            Material.POWERED_RAIL, Material.ACTIVATOR_RAIL, Material.COMMAND, Material.JUKEBOX, Material.NETHERRACK,
+            Material.GLOWSTONE, Material.PUMPKIN, Material.JACK_O_LANTERN);
+
+    /**
+     * A connected piece of wire, while it is being checked.
+     */
+    private static class Trace {
+
+        final List<Block> signs = new ArrayList<Block>();
+        Block lever = null;
+        boolean rejected = false;
+
+        Node driver = null;
+        int driverPin = -1;
+        final List<Node> sinks = new ArrayList<Node>();
+        final List<Integer> sinkPins = new ArrayList<Integer>();
+    }
+
+    private final World world;
+
+    /**
+     * The ICs by the key of their sign, with null for signs that can not be compiled.
+     */
+    private final LongHashMap<Node> nodes = new LongHashMap<Node>();
+    private final List<Node> order = new ArrayList<Node>();
+    private final Deque<Node> queue = new ArrayDeque<Node>();
+    private final Map<Node, Trace[]> pins = new IdentityHashMap<Node, Trace[]>();
+
+    /**
+     * The trace each wire belongs to.
+     */
+    private final LongHashMap<Trace> traced = new LongHashMap<Trace>();
+    private final List<Trace> traces = new ArrayList<Trace>();
+
+    private final LongHashMap<Boolean> footprint = new LongHashMap<Boolean>();
+    private boolean incomplete = false;
+
+    LogicNetworkBuilder(World world) {
+
+        this.world = world;
+    }
+
+    /**
+     * Gets whether an IC can be part of a network: it must be a {@link CompilableIC} in a family whose pins are the
+     * inputs followed by the outputs.
+     *
+     * @param mechanic
+     *
+     * @return whether the IC can be compiled
+     */
+    static boolean canCompile(ICMechanic mechanic) {
+
+        return mechanic != null && !(mechanic instanceof SelfTriggeredICMechanic) && mechanic.ic instanceof CompilableIC
+                && (mechanic.family instanceof FamilySISO || mechanic.family instanceof Family3ISO
+                        || mechanic.family instanceof Family3I3O);
+    }
+
+    /**
+     * Finds the network of an IC.
+     *
+     * @param mechanic the IC
+     * @param sign the sign of the IC
+     *
+     * @return the network, or null if the IC can not be compiled or some of its wiring is in chunks that are not loaded
+     */
+    LogicNetwork build(ICMechanic mechanic, Block sign) {
+
+        if (node(sign, mechanic) == null)
+            return null;
+        while (!queue.isEmpty())
+            visit(queue.poll());
+        if (incomplete)
+            return null;
+        return finish();
+    }
+
+    private Node node(Block sign, ICMechanic mechanic) {
+
+        long key = BlockKey.pack(sign.getX(), sign.getY(), sign.getZ());
+        if (nodes.containsKey(key))
+            return nodes.get(key);
+
+        touch(sign);
+        Node node = null;
+        if (order.size() < MAX_NODES && sign.getType() == Material.WALL_SIGN) {
+            if (mechanic == null)
+                mechanic = findMechanic(sign);
+            ChipState state = null;
+            try {
+                if (canCompile(mechanic))
+                    state = mechanic.family.detect(BukkitUtil.toWorldVector(sign), BukkitUtil.toChangedSign(sign));
+            } catch (IllegalArgumentException ignored) {
+                // The sign could not be read.
+            }
+            if (state instanceof AbstractChipState && state.getInputCount() + state.getOutputCount() <= 32) {
+                node = new Node(sign, mechanic, (AbstractChipState) state);
+                for (int pin = 0; pin < node.pinCount; pin++)
+                    if (node.world.isValid(pin))
+                        node.validPins |= 1 << pin;
+                touch(node.world.icBlock);
+                order.add(node);
+                queue.add(node);
+                pins.put(node, new Trace[node.pinCount]);
+            }
+        }
+        nodes.put(key, node);
+        return node;
+    }
+
+    private static ICMechanic findMechanic(Block sign) {
+
+        try {
+            for (Mechanic mechanic : CraftBookPlugin.inst().getManager().load(BukkitUtil.toWorldVector(sign), null))
+                if (mechanic instanceof ICMechanic)
+                    return (ICMechanic) mechanic;
+        } catch (InvalidMechanismException ignored) {
+        }
+        return null;
+    }
+
+    private void visit(Node node) {
+
+        for (int pin = 0; pin < node.pinCount; pin++) {
+            Block block = node.world.getPin(pin);
+            if (block == null)
+                continue;
+            touch(block);
+            if (pin < node.inputCount) {
+                if (block.getType() == Material.REDSTONE_WIRE)
+                    trace(block);
+            } else if (block.getType() == Material.LEVER) {
+                for (BlockFace face : FACES) {
+                    Block wire = relative(block, face);
+                    if (wire != null && wire.getType() == Material.REDSTONE_WIRE)
+                        trace(wire);
+                }
+            }
+        }
+    }
+
+    /**
+     * Follows the wire connected to a block of wire, and checks whether it can be a net.
+     */
+    private Trace trace(Block start) {
+
+        Trace trace = traced.get(key(start));
+        if (trace != null)
+            return trace;
+
+        trace = new Trace();
+        traces.add(trace);
+        traced.put(key(start), trace);
+        Deque<Block> pending = new ArrayDeque<Block>();
+        pending.add(start);
+        int wires = 1;
+        while (!pending.isEmpty()) {
+            Block wire = pending.poll();
+            for (BlockFace face : FACES) {
+                Block block = relative(wire, face);
+                if (block == null) {
+                    trace.rejected = true;
+                    continue;
+                }
+                touch(block);
+                Material type = block.getType();
+                boolean side = face != BlockFace.UP && face != BlockFace.DOWN;
+
+                if (type == Material.REDSTONE_WIRE) {
+                    if (!side)
+                        trace.rejected = true;
+                    else if (!traced.containsKey(key(block))) {
+                        if (++wires > MAX_WIRES) {
+                            trace.rejected = true;
+                            continue;
+                        }
+                        traced.put(key(block), trace);
+                        pending.add(block);
+                    }
+                    continue;
+                }
+
+                // Wire climbing up or down a block is not followed.
+                if (side && (isWire(relative(block, BlockFace.UP)) || isWire(relative(block, BlockFace.DOWN))))
+                    trace.rejected = true;
+
+                if (type == Material.LEVER) {
+                    if (trace.lever == null)
+                        trace.lever = block;
+                    else if (!trace.lever.equals(block))
+                        trace.rejected = true;
+                } else if (type == Material.WALL_SIGN || type == Material.SIGN_POST) {
+                    if (!trace.signs.contains(block))
+                        trace.signs.add(block);
+                } else if (REDSTONE.contains(type))
+                    trace.rejected = true;
+                else if (face != BlockFace.UP && type.isOccluding())
+                    // The wire may power this block, which powers what is next to it.
+                    checkQuiet(trace, block, wire, false);
+            }
+        }
+
+        if (!trace.rejected)
+            resolve(trace);
+        return trace;
+    }
+
+    private boolean isWire(Block block) {
+
+        if (block == null)
+            return false;
+        touch(block);
+        return block.getType() == Material.REDSTONE_WIRE;
+    }
+
+    /**
+     * Checks that nothing next to a powered block reacts to its power.
+     *
+     * @param trace the trace the power comes from
+     * @param block the powered block
+     * @param from the block powering it
+     * @param strong whether the block powers wire next to it, in which case the signs next to it are told of its
+     *            changes
+     */
+    private void checkQuiet(Trace trace, Block block, Block from, boolean strong) {
+
+        for (BlockFace face : FACES) {
+            Block other = relative(block, face);
+            if (other == null) {
+                trace.rejected = true;
+                continue;
+            }
+            if (other.equals(from))
+                continue;
+            touch(other);
+            Material type = other.getType();
+            if (type == Material.REDSTONE_WIRE) {
+                if (strong)
+                    trace.rejected = true;
+            } else if (type == Material.WALL_SIGN || type == Material.SIGN_POST) {
+                if (strong && !trace.signs.contains(other))
+                    trace.signs.add(other);
+            } else if (REDSTONE.contains(type) && !(strong && type == Material.LEVER))
+                trace.rejected = true;
+        }
+    }
+
+    /**
+     * Finds the IC driving a trace and the ICs reading it.
+     */
+    private void resolve(Trace trace) {
+
+        if (trace.lever == null) {
+            trace.rejected = true;
+            return;
+        }
+
+        BlockFace attachedFace = ((Lever) trace.lever.getState().getData()).getAttachedFace();
+        Block attached = relative(trace.lever, attachedFace);
+        if (attached == null) {
+            trace.rejected = true;
+            return;
+        }
+        touch(attached);
+
+        // The sign is on the far side of the block the lever is on, or of the block behind that.
+        Block candidate = attached;
+        for (int distance = 1; distance <= 2 && trace.driver == null; distance++) {
+            candidate = relative(candidate, attachedFace);
+            if (candidate == null || candidate.getType() != Material.WALL_SIGN)
+                continue;
+            Node node = node(candidate, null);
+            if (node == null)
+                continue;
+            for (int pin = node.inputCount; pin < node.pinCount; pin++) {
+                if (trace.lever.equals(node.world.getPin(pin)) && attached.equals(getOutputSource(node))) {
+                    trace.driver = node;
+                    trace.driverPin = pin;
+                    break;
+                }
+            }
+        }
+        if (trace.driver == null) {
+            trace.rejected = true;
+            return;
+        }
+
+        // The lever powers what is next to it, and the block it is on powers what is next to that.
+        for (BlockFace face : FACES) {
+            Block block = relative(trace.lever, face);
+            if (block == null) {
+                trace.rejected = true;
+                continue;
+            }
+            if (block.equals(attached))
+                continue;
+            touch(block);
+            Material type = block.getType();
+            if (type == Material.REDSTONE_WIRE) {
+                if (traced.get(key(block)) != trace)
+                    trace.rejected = true;
+            } else if (type == Material.WALL_SIGN || type == Material.SIGN_POST) {
+                if (!trace.signs.contains(block))
+                    trace.signs.add(block);
+            } else if (REDSTONE.contains(type))
+                trace.rejected = true;
+        }
+        checkQuiet(trace, attached, trace.lever, true);
+        if (trace.rejected)
+            return;
+
+        Trace[] driverPins = pins.get(trace.driver);
+        if (driverPins[trace.driverPin] != null && driverPins[trace.driverPin] != trace) {
+            // The lever drives separate pieces of wire.
+            driverPins[trace.driverPin].rejected = true;
+            trace.rejected = true;
+            return;
+        }
+        driverPins[trace.driverPin] = trace;
+
+        for (Block sign : trace.signs) {
+            Node node = node(sign, null);
+            if (node == null) {
+                trace.rejected = true;
+                return;
+            }
+            for (int pin = 0; pin < node.inputCount; pin++) {
+                Block block = node.world.getPin(pin);
+                if (block != null && traced.get(key(block)) == trace) {
+                    trace.sinks.add(node);
+                    trace.sinkPins.add(pin);
+                    pins.get(node)[pin] = trace;
+                }
+            }
+        }
+        if (trace.sinks.isEmpty())
+            trace.rejected = true;
+    }
+
+    private Block getOutputSource(Node node) {
+
+        if (node.mechanic.family instanceof Family3I3O)
+            return node.world.icBlock.getRelative(SignUtil.getBack(node.sign));
+        return node.world.icBlock;
+    }
+
+    /**
+     * Orders the ICs so that every net is driven before it is read, and creates the network.
+     */
+    private LogicNetwork finish() {
+
+        List<Node> sorted = sort();
+        if (sorted.size() < order.size()) {
+            // The nets driven by ICs that could not be ordered form or follow a loop.
+            for (Trace trace : traces)
+                if (!trace.rejected && !sorted.contains(trace.driver))
+                    trace.rejected = true;
+            sorted = sort();
+        }
+
+        Node[] nodeArray = sorted.toArray(new Node[sorted.size()]);
+        for (int i = 0; i < nodeArray.length; i++)
+            nodeArray[i].index = i;
+
+        List<Net> nets = new ArrayList<Net>();
+        Map<Trace, Integer> netIndices = new IdentityHashMap<Trace, Integer>();
+        for (Trace trace : traces) {
+            if (trace.rejected)
+                continue;
+            Net net = new Net(trace.driver, trace.driverPin);
+            net.sinkNodes = new int[trace.sinks.size()];
+            net.sinkPins = new int[trace.sinks.size()];
+            for (int i = 0; i < net.sinkNodes.length; i++) {
+                net.sinkNodes[i] = trace.sinks.get(i).index;
+                net.sinkPins[i] = trace.sinkPins.get(i);
+            }
+            netIndices.put(trace, nets.size());
+            nets.add(net);
+        }
+
+        for (Node node : nodeArray) {
+            Trace[] nodePins = pins.get(node);
+            node.nets = new int[node.pinCount];
+            for (int pin = 0; pin < node.pinCount; pin++) {
+                Integer net = nodePins[pin] == null ? null : netIndices.get(nodePins[pin]);
+                node.nets[pin] = net == null ? -1 : net;
+            }
+        }
+
+        return new LogicNetwork(world, nodeArray, nets.toArray(new Net[nets.size()]), footprint.keys());
+    }
+
+    private List<Node> sort() {
+
+        Map<Node, Integer> waiting = new IdentityHashMap<Node, Integer>();
+        for (Node node : order)
+            waiting.put(node, 0);
+        for (Trace trace : traces)
+            if (!trace.rejected)
+                for (Node sink : trace.sinks)
+                    waiting.put(sink, waiting.get(sink) + 1);
+
+        List<Node> sorted = new ArrayList<Node>(order.size());
+        for (Node node : order)
+            if (waiting.get(node) == 0)
+                sorted.add(node);
+        for (int i = 0; i < sorted.size(); i++) {
+            Trace[] nodePins = pins.get(sorted.get(i));
+            for (Trace trace : nodePins) {
+                if (trace == null || trace.rejected || trace.driver != sorted.get(i))
+                    continue;
+                for (Node sink : trace.sinks) {
+                    int left = waiting.get(sink) - 1;
+                    waiting.put(sink, left);
+                    if (left == 0)
+                        sorted.add(sink);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Gets the block next to another, without loading the chunk it is in.
+     *
+     * @return the block, or null if its chunk is not loaded
+     */
+    private Block relative(Block block, BlockFace face) {
+
+        int x = block.getX() + face.getModX();
+        int y = block.getY() + face.getModY();
+        int z = block.getZ() + face.getModZ();
+        if (y < 0 || y >= world.getMaxHeight())
+            return null;
+        if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+            incomplete = true;
+            return null;
+        }
+        return world.getBlockAt(x, y, z);
+    }
+
+    private void touch(Block block) {
+
+        footprint.put(key(block), Boolean.TRUE);
+    }
+
+    private static long key(Block block) {
+
+        return BlockKey.pack(block.getX(), block.getY(), block.getZ());
+    }
+}
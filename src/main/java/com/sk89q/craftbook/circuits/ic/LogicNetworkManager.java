@@ -0,0 +1,252 @@
+package com.sk89q.craftbook.circuits.ic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.SignChangeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.util.BlockKey;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.worldedit.BlockWorldVector2D;
+
+/**
+ * Keeps the {@link LogicNetwork}s of the loaded {@link CompilableIC}s.
+ * <p>
+ * A network is built the first time an input of one of its ICs changes. It is dissolved, writing its nets back to the
+ * world, as soon as a block it depends on is placed, broken, moved or has its sign changed, or its chunk unloads, and is
+ * built again the next time it is needed. ICs that turn out not to be wired to any other IC are remembered in the same
+ * way, so they are only checked again when something near them changes.
+ * </p>
+ */
+public class LogicNetworkManager implements Listener {
+
+    /**
+     * The network of each IC, by the position of its sign.
+     */
+    private final ChunkedBlockMap<LogicNetwork> members = new ChunkedBlockMap<LogicNetwork>();
+
+    /**
+     * The networks that depend on each block.
+     */
+    private final ChunkedBlockMap<List<LogicNetwork>> footprints = new ChunkedBlockMap<List<LogicNetwork>>();
+
+    private final Set<LogicNetwork> networks = new LinkedHashSet<LogicNetwork>();
+
+    private long worldTriggers = 0;
+    private long worldNanos = 0;
+
+    /**
+     * Evaluates a {@link CompilableIC} after its inputs have changed, through its network if it has one.
+     *
+     * @param mechanic the IC
+     * @param sign the sign of the IC
+     * @param sources the blocks that changed
+     */
+    public void inputsChanged(ICMechanic mechanic, Block sign, List<Block> sources) {
+
+        LogicNetwork network = getNetwork(mechanic, sign);
+        if (network != null && network.isCompiled()) {
+            network.inputsChanged(mechanic, sign, sources);
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (mechanic.evaluate(sign, sources)) {
+            worldTriggers++;
+            worldNanos += System.nanoTime() - start;
+        }
+    }
+
+    private LogicNetwork getNetwork(ICMechanic mechanic, Block sign) {
+
+        String world = sign.getWorld().getName();
+        LogicNetwork network = members.get(world, sign.getX(), sign.getY(), sign.getZ());
+        if (network != null && network.isValid())
+            return network;
+        if (!LogicNetworkBuilder.canCompile(mechanic))
+            return null;
+
+        network = new LogicNetworkBuilder(sign.getWorld()).build(mechanic, sign);
+        if (network == null)
+            return null;
+
+        for (Block member : network.getSigns()) {
+            LogicNetwork old = members.get(world, member.getX(), member.getY(), member.getZ());
+            if (old != null && old != network)
+                dissolve(old);
+            members.put(world, member.getX(), member.getY(), member.getZ(), network);
+        }
+        for (long key : network.getFootprint()) {
+            int x = BlockKey.getX(key), y = BlockKey.getY(key), z = BlockKey.getZ(key);
+            List<LogicNetwork> dependents = footprints.get(world, x, y, z);
+            if (dependents == null) {
+                dependents = new ArrayList<LogicNetwork>(1);
+                footprints.put(world, x, y, z, dependents);
+            }
+            dependents.add(network);
+        }
+        networks.add(network);
+        return network;
+    }
+
+    /**
+     * Dissolves a network, writing its nets back to the world.
+     *
+     * @param network
+     */
+    public void dissolve(LogicNetwork network) {
+
+        if (!network.isValid())
+            return;
+
+        String world = network.getWorld().getName();
+        for (Block member : network.getSigns())
+            if (members.get(world, member.getX(), member.getY(), member.getZ()) == network)
+                members.remove(world, member.getX(), member.getY(), member.getZ());
+        for (long key : network.getFootprint()) {
+            int x = BlockKey.getX(key), y = BlockKey.getY(key), z = BlockKey.getZ(key);
+            List<LogicNetwork> dependents = footprints.get(world, x, y, z);
+            if (dependents != null) {
+                dependents.remove(network);
+                if (dependents.isEmpty())
+                    footprints.remove(world, x, y, z);
+            }
+        }
+        networks.remove(network);
+        network.dissolve();
+    }
+
+    /**
+     * Dissolves every network that depends on a block.
+     *
+     * @param block
+     */
+    public void dissolveAt(Block block) {
+
+        List<LogicNetwork> dependents = footprints.get(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+        if (dependents != null)
+            for (LogicNetwork network : new ArrayList<LogicNetwork>(dependents))
+                dissolve(network);
+    }
+
+    /**
+     * Dissolves every network.
+     */
+    public void dissolveAll() {
+
+        for (LogicNetwork network : new ArrayList<LogicNetwork>(networks))
+            dissolve(network);
+    }
+
+    /**
+     * Gets the networks, including those of ICs that are not wired to any other IC.
+     *
+     * @return a snapshot of the networks
+     */
+    public List<LogicNetwork> getNetworks() {
+
+        return new ArrayList<LogicNetwork>(networks);
+    }
+
+    /**
+     * Gets the amount of times an IC that could be compiled was triggered outside of a network.
+     *
+     * @return the amount of triggers
+     */
+    public long getWorldTriggers() {
+
+        return worldTriggers;
+    }
+
+    /**
+     * Gets the time spent triggering ICs that could be compiled outside of a network.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getWorldNanos() {
+
+        return worldNanos;
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockBreak(BlockBreakEvent event) {
+
+        dissolveAt(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockPlace(BlockPlaceEvent event) {
+
+        dissolveAt(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onSignChange(SignChangeEvent event) {
+
+        dissolveAt(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockBurn(BlockBurnEvent event) {
+
+        dissolveAt(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockFromTo(BlockFromToEvent event) {
+
+        dissolveAt(event.getToBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockPistonExtend(BlockPistonExtendEvent event) {
+
+        dissolveAt(event.getBlock());
+        for (Block block : event.getBlocks())
+            dissolveAt(block);
+        // The last block is pushed into the block beyond it.
+        if (!event.getBlocks().isEmpty())
+            dissolveAt(event.getBlocks().get(event.getBlocks().size() - 1).getRelative(event.getDirection()));
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockPistonRetract(BlockPistonRetractEvent event) {
+
+        dissolveAt(event.getBlock());
+        if (event.isSticky())
+            dissolveAt(event.getRetractLocation().getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onEntityExplode(EntityExplodeEvent event) {
+
+        for (Block block : event.blockList())
+            dissolveAt(block);
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+
+        World world = event.getWorld();
+        BlockWorldVector2D chunk = new BlockWorldVector2D(BukkitUtil.getLocalWorld(world), event.getChunk().getX(), event.getChunk().getZ());
+        for (List<LogicNetwork> dependents : footprints.getChunkValues(chunk))
+            for (LogicNetwork network : new ArrayList<LogicNetwork>(dependents))
+                dissolve(network);
+    }
+}
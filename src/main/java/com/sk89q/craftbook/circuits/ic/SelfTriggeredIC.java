@@ -40,4 +40,19 @@ public interface SelfTriggeredIC extends PersistentIC {
      * @return if the {@link IC} should always be ST.
      */
     public boolean isAlwaysST();
+
+    /**
+     * Gets the amount of ticks between thinks. ICs that watch something which changes slowly, such as the time of day,
+     * can think less often than the default. A sign can override this with [MC1234]S@interval:phase on the second line.
+     *
+     * @return the think interval, or 0 to use the configured st-think-ticks.
+     */
+    public int getThinkInterval();
+
+    /**
+     * Gets the tick within the think interval on which this {@link IC} thinks.
+     *
+     * @return the think phase, or -1 to let the scheduler decide.
+     */
+    public int getThinkPhase();
 }
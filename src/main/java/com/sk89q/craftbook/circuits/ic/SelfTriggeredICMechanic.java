@@ -16,32 +16,79 @@
 
 package com.sk89q.craftbook.circuits.ic;
 
-import org.bukkit.Material;
-import org.bukkit.block.Block;
+import java.util.regex.Matcher;
+
+import org.bukkit.World;
 
 import com.sk89q.craftbook.SelfTriggeringMechanic;
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.util.RegexUtil;
 import com.sk89q.worldedit.BlockWorldVector;
+import com.sk89q.worldedit.blocks.BlockID;
 
 public class SelfTriggeredICMechanic extends ICMechanic implements SelfTriggeringMechanic {
 
+    private final int thinkInterval;
+    private final int thinkPhase;
+
+    /**
+     * The state handed to the IC on every think, kept for as long as nothing in the chunk of the sign changes.
+     */
+    private ChipState chipState = null;
+    private long chipRevision = 0;
+
     public SelfTriggeredICMechanic(String id, SelfTriggeredIC ic, ICFamily family, BlockWorldVector pos) {
 
         super(id, ic, family, pos);
+
+        // The sign may override the think interval and phase of the IC, as in [MC1234]S@20:5
+        Matcher matcher = RegexUtil.IC_THINK_PATTERN.matcher(ic.getSign().getLine(1));
+        if (matcher.find()) {
+            thinkInterval = Integer.parseInt(matcher.group(1));
+            thinkPhase = matcher.group(2) == null ? -1 : Integer.parseInt(matcher.group(2));
+        } else {
+            thinkInterval = ic.getThinkInterval();
+            thinkPhase = ic.getThinkPhase();
+        }
+    }
+
+    @Override
+    public int getThinkInterval() {
+
+        return thinkInterval;
+    }
+
+    @Override
+    public int getThinkPhase() {
+
+        return thinkPhase;
     }
 
     @Override
     public void think() {
 
         BlockWorldVector pt = getTriggerPositions().get(0);
-        Block block = BukkitUtil.toWorld(pt).getBlockAt(BukkitUtil.toLocation(pt));
+        World world = BukkitUtil.toWorld(pt);
 
-        if (block.getType() == Material.WALL_SIGN) {
+        if (world.getBlockTypeIdAt(pt.getBlockX(), pt.getBlockY(), pt.getBlockZ()) != BlockID.WALL_SIGN) {
+            chipState = null;
+            return;
+        }
 
-            ic.getSign().updateSign(BukkitUtil.toChangedSign(block));
+        // Signs are only edited, turned or replaced through events that bump the revision of their chunk, so the sign
+        // and the pins only need to be looked up again after one of those.
+        long revision = CraftBookPlugin.inst().getManager().getRevision(world.getName(), pt.getBlockX() >> 4, pt.getBlockZ() >> 4);
+        if (chipState == null || revision != chipRevision) {
+            ic.getSign().updateSign(BukkitUtil.toChangedSign(world.getBlockAt(pt.getBlockX(), pt.getBlockY(), pt.getBlockZ())));
             // Assuming that the plugin host isn't going wonky here
-            ChipState chipState = family.detectSelfTriggered(pt, ic.getSign());
-            ((SelfTriggeredIC) ic).think(chipState);
+            if (chipState instanceof AbstractChipState)
+                ((AbstractChipState) chipState).refresh();
+            else
+                chipState = family.detectSelfTriggered(pt, ic.getSign());
+            chipRevision = revision;
         }
+
+        ((SelfTriggeredIC) ic).think(chipState);
     }
 }
\ No newline at end of file
@@ -106,7 +106,7 @@ public class Family3I3O extends AbstractICFamily {
         @Override
         public void set(int pin, boolean value) {
 
-            Block block = getBlock(pin);
+            Block block = getPin(pin);
             if (block != null) {
                 ICUtil.setState(block, value, icBlock.getRelative(SignUtil.getBack(BukkitUtil.toSign(sign).getBlock())));
             }
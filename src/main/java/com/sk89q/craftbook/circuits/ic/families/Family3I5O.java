@@ -88,7 +88,7 @@ public class Family3I5O extends AbstractICFamily {
         @Override
         public void set(int pin, boolean value) {
 
-            Block block = getBlock(pin);
+            Block block = getPin(pin);
             if (block != null) {
                 if(pin == 3 || pin == 4 || pin == 5)
                     ICUtil.setState(block, value, icBlock.getRelative(SignUtil.getBack(BukkitUtil.toSign(sign).getBlock()), 2));
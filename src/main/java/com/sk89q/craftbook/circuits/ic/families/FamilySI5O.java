@@ -85,7 +85,7 @@ public class FamilySI5O extends AbstractICFamily {
         @Override
         public void set(int pin, boolean value) {
 
-            Block block = getBlock(pin);
+            Block block = getPin(pin);
             if (block != null) {
                 if(pin == 1 || pin == 2 || pin == 3)
                     ICUtil.setState(block, value, icBlock.getRelative(SignUtil.getBack(BukkitUtil.toSign(sign).getBlock()), 2));
@@ -35,13 +35,22 @@ import com.sk89q.craftbook.util.InventoryUtil;
 import com.sk89q.craftbook.util.ItemSyntax;
 import com.sk89q.craftbook.util.ItemUtil;
 import com.sk89q.craftbook.util.LocationUtil;
+import com.sk89q.craftbook.util.Profiler;
 import com.sk89q.craftbook.util.RegexUtil;
 import com.sk89q.craftbook.util.SignUtil;
 import com.sk89q.craftbook.util.VerifyUtil;
 import com.sk89q.craftbook.util.events.SourcedBlockRedstoneEvent;
+import com.sk89q.worldedit.blocks.BlockID;
 
 public class Pipes extends AbstractCraftBookMechanic {
 
+    @Override
+    public boolean enable() {
+
+        CraftBookPlugin.inst().getManager().getInterestingBlocks().addTriggerBlock(BlockID.PISTON_STICKY_BASE);
+        return true;
+    }
+
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
     public void onSignChange(SignChangeEvent event) {
 
@@ -266,6 +275,16 @@ public class Pipes extends AbstractCraftBookMechanic {
 
     public void startPipe(Block block, List<ItemStack> items, boolean request) {
 
+        long start = Profiler.start();
+        try {
+            pipe(block, items, request);
+        } finally {
+            Profiler.stop(this, "startPipe", start, block);
+        }
+    }
+
+    private void pipe(Block block, List<ItemStack> items, boolean request) {
+
         Set<ItemStack> filters = new HashSet<ItemStack>();
         Set<ItemStack> exceptions = new HashSet<ItemStack>();
 
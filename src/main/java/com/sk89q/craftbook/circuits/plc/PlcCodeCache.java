@@ -0,0 +1,168 @@
+package com.sk89q.craftbook.circuits.plc;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.SignChangeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import com.sk89q.craftbook.circuits.ic.ICVerificationException;
+import com.sk89q.craftbook.util.BlockKey;
+import com.sk89q.craftbook.util.LongHashMap;
+
+/**
+ * Remembers where each PLC found its code, and the programs compiled from it.
+ * <p>
+ * A PLC searches its whole column for its code the first time it is loaded. After that it only reads the chest or code
+ * block it found, until a block in the column is placed, broken, moved by a piston, blown up or has its sign changed.
+ * The sources are kept while their chunk is unloaded, so a reloaded PLC does not search its column again. Programs are
+ * kept by the hash of their code, so editing a book or sign compiles the new code, while PLCs running the same code
+ * share a single program.
+ * </p>
+ */
+public class PlcCodeCache implements Listener {
+
+    private static final int MAX_PROGRAMS = 256;
+
+    /**
+     * World -> column -> y of a PLC -> y of the block its code was found at.
+     */
+    private final Map<String, LongHashMap<Map<Integer, Integer>>> sources = new HashMap<String, LongHashMap<Map<Integer,
+            Integer>>>();
+
+    /**
+     * Language and code hash -> the compiled program, least recently used first.
+     */
+    private final Map<String, Object> programs = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+
+            return size() > MAX_PROGRAMS;
+        }
+    };
+
+    /**
+     * Gets where the PLC at the given location last found its code.
+     *
+     * @return the y of the chest or code block, or null if the column has to be searched
+     */
+    public Integer getSource(World world, int x, int y, int z) {
+
+        LongHashMap<Map<Integer, Integer>> columns = sources.get(world.getName());
+        if (columns == null)
+            return null;
+        Map<Integer, Integer> column = columns.get(BlockKey.pack(x, 0, z));
+        return column == null ? null : column.get(y);
+    }
+
+    /**
+     * Sets where the PLC at the given location found its code.
+     */
+    public void setSource(World world, int x, int y, int z, int source) {
+
+        LongHashMap<Map<Integer, Integer>> columns = sources.get(world.getName());
+        if (columns == null) {
+            columns = new LongHashMap<Map<Integer, Integer>>();
+            sources.put(world.getName(), columns);
+        }
+        long key = BlockKey.pack(x, 0, z);
+        Map<Integer, Integer> column = columns.get(key);
+        if (column == null) {
+            column = new HashMap<Integer, Integer>(4);
+            columns.put(key, column);
+        }
+        column.put(y, source);
+    }
+
+    /**
+     * Gets the program compiled from some code, compiling it if it is not cached.
+     *
+     * @param lang
+     * @param code
+     * @param hash the hash of the code
+     *
+     * @return the program
+     *
+     * @throws ICVerificationException if the code does not compile
+     */
+    @SuppressWarnings("unchecked")
+    public <CodeT> CodeT compile(PlcLanguage<?, CodeT> lang, String code, String hash) throws ICVerificationException {
+
+        String key = lang.getName() + "$" + hash;
+        CodeT program = (CodeT) programs.get(key);
+        if (program == null) {
+            program = lang.compile(code);
+            programs.put(key, program);
+        }
+        return program;
+    }
+
+    /**
+     * Forgets where the PLCs in a column found their code.
+     *
+     * @param block a block in the column
+     */
+    public void invalidate(Block block) {
+
+        LongHashMap<Map<Integer, Integer>> columns = sources.get(block.getWorld().getName());
+        if (columns != null)
+            columns.remove(BlockKey.pack(block.getX(), 0, block.getZ()));
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockBreak(BlockBreakEvent event) {
+
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockPlace(BlockPlaceEvent event) {
+
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onSignChange(SignChangeEvent event) {
+
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+
+        invalidate(event.getBlock().getRelative(event.getDirection()));
+        // Each pushed block leaves its column for the next one.
+        for (Block block : event.getBlocks()) {
+            invalidate(block);
+            invalidate(block.getRelative(event.getDirection()));
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+
+        invalidate(event.getBlock().getRelative(event.getDirection()));
+        if (event.isSticky())
+            invalidate(event.getRetractLocation().getBlock());
+    }
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onEntityExplode(EntityExplodeEvent event) {
+
+        for (Block block : event.blockList())
+            invalidate(block);
+    }
+}
@@ -16,11 +16,7 @@
 
 package com.sk89q.craftbook.circuits.plc;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.file.Files;
@@ -46,6 +42,7 @@ import org.bukkit.inventory.meta.BookMeta;
 import org.bukkit.util.Vector;
 
 import com.sk89q.craftbook.ChangedSign;
+import com.sk89q.craftbook.bukkit.CircuitCore;
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
 import com.sk89q.craftbook.circuits.ic.ChipState;
@@ -59,13 +56,18 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
 
     private static final Logger logger = Logger.getLogger("Minecraft.CraftBook");
 
-    private static final int PLC_STORE_VERSION = 1;
-
     private Lang lang;
     private StateT state;
     private String codeString;
+    private String codeHash;
     private CodeT code;
 
+    private File storageLocation;
+    /**
+     * The state as it is kept in memory and saved, shared with every PLC that uses the same storage.
+     */
+    private PlcStateBank.PlcState<StateT> registers;
+
     private ChangedSign sign;
 
     private boolean error = false;
@@ -79,7 +81,7 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
         } catch (CodeNotFoundException e) {
             throw new ICVerificationException("Error retrieving code: " + e.getMessage());
         }
-        l.compile(codeString);
+        CircuitCore.inst().getPlcCodeCache().compile(l, codeString, hashCode(codeString));
     }
 
     public PlcIC(Server sv, ChangedSign s, Lang l) {
@@ -92,15 +94,16 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
         } catch (CodeNotFoundException e) {
             error("code missing", "Code went missing!!");
         }
+        codeHash = codeString == null ? "" : hashCode(codeString);
         try {
             if (codeString != null) {
-                code = lang.compile(codeString);
+                code = CircuitCore.inst().getPlcCodeCache().compile(lang, codeString, codeHash);
             }
         } catch (ICVerificationException e) {
             throw new RuntimeException("inconsistent compile check!", e);
         }
         state = lang.initState();
-        tryLoadState();
+        loadState();
     }
 
     private boolean isShared() {
@@ -123,6 +126,9 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
 
     private File getStorageLocation() {
 
+        if (storageLocation != null)
+            return storageLocation;
+
         World w = BukkitUtil.toWorld(sign.getLocalWorld());
         File worldDir = w.getWorldFolder();
         File targetDir = new File(new File(worldDir, "craftbook"), "plcs");
@@ -139,7 +145,8 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
             oldFolder.delete();
         }
         targetDir.mkdirs();
-        return new File(targetDir, getFileName());
+        storageLocation = new File(targetDir, getFileName());
+        return storageLocation;
     }
 
     private String hashCode(String code) {
@@ -163,72 +170,36 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
         }
     }
 
-    private void tryLoadState() {
-
-        try {
-            loadState();
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to load PLC state", e);
-            state = lang.initState();
-            getStorageLocation().delete();
-        }
-    }
-
-    private void loadState() throws IOException {
-
-        if (!getStorageLocation().exists()) return; // Prevent error spam
+    private void loadState() {
 
-        DataInputStream in = new DataInputStream(new FileInputStream(getStorageLocation()));
-        try {
-            switch (in.readInt()) {
-                case 1:
-                    error = in.readBoolean();
-                    errorString = in.readUTF();
-                case 0:
-                    String langName = in.readUTF();
-                    String id = in.readUTF();
-                    String code = hashCode(in.readUTF());
-                    if ((lang.getName().equals(langName) || lang.supports(langName))
-                            && (isShared() || id.equals(getID()) && hashCode(codeString).equals(code))) {
-                        lang.loadState(state, in);
-                    } else {
-                        // Prevent errors from different ICs from affecting this one.
-                        error = false;
-                        errorString = "no error";
-                    }
-                    break;
-                default:
-                    throw new IOException("incompatible version");
-            }
-        } finally {
-            in.close();
-        }
-    }
-
-    private void trySaveState() {
-
-        try {
-            saveState();
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to save PLC state", e);
-            state = lang.initState();
+        BlockWorldVector pos = sign.getBlockVector();
+        registers = CircuitCore.inst().getPlcStateBank().get(getStorageLocation(), lang, pos.getWorld().getName(), pos.getBlockX() >> 4, pos.getBlockZ() >> 4);
+        if (isShared() || getID().equals(registers.id) && codeHash.equals(registers.codeHash)) {
+            state = registers.state;
+            error = registers.error;
+            errorString = registers.errorString;
+        } else {
+            // Prevent errors from different ICs from affecting this one.
+            error = false;
+            errorString = "no error";
         }
     }
 
-    private void saveState() throws IOException {
-
-        DataOutputStream out = new DataOutputStream(new FileOutputStream(getStorageLocation()));
-        try {
-            out.writeInt(PLC_STORE_VERSION);
-            out.writeBoolean(error);
-            out.writeUTF(errorString);
-            out.writeUTF(lang.getName());
-            out.writeUTF(error ? "(error)" : getID());
-            out.writeUTF(hashCode(codeString));
-            lang.writeState(state, out);
-        } finally {
-            out.close();
-        }
+    /**
+     * Copies this PLC's state into the bank, which writes it to disk with its next batch.
+     */
+    private void saveState() {
+
+        if (registers == null) return;
+
+        registers.lang = lang;
+        registers.state = state;
+        registers.langName = lang.getName();
+        registers.id = error ? "(error)" : getID();
+        registers.codeHash = codeHash;
+        registers.error = error;
+        registers.errorString = errorString;
+        CircuitCore.inst().getPlcStateBank().markDirty(registers);
     }
 
     private String getBookCode(Block chestBlock) throws CodeNotFoundException {
@@ -256,38 +227,65 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
 
         Sign sign = BukkitUtil.toSign(this.sign);
 
-        Block above = sign.getLocation().add(new Vector(0, 1, 0)).getBlock();
-        if (above.getType() == Material.CHEST) return getBookCode(above);
-        Block below = sign.getLocation().add(new Vector(0, -1, 0)).getBlock();
-        if (below.getType() == Material.CHEST) return getBookCode(below);
-
         org.bukkit.Location l = sign.getLocation();
         World w = l.getWorld();
 
         int x = l.getBlockX();
         int z = l.getBlockZ();
 
+        // Go straight to where the code was last time, unless a block in the column has changed since.
+        PlcCodeCache cache = CircuitCore.inst().getPlcCodeCache();
+        Integer source = cache.getSource(w, x, l.getBlockY(), z);
+        if (source != null) {
+            Block b = w.getBlockAt(x, source, z);
+            if (b.getType() == Material.CHEST && Math.abs(source - l.getBlockY()) == 1) return getBookCode(b);
+            if (isCodeBlock(b)) return getCodeBlockCode(b, l.getBlockY());
+        }
+
+        Block above = sign.getLocation().add(new Vector(0, 1, 0)).getBlock();
+        if (above.getType() == Material.CHEST) {
+            cache.setSource(w, x, l.getBlockY(), z, above.getY());
+            return getBookCode(above);
+        }
+        Block below = sign.getLocation().add(new Vector(0, -1, 0)).getBlock();
+        if (below.getType() == Material.CHEST) {
+            cache.setSource(w, x, l.getBlockY(), z, below.getY());
+            return getBookCode(below);
+        }
+
         for (int y = 0; y < w.getMaxHeight(); y++) {
-            if (y != l.getBlockY()) if (SignUtil.isSign(w.getBlockAt(x, y, z))) {
-                ChangedSign s = BukkitUtil.toChangedSign(w.getBlockAt(x, y, z));
-                if (s.getLine(1).equalsIgnoreCase("[Code Block]")) {
-                    y--;
-                    Block b = w.getBlockAt(x, y, z);
-                    StringBuilder code = new StringBuilder();
-                    while (SignUtil.isSign(b)) {
-                        s = BukkitUtil.toChangedSign(b);
-                        for (int li = 0; li < 4 && y != l.getBlockY(); li++) {
-                            code.append(s.getLine(li)).append("\n");
-                        }
-                        b = w.getBlockAt(x, --y, z);
-                    }
-                    return code.toString();
-                }
+            if (y != l.getBlockY()) if (isCodeBlock(w.getBlockAt(x, y, z))) {
+                cache.setSource(w, x, l.getBlockY(), z, y);
+                return getCodeBlockCode(w.getBlockAt(x, y, z), l.getBlockY());
             }
         }
         throw new CodeNotFoundException("No code source found.");
     }
 
+    private boolean isCodeBlock(Block block) {
+
+        return SignUtil.isSign(block) && BukkitUtil.toChangedSign(block).getLine(1).equalsIgnoreCase("[Code Block]");
+    }
+
+    private String getCodeBlockCode(Block codeBlock, int plcY) {
+
+        World w = codeBlock.getWorld();
+        int x = codeBlock.getX();
+        int y = codeBlock.getY() - 1;
+        int z = codeBlock.getZ();
+
+        Block b = w.getBlockAt(x, y, z);
+        StringBuilder code = new StringBuilder();
+        while (SignUtil.isSign(b)) {
+            ChangedSign s = BukkitUtil.toChangedSign(b);
+            for (int li = 0; li < 4 && y != plcY; li++) {
+                code.append(s.getLine(li)).append("\n");
+            }
+            b = w.getBlockAt(x, --y, z);
+        }
+        return code.toString();
+    }
+
     @Override
     public String getTitle() {
 
@@ -309,20 +307,16 @@ class PlcIC<StateT, CodeT, Lang extends PlcLanguage<StateT, CodeT>> implements I
         error = true;
         errorString = detailedMessage;
 
-        trySaveState();
+        saveState();
     }
 
     @Override
     public void trigger(ChipState chip) {
 
         try {
-            if (isShared()) {
-                tryLoadState();
-            }
-
             lang.execute(chip, state, code);
 
-            trySaveState();
+            saveState();
         } catch (PlcException e) {
             error(e.getMessage(), e.detailedMessage);
         } catch (Exception e) {
@@ -29,6 +29,9 @@ public interface PlcLanguage<StateT, CodeT> {
 
     StateT initState();
 
+    /**
+     * Compiles code. The result is shared by every PLC running the same code, so executing it must not change it.
+     */
     CodeT compile(String code) throws ICVerificationException;
 
     boolean supports(String lang);
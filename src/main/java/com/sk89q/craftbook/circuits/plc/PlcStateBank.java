@@ -0,0 +1,343 @@
+package com.sk89q.craftbook.circuits.plc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.craftbook.util.LongHashMap;
+
+/**
+ * Keeps the state of every loaded PLC in memory, by the file it is stored in. A state is only read from disk the first
+ * time a PLC using that file is loaded, so PLCs that share a storage name share a single state and see each other's
+ * changes straight away.
+ * <p>
+ * States that changed are written back in batches every few ticks. They are copied on the main thread and written by a
+ * background thread, each to a temporary file that then replaces the old one.
+ * </p>
+ * <p>
+ * Each state remembers the chunks of the PLCs using it. Once all of them have unloaded, the state is dropped from memory
+ * as soon as it has been handed to the writer, and is read again the next time a PLC using it loads.
+ * </p>
+ */
+public class PlcStateBank implements Runnable, Listener {
+
+    private static final Logger logger = Logger.getLogger("Minecraft.CraftBook");
+
+    private static final int PLC_STORE_VERSION = 1;
+
+    /**
+     * The state stored in a single file, along with what is needed to tell whether a PLC may use it.
+     */
+    static class PlcState<StateT> {
+
+        final File file;
+        final String world;
+        /**
+         * The chunks of the loaded PLCs that use this state.
+         */
+        final Set<Long> chunks = new HashSet<Long>(2);
+
+        PlcLanguage<StateT, ?> lang;
+        StateT state;
+
+        String langName;
+        /**
+         * The ID and code hash of the PLC that last saved this state, or null if none has.
+         */
+        String id = null;
+        String codeHash = null;
+
+        boolean error = false;
+        String errorString = "no error";
+
+        PlcState(File file, String world, PlcLanguage<StateT, ?> lang) {
+
+            this.file = file;
+            this.world = world;
+            this.lang = lang;
+            state = lang.initState();
+            langName = lang.getName();
+        }
+
+        private void read(DataInputStream in) throws IOException {
+
+            switch (in.readInt()) {
+                case 1:
+                    error = in.readBoolean();
+                    errorString = in.readUTF();
+                case 0:
+                    String name = in.readUTF();
+                    String id = in.readUTF();
+                    String codeHash = in.readUTF();
+                    if (lang.getName().equals(name) || lang.supports(name)) {
+                        lang.loadState(state, in);
+                        this.id = id;
+                        this.codeHash = codeHash;
+                    } else {
+                        // The state belongs to another language, so no PLC may use it.
+                        error = false;
+                        errorString = "no error";
+                    }
+                    break;
+                default:
+                    throw new IOException("incompatible version");
+            }
+        }
+
+        private byte[] write() throws IOException {
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(PLC_STORE_VERSION);
+            out.writeBoolean(error);
+            out.writeUTF(errorString);
+            out.writeUTF(langName);
+            out.writeUTF(id == null ? "" : id);
+            out.writeUTF(codeHash == null ? "" : codeHash);
+            lang.writeState(state, out);
+            out.close();
+            return bytes.toByteArray();
+        }
+    }
+
+    private final Map<File, PlcState<?>> states = new HashMap<File, PlcState<?>>();
+    private final Set<PlcState<?>> dirty = new LinkedHashSet<PlcState<?>>();
+
+    /**
+     * The states used by the PLCs in each chunk, by world.
+     */
+    private final Map<String, LongHashMap<List<PlcState<?>>>> byChunk = new HashMap<String, LongHashMap<List<PlcState<?>>>>();
+
+    /**
+     * Changed states that are no longer used, to drop once they have been handed to the writer.
+     */
+    private final Set<PlcState<?>> released = new HashSet<PlcState<?>>();
+
+    /**
+     * The states handed to the writer that it has not written yet, so they are read from here instead of their file.
+     */
+    private final Map<File, byte[]> writing = new ConcurrentHashMap<File, byte[]>();
+
+    private ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    /**
+     * Gets the state stored in a file, reading it if this is the first time it is used. If the file cannot be read it
+     * is deleted, and a new state is used. The state is kept in memory until the chunk of the PLC unloads.
+     *
+     * @param file
+     * @param lang the language of the PLC asking for the state
+     * @param world the world of the PLC
+     * @param chunkX the chunk of the PLC
+     * @param chunkZ
+     *
+     * @return the state
+     */
+    @SuppressWarnings("unchecked")
+    <StateT> PlcState<StateT> get(File file, PlcLanguage<StateT, ?> lang, String world, int chunkX, int chunkZ) {
+
+        PlcState<StateT> state = (PlcState<StateT>) states.get(file);
+        if (state == null) {
+            state = read(file, lang, world);
+            states.put(file, state);
+        }
+
+        long key = ChunkedBlockMap.getChunkKey(chunkX, chunkZ);
+        if (state.chunks.add(key)) {
+            LongHashMap<List<PlcState<?>>> chunks = byChunk.get(world);
+            if (chunks == null) {
+                chunks = new LongHashMap<List<PlcState<?>>>();
+                byChunk.put(world, chunks);
+            }
+            List<PlcState<?>> users = chunks.get(key);
+            if (users == null) {
+                users = new ArrayList<PlcState<?>>(1);
+                chunks.put(key, users);
+            }
+            users.add(state);
+        }
+        released.remove(state);
+        return state;
+    }
+
+    private <StateT> PlcState<StateT> read(File file, PlcLanguage<StateT, ?> lang, String world) {
+
+        PlcState<StateT> state = new PlcState<StateT>(file, world, lang);
+        byte[] pending = writing.get(file);
+        File temp = new File(file.getPath() + ".tmp");
+        // A crash while replacing the file can leave only the new one.
+        if (pending == null && !file.exists() && temp.exists() && !temp.renameTo(file))
+            logger.warning("Failed to recover PLC state from " + temp.getName() + "!");
+        if (pending != null || file.exists()) {
+            try {
+                DataInputStream in = new DataInputStream(pending != null ? new ByteArrayInputStream(pending) : new FileInputStream(file));
+                try {
+                    state.read(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to load PLC state", e);
+                state = new PlcState<StateT>(file, world, lang);
+                file.delete();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Marks a state as changed, so it is written with the next batch.
+     *
+     * @param state
+     */
+    void markDirty(PlcState<?> state) {
+
+        dirty.add(state);
+        // A PLC may still hold a state that was dropped, in which case it is kept until it has been written again.
+        if (!states.containsKey(state.file))
+            states.put(state.file, state);
+        if (state.chunks.isEmpty())
+            released.add(state);
+    }
+
+    /**
+     * Lets go of the states of the PLCs in a chunk that unloads, dropping those no other loaded PLC uses.
+     *
+     * @param event
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+
+        String world = event.getWorld().getName();
+        LongHashMap<List<PlcState<?>>> chunks = byChunk.get(world);
+        if (chunks == null)
+            return;
+        long key = ChunkedBlockMap.getChunkKey(event.getChunk().getX(), event.getChunk().getZ());
+        List<PlcState<?>> users = chunks.remove(key);
+        if (users == null)
+            return;
+        if (chunks.isEmpty())
+            byChunk.remove(world);
+
+        for (PlcState<?> state : users) {
+            state.chunks.remove(key);
+            if (!state.chunks.isEmpty())
+                continue;
+            if (dirty.contains(state))
+                released.add(state);
+            else if (states.get(state.file) == state)
+                states.remove(state.file);
+        }
+    }
+
+    /**
+     * Hands every changed state to the writer.
+     */
+    public void flush() {
+
+        if (dirty.isEmpty() || writer == null)
+            return;
+
+        final List<File> files = new ArrayList<File>(dirty.size());
+        final List<byte[]> data = new ArrayList<byte[]>(dirty.size());
+        for (PlcState<?> state : dirty) {
+            try {
+                byte[] bytes = state.write();
+                data.add(bytes);
+                files.add(state.file);
+                writing.put(state.file, bytes);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to save PLC state", e);
+            }
+        }
+        dirty.clear();
+
+        for (PlcState<?> state : released)
+            if (states.get(state.file) == state)
+                states.remove(state.file);
+        released.clear();
+
+        writer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                for (int i = 0; i < files.size(); i++) {
+                    try {
+                        write(files.get(i), data.get(i));
+                    } catch (IOException e) {
+                        logger.log(Level.SEVERE, "Failed to save PLC state", e);
+                    } finally {
+                        writing.remove(files.get(i), data.get(i));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+
+        flush();
+    }
+
+    /**
+     * Writes every changed state, and waits for the writer to finish.
+     */
+    public void close() {
+
+        flush();
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                if (!writer.awaitTermination(30, TimeUnit.SECONDS))
+                    logger.warning("Timed out waiting for PLC states to be written!");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+        states.clear();
+        byChunk.clear();
+        released.clear();
+        writing.clear();
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(data);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        // Renaming replaces the file in one step where the platform allows it.
+        if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file)))
+            throw new IOException("Failed to replace " + file.getName());
+    }
+}
@@ -20,8 +20,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.EmptyStackException;
-import java.util.Stack;
+import java.util.Arrays;
 
 import org.bukkit.ChatColor;
 
@@ -31,13 +30,63 @@ import com.sk89q.craftbook.circuits.ic.ICVerificationException;
 import com.sk89q.craftbook.circuits.plc.PlcException;
 import com.sk89q.craftbook.circuits.plc.PlcLanguage;
 
-public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]> {
+/**
+ * Perlstone, the language of the PLC ICs.
+ * <p>
+ * Code is compiled once into {@link PerlstoneFunction}s: brackets know where their partner is, addresses and call
+ * targets are decoded, and each opcode is a single instruction. The interpreter keeps its values on a boolean stack in
+ * a frame per call depth, and the frames are reused by every execution, so running a PLC allocates nothing.
+ * </p>
+ */
+public class Perlstone implements PlcLanguage<boolean[], PerlstoneFunction[]> {
 
     private static final int MAX_INSTRUCTION_COUNT = 10000;
     private static final int MAX_STACK_SIZE = 64;
     private static final int MAX_RECURSION = 16;
     private static final int PERLSTONE_STORE_VERSION = 0;
 
+    // Opcodes of compiled functions, and what their operands hold.
+    private static final byte OP_NOP = 0;
+    private static final byte OP_PUSH_TRUE = 1;
+    private static final byte OP_PUSH_FALSE = 2;
+    private static final byte OP_PUSH_A = 3;
+    private static final byte OP_PUSH_B = 4;
+    private static final byte OP_PUSH_C = 5;
+    private static final byte OP_SHIFT = 6; // table, amount
+    private static final byte OP_RESET_SHIFT = 7; // table
+    private static final byte OP_STORE = 8; // table, address
+    private static final byte OP_STORE_SHIFTED = 9; // table, address before the shift
+    private static final byte OP_LOAD = 10; // table, address
+    private static final byte OP_LOAD_SHIFTED = 11; // table, address before the shift
+    private static final byte OP_DUP = 12;
+    private static final byte OP_POP = 13;
+    private static final byte OP_PEEK = 14; // depth
+    private static final byte OP_SWAP = 15;
+    private static final byte OP_NOT = 16;
+    private static final byte OP_XOR = 17;
+    private static final byte OP_AND = 18;
+    private static final byte OP_OR = 19;
+    private static final byte OP_EQUALS = 20;
+    private static final byte OP_TABLE = 21; // results, as bits indexed by 2 * top + second
+    private static final byte OP_CALL = 22; // function, argument count
+    private static final byte OP_TAIL_CALL = 23; // function, argument count
+    private static final byte OP_BRANCH_START = 24; // index of the matching end
+    private static final byte OP_BRANCH_END = 25; // index of the matching start
+    private static final byte OP_STOP = 26;
+    private static final byte OP_RETURN = 27;
+
+    private static final int TABLE_PERSISTENT = 0;
+    private static final int TABLE_TEMP = 1;
+    private static final int TABLE_LOCAL = 2;
+
+    private static final int NO_RESULT = -1;
+
+    /**
+     * Execution contexts that are not in use. Setting an output can trigger another PLC before this one is done, so
+     * every execution takes its own.
+     */
+    private Context freeContexts = null;
+
     @Override
     public String getName() {
 
@@ -50,6 +99,7 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
         return new boolean[32];
     }
 
+
     private WithLineInfo<char[]> markLines(String code) {
 
         char[] chars = code.toCharArray();
@@ -112,57 +162,105 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
     }
 
     @Override
-    public WithLineInfo<String>[] compile(String code) throws ICVerificationException {
+    public PerlstoneFunction[] compile(String code) throws ICVerificationException {
 
         WithLineInfo<String>[] functions = splitFunctions(markLines(code));
+        PerlstoneFunction[] compiled = new PerlstoneFunction[functions.length];
         for (int l = 0; l < functions.length; l++) {
             WithLineInfo<String> line = functions[l];
             char[] chars = line.code.toCharArray();
             LineInfo[] li = line.lineInfo;
+
+            // Every instruction takes at least one character.
+            byte[] ops = new byte[chars.length];
+            int[] first = new int[chars.length];
+            int[] second = new int[chars.length];
+            char[] opcodes = new char[chars.length];
+            LineInfo[] lines = new LineInfo[chars.length];
+            int[] openBrackets = new int[chars.length];
+            int count = 0;
+
             int bracketCount = 0;
-            if (chars.length == 0) {
-                continue;
-            }
             for (int i = 0; i < chars.length; i++) {
                 try {
                     char c = chars[i];
+                    int at = count++;
+                    opcodes[at] = c;
+                    lines[at] = li[i];
                     switch (c) {
                         case '[':
+                            openBrackets[bracketCount] = at;
                             bracketCount++;
+                            ops[at] = OP_BRANCH_START;
                             break;
                         case ']':
                             if (bracketCount == 0)
                                 throw new ICVerificationException("Too many closing braces " + "on line " + li[i]
                                         .line + " at column " + li[i].col);
                             bracketCount--;
+                            ops[at] = OP_BRANCH_END;
+                            first[at] = openBrackets[bracketCount];
+                            first[openBrackets[bracketCount]] = at;
                             break;
                         case '+':
+                            ops[at] = OP_PUSH_TRUE;
+                            break;
                         case '-':
+                            ops[at] = OP_PUSH_FALSE;
+                            break;
                         case 'A':
+                            ops[at] = OP_PUSH_A;
+                            break;
                         case 'B':
+                            ops[at] = OP_PUSH_B;
+                            break;
                         case 'C':
+                            ops[at] = OP_PUSH_C;
+                            break;
                         case 'd':
+                            ops[at] = OP_DUP;
+                            break;
                         case 'p':
+                            ops[at] = OP_POP;
+                            break;
                         case 'x':
+                            ops[at] = OP_SWAP;
+                            break;
                         case '!':
+                            ops[at] = OP_NOT;
+                            break;
                         case '|':
+                            ops[at] = OP_OR;
+                            break;
                         case '=':
+                            ops[at] = OP_EQUALS;
+                            break;
                         case '&':
+                            ops[at] = OP_AND;
+                            break;
                         case '^':
+                            ops[at] = OP_XOR;
+                            break;
                         case 's':
+                            ops[at] = OP_STOP;
+                            break;
                         case 'r':
+                            ops[at] = OP_RETURN;
                             break;
 
                         case '<':
                         case '>':
                         case 'e':
                         case 'S':
-                        case 'L':
+                        case 'L': {
+                            // r was accepted in place of t for a long time, and is kept as an instruction that does nothing.
                             switch (chars[++i]) {
                                 case 'p':
+                                case 't':
                                 case 'r':
                                 case 'l':
                                 case 'P':
+                                case 'T':
                                 case 'R':
                                 case 'L':
                                     break;
@@ -171,14 +269,36 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
                                             + c + " " + "on line "
                                             + li[i].line + " at column " + li[i].col);
                             }
+                            int table = decodeTable(chars[i]);
+                            boolean shifted = Character.isLowerCase(chars[i]);
                             if (c == 'S' || c == 'L') {
                                 char p = chars[++i];
                                 if (!(p >= '0' || p <= '9') && !(p >= 'a' || p <= 'v'))
                                     throw new ICVerificationException("Bad table index " + chars[i] + " for opcode "
                                             + c + " " + "on line "
                                             + li[i].line + " at column " + li[i].col);
+                                if (table < 0) {
+                                    ops[at] = OP_NOP;
+                                } else {
+                                    if (c == 'S')
+                                        ops[at] = shifted ? OP_STORE_SHIFTED : OP_STORE;
+                                    else
+                                        ops[at] = shifted ? OP_LOAD_SHIFTED : OP_LOAD;
+                                    first[at] = table;
+                                    second[at] = shifted ? decodeAddress(p) : decodeAddress(p) & 31;
+                                }
+                            } else if (table < 0) {
+                                ops[at] = OP_NOP;
+                            } else if (c == 'e') {
+                                ops[at] = OP_RESET_SHIFT;
+                                first[at] = table;
+                            } else {
+                                ops[at] = OP_SHIFT;
+                                first[at] = table;
+                                second[at] = c == '<' ? -1 : 1;
                             }
-                            break;
+                        }
+                        break;
 
                         case 'v': {
                             char n = chars[++i];
@@ -186,15 +306,20 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
                                 throw new ICVerificationException("Bad peek depth " + chars[i] + " " + "on line " +
                                         li[i].line + " at column "
                                         + li[i].col);
+                            ops[at] = OP_PEEK;
+                            first[at] = parseNumber(n);
                         }
                         break;
 
-                        case '.':
+                        case '.': {
+                            int results = 0;
                             for (int j = 0; j < 4; j++) {
                                 switch (chars[++i]) {
                                     case '+':
-                                    case '-':
                                     case '1':
+                                        results |= 1 << j;
+                                        break;
+                                    case '-':
                                     case '0':
                                         break;
 
@@ -204,25 +329,32 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
                                                 + " at column " + li[i].col);
                                 }
                             }
-                            break;
+                            ops[at] = OP_TABLE;
+                            first[at] = results;
+                        }
+                        break;
 
                         case 'c':
-                        case 't':
+                        case 't': {
+                            int n = 0;
                             for (int j = 0; j < 2; j++) {
-                                char n = chars[++i];
-                                if (!(n >= '0' || n <= '9'))
+                                char d = chars[++i];
+                                if (!(d >= '0' || d <= '9'))
                                     throw new ICVerificationException("Invalid character " + chars[i] + " in function" +
                                             " number " + "on line "
                                             + li[i].line + " at column " + li[i].col);
+                                n = n * 10 + parseNumber(d);
                             }
-                            {
-                                char n = chars[++i];
-                                if (!(n >= '0' || n <= '9'))
-                                    throw new ICVerificationException("Invalid character " + chars[i] + " in argument " +
-                                            "count " + "on line "
-                                            + li[i].line + " at column " + li[i].col);
-                            }
-                            break;
+                            char d = chars[++i];
+                            if (!(d >= '0' || d <= '9'))
+                                throw new ICVerificationException("Invalid character " + chars[i] + " in argument " +
+                                        "count " + "on line "
+                                        + li[i].line + " at column " + li[i].col);
+                            ops[at] = c == 'c' ? OP_CALL : OP_TAIL_CALL;
+                            first[at] = n;
+                            second[at] = parseNumber(d);
+                        }
+                        break;
 
                         default:
                             throw new ICVerificationException("Unknown opcode " + c + " " + "on line " + li[i].line +
@@ -238,8 +370,11 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
                 throw new ICVerificationException("Missing closing braces in function #" + l + " " + "               " +
                         "           starting on line "
                         + li[0].line + " and ending on line " + li[li.length - 1].line);
+
+            compiled[l] = new PerlstoneFunction(Arrays.copyOf(ops, count), Arrays.copyOf(first, count),
+                    Arrays.copyOf(second, count), Arrays.copyOf(opcodes, count), Arrays.copyOf(lines, count));
         }
-        return functions;
+        return compiled;
     }
 
     @Override
@@ -263,24 +398,25 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
     }
 
     @Override
-    public void execute(ChipState chip, boolean[] state, WithLineInfo<String>[] code) throws PlcException {
+    public void execute(ChipState chip, boolean[] state, PerlstoneFunction[] code) throws PlcException {
 
-        boolean[] tt = new boolean[32];
         boolean a = chip.getInputCount() > 0 && chip.getInput(0);
         boolean b = chip.getInputCount() > 1 && chip.getInput(1);
         boolean c = chip.getInputCount() > 2 && chip.getInput(2);
 
-        for (int i = 0; i < chip.getOutputCount(); i++) {
-            if (i < code.length) {
-                Boolean r = executeFunction(i, state, tt, code, a, b, c, new boolean[0], new int[1], 0);
-                if (r == null) {
-                    chip.setOutput(i, false);
+        Context context = acquireContext();
+        try {
+            for (int i = 0; i < chip.getOutputCount(); i++) {
+                if (i < code.length) {
+                    context.instructions = 0;
+                    context.frame(0).sp = 0;
+                    chip.setOutput(i, executeFunction(i, state, code, a, b, c, context, 0) == 1);
                 } else {
-                    chip.setOutput(i, r);
+                    chip.setOutput(i, false);
                 }
-            } else {
-                chip.setOutput(i, false);
             }
+        } finally {
+            releaseContext(context);
         }
     }
 
@@ -290,15 +426,37 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
         return false;
     }
 
-    private int mod(int a, int b) {
+    /**
+     * Gets the table a modifier refers to.
+     *
+     * @param c the modifier
+     *
+     * @return the table, or -1 if the modifier does not refer to one
+     */
+    private int decodeTable(char c) {
 
-        return (a % b + b) % b;
+        switch (c) {
+            case 'p':
+            case 'P':
+                return TABLE_PERSISTENT;
+            case 't':
+            case 'T':
+                return TABLE_TEMP;
+            case 'l':
+            case 'L':
+                return TABLE_LOCAL;
+            default:
+                return -1;
+        }
     }
 
-    private int decodeAddress(char c, int shift) {
+    /**
+     * Decodes an address. It still has to be shifted and wrapped into the table with {@code & 31}.
+     */
+    private int decodeAddress(char c) {
 
-        if (c >= '0' && c <= '9') return mod(c - '0' + shift, 32);
-        else return mod(c - 'a' + 10 + shift, 32);
+        if (c >= '0' && c <= '9') return c - '0';
+        else return c - 'a' + 10;
     }
 
     private int parseNumber(char c) {
@@ -306,27 +464,33 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
         return c - '0';
     }
 
-    private boolean parseTableChar(char c) throws PlcException {
+    private Context acquireContext() {
 
-        switch (c) {
-            case '+':
-                return true;
-            case '-':
-                return false;
-            case '1':
-                return true;
-            case '0':
-                return false;
-
-                // Shouldn't happen because of validation.
-            default:
-                throw new PlcException("invalid table", "Invalid character in logic table.");
+        Context context = freeContexts;
+        if (context == null) {
+            context = new Context();
+        } else {
+            freeContexts = context.next;
+            context.next = null;
         }
+        Arrays.fill(context.temp, false);
+        return context;
+    }
+
+    private void releaseContext(Context context) {
+
+        context.next = freeContexts;
+        freeContexts = context;
+    }
+
+    private static PlcException emptyStack() {
+
+        return new PlcException("empty stack", "Popped while stack was empty.");
     }
 
     private String errmsg(String err, int fno, char opcode, LineInfo li, boolean[] pt, boolean[] tt, boolean[] lt,
             int pshift, int tshift,
-            int lshift, Stack<Boolean> stack, int tc) {
+            int lshift, boolean[] stack, int sp, int tc) {
 
         String errm = "";
         if (!err.startsWith(ChatColor.RED + "Detailed Error Message: ")) {
@@ -347,291 +511,248 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
                 + fno + "\n";
         errm += ChatColor.RED + "Local Variable Table: \n " + ChatColor.RESET + dumpStateText(lt) + "\n";
         errm += ChatColor.RED + " - Shift: " + ChatColor.RESET + lshift + "\n";
-        errm += ChatColor.RED + "Function Stack: " + ChatColor.RESET + dumpStateText(stack.toArray(new Boolean[stack
-                                                                                                               .size()]));
+        errm += ChatColor.RED + "Function Stack: " + ChatColor.RESET + dumpStateText(stack, sp);
         return errm;
     }
 
-    // Use wrapper type to be able to express "no return" as null
-    private Boolean executeFunction(int fno, boolean[] pt, boolean[] tt, WithLineInfo<String>[] funs, boolean a,
-            boolean b, boolean c,
-            boolean[] args, int[] opc, int rec) throws PlcException {
+    /**
+     * Runs a function in the frame for the given depth, which must already hold its arguments.
+     *
+     * @return 1 or 0 if the function returned a value, or {@link #NO_RESULT}
+     */
+    private int executeFunction(int fno, boolean[] pt, PerlstoneFunction[] funs, boolean a, boolean b, boolean c,
+            Context context, int rec) throws PlcException {
 
+        Frame frame = context.frame(rec);
+        frame.tables[TABLE_PERSISTENT] = pt;
         int tailcalls = 0;
 
         // Wrap in an while(true) to allow the t opcode to be a tail call.
         outer:
             while (true) {
-                String fn = funs[fno].code;
-                LineInfo[] lis = funs[fno].lineInfo;
-                char[] code = fn.toCharArray();
-                int[] jt = new int[code.length]; // Jump table so that [ and ] aren't that messy
-                /* scope */
-                {
-                    Stack<Integer> bracketStack = new Stack<Integer>();
-                    for (int i = 0; i < code.length; i++) {
-                        char ch = code[i];
-                        if (ch == '[') {
-                            bracketStack.push(i);
-                        } else if (ch == ']') {
-                            int j = bracketStack.pop();
-                            jt[i] = j;
-                            jt[j] = i;
-                        }
-                    }
-                }
+                PerlstoneFunction fn = funs[fno];
+                byte[] ops = fn.ops;
+                int[] first = fn.first;
+                int[] second = fn.second;
+                boolean[][] tables = frame.tables;
+                int[] shifts = frame.shifts;
+                boolean[] stack = frame.stack;
+                int sp = frame.sp;
+                Arrays.fill(frame.locals, false);
+                Arrays.fill(shifts, 0);
 
                 int ip = 0;
-                Stack<Boolean> executionStack = new Stack<Boolean>();
-                for (boolean arg1 : args) {
-                    executionStack.push(arg1);
-                }
-                boolean[] lt = new boolean[32];
-                int pshift = 0;
-                int tshift = 0;
-                int lshift = 0;
-                char op = '?';
-
-                LineInfo li = new LineInfo(0, 0);
+                int at = -1; // The instruction being run, for error messages.
                 try {
                     if (rec > MAX_RECURSION)
                         throw new PlcException("stack overflow", "Aborted due to too many recursive non-tail calls.");
                     try {
-                        while (ip < code.length) {
-                            opc[0]++;
-                            if (opc[0] == MAX_INSTRUCTION_COUNT)
+                        // The stack is checked before every instruction, and none grows it by more than one value.
+                        while (ip < ops.length) {
+                            if (++context.instructions == MAX_INSTRUCTION_COUNT)
                                 throw new PlcException("ran too long", "Aborted due to running too many instructions in " +
                                         "one update");
-                            if (executionStack.size() > MAX_STACK_SIZE)
+                            if (sp > MAX_STACK_SIZE)
                                 throw new PlcException("stack too big", "Aborted due to too many values pushed onto stack" +
                                         ".");
-                            op = code[ip];
-                            li = lis[ip];
-                            switch (op) {
-                                case '+':
-                                    executionStack.push(true);
+                            at = ip;
+                            switch (ops[ip]) {
+                                case OP_PUSH_TRUE:
+                                    stack[sp++] = true;
                                     break;
-                                case '-':
-                                    executionStack.push(false);
+                                case OP_PUSH_FALSE:
+                                    stack[sp++] = false;
                                     break;
 
-                                case 'A':
-                                    executionStack.push(a);
+                                case OP_PUSH_A:
+                                    stack[sp++] = a;
                                     break;
-                                case 'B':
-                                    executionStack.push(b);
+                                case OP_PUSH_B:
+                                    stack[sp++] = b;
                                     break;
-                                case 'C':
-                                    executionStack.push(c);
+                                case OP_PUSH_C:
+                                    stack[sp++] = c;
                                     break;
 
-                                case '<':
-                                case '>':
-                                case 'e': {
-                                    int mul = 1;
-                                    int add = 0;
-                                    switch (code[ip]) {
-                                        case '<':
-                                            add = -1;
-                                            break;
-                                        case '>':
-                                            add = +1;
-                                            break;
-                                        case 'e':
-                                            mul = 0;
-                                            break;
-                                        default:
-                                            break;
-                                    }
+                                case OP_SHIFT:
+                                    shifts[first[ip]] += second[ip];
+                                    break;
+                                case OP_RESET_SHIFT:
+                                    shifts[first[ip]] = 0;
+                                    break;
 
-                                    switch (code[++ip]) {
-                                        case 'p':
-                                        case 'P':
-                                            pshift = mul * pshift + add;
-                                            break;
-                                        case 't':
-                                        case 'T':
-                                            tshift = mul * tshift + add;
-                                            break;
-                                        case 'l':
-                                        case 'L':
-                                            lshift = mul * lshift + add;
-                                            break;
-                                        default:
-                                            break;
-                                    }
+                                case OP_STORE:
+                                    if (sp == 0) throw emptyStack();
+                                    tables[first[ip]][second[ip]] = stack[--sp];
+                                    break;
+                                case OP_STORE_SHIFTED: {
+                                    if (sp == 0) throw emptyStack();
+                                    int table = first[ip];
+                                    tables[table][(second[ip] + shifts[table]) & 31] = stack[--sp];
                                 }
                                 break;
-
-                                case 'S':
-                                case 'L': {
-                                    boolean[] table = null;
-                                    int shift = 0;
-
-                                    switch (code[++ip]) {
-                                        case 'p':
-                                            shift = pshift;
-                                        case 'P':
-                                            table = pt;
-                                            break;
-                                        case 't':
-                                            shift = tshift;
-                                        case 'T':
-                                            table = tt;
-                                            break;
-                                        case 'l':
-                                            shift = lshift;
-                                        case 'L':
-                                            table = lt;
-                                            break;
-                                        default:
-                                            break;
-                                    }
-                                    if(table == null)
-                                        break;
-
-                                    int add = decodeAddress(code[++ip], shift);
-                                    if (op == 'S')
-                                        table[add] = executionStack.pop();
-                                    else
-                                        executionStack.push(table[add]);
+                                case OP_LOAD:
+                                    stack[sp++] = tables[first[ip]][second[ip]];
+                                    break;
+                                case OP_LOAD_SHIFTED: {
+                                    int table = first[ip];
+                                    stack[sp++] = tables[table][(second[ip] + shifts[table]) & 31];
                                 }
                                 break;
 
-                                case 'd':
-                                    executionStack.push(executionStack.peek());
+                                case OP_DUP:
+                                    if (sp == 0) throw emptyStack();
+                                    stack[sp] = stack[sp - 1];
+                                    sp++;
                                     break;
-                                case 'p':
-                                    executionStack.pop();
+                                case OP_POP:
+                                    if (sp == 0) throw emptyStack();
+                                    sp--;
                                     break;
-                                case 'v':
-                                    try {
-                                        int level = parseNumber(code[++ip]);
-                                        executionStack.push(executionStack.get(executionStack.size() - 1 - level));
-                                    } catch (ArrayIndexOutOfBoundsException e) {
+                                case OP_PEEK: {
+                                    int index = sp - 1 - first[ip];
+                                    if (index < 0 || index >= sp)
                                         throw new PlcException("bad stack pos", "Attempted to call peek on too small a " +
                                                 "stack.");
+                                    stack[sp] = stack[index];
+                                    sp++;
+                                }
+                                break;
+                                case OP_SWAP: {
+                                    if (sp < 2) {
+                                        sp = 0;
+                                        throw emptyStack();
                                     }
-                                    break;
-                                case 'x':
-                                    boolean x = executionStack.pop();
-                                    boolean y = executionStack.pop();
-                                    executionStack.push(x);
-                                    executionStack.push(y);
-                                    break;
-                                default:
-                                    break;
-
-                                case '!':
-                                    executionStack.push(!executionStack.pop());
-                                    break;
+                                    boolean x = stack[sp - 1];
+                                    stack[sp - 1] = stack[sp - 2];
+                                    stack[sp - 2] = x;
+                                }
+                                break;
 
-                                    // Using the short-circuiting versions would cause it to sometimes pop one less
-                                    // value than it should.
-                                case '^':
-                                    executionStack.push(executionStack.pop() ^ executionStack.pop());
-                                    break;
-                                case '&':
-                                    executionStack.push(executionStack.pop() & executionStack.pop());
-                                    break;
-                                case '|':
-                                    executionStack.push(executionStack.pop() | executionStack.pop());
-                                    break;
-                                case '=':
-                                    executionStack.push(executionStack.pop() == executionStack.pop());
+                                case OP_NOT:
+                                    if (sp == 0) throw emptyStack();
+                                    stack[sp - 1] = !stack[sp - 1];
                                     break;
 
-                                case '.':
-                                    boolean ta = parseTableChar(code[++ip]);
-                                    boolean tb = parseTableChar(code[++ip]);
-                                    boolean tc = parseTableChar(code[++ip]);
-                                    boolean td = parseTableChar(code[++ip]);
-
-                                    boolean e = executionStack.pop();
-                                    boolean f = executionStack.pop();
-
-                                    if (!e && !f) {
-                                        executionStack.push(ta);
-                                    } else if (!e && f) {
-                                        executionStack.push(tb);
-                                    } else if (e && !f) {
-                                        executionStack.push(tc);
-                                    } else {
-                                        executionStack.push(td);
+                                // Binary operators always pop both values.
+                                case OP_XOR:
+                                case OP_AND:
+                                case OP_OR:
+                                case OP_EQUALS:
+                                case OP_TABLE: {
+                                    if (sp < 2) {
+                                        sp = 0;
+                                        throw emptyStack();
                                     }
-                                    break;
+                                    boolean e = stack[--sp];
+                                    boolean f = stack[sp - 1];
+                                    boolean r;
+                                    switch (ops[ip]) {
+                                        case OP_XOR:
+                                            r = e ^ f;
+                                            break;
+                                        case OP_AND:
+                                            r = e & f;
+                                            break;
+                                        case OP_OR:
+                                            r = e | f;
+                                            break;
+                                        case OP_EQUALS:
+                                            r = e == f;
+                                            break;
+                                        default:
+                                            r = (first[ip] >> ((e ? 2 : 0) | (f ? 1 : 0)) & 1) != 0;
+                                            break;
+                                    }
+                                    stack[sp - 1] = r;
+                                }
+                                break;
 
-                                case 'c':
-                                case 't':
-                                    int n = parseNumber(code[++ip]) * 10 + parseNumber(code[++ip]);
-                                    int nArgs = parseNumber(code[++ip]);
-                                    boolean[] arg = new boolean[nArgs];
+                                case OP_CALL:
+                                case OP_TAIL_CALL: {
+                                    int n = first[ip];
+                                    int nArgs = second[ip];
 
+                                    if (nArgs < 0)
+                                        throw new PlcException("bad arg count", "Attempted to call a function with a " +
+                                                "negative argument count.");
                                     if (n < 0 || n >= funs.length)
                                         throw new PlcException("func not found", "Attempted to call nonexistent function " +
                                                 "#" + n);
 
-                                    if (op == 'c') {
-                                        for (int i = nArgs - 1; i >= 0; i--) {
-                                            arg[i] = executionStack.pop();
+                                    if (ops[ip] == OP_CALL) {
+                                        if (sp < nArgs) {
+                                            sp = 0;
+                                            throw emptyStack();
                                         }
-                                        Boolean v = executeFunction(n, pt, tt, funs, a, b, c, arg, opc, rec + 1);
-                                        if (v != null) {
-                                            executionStack.push(v);
+                                        sp -= nArgs;
+                                        Frame callee = context.frame(rec + 1);
+                                        callee.reserve(nArgs);
+                                        System.arraycopy(stack, sp, callee.stack, 0, nArgs);
+                                        callee.sp = nArgs;
+                                        int v = executeFunction(n, pt, funs, a, b, c, context, rec + 1);
+                                        if (v != NO_RESULT) {
+                                            stack[sp++] = v == 1;
                                         }
                                         break;
                                     } else {
+                                        // A tail call passes as many arguments as it names, but they are all false.
                                         fno = n;
-                                        args = arg;
+                                        frame.reserve(nArgs);
+                                        Arrays.fill(frame.stack, 0, nArgs, false);
+                                        frame.sp = nArgs;
                                         tailcalls++;
                                         continue outer;
                                     }
+                                }
 
-                                case '[':
-                                    if (!executionStack.pop()) {
-                                        ip = jt[ip];
+                                case OP_BRANCH_START:
+                                    if (sp == 0) throw emptyStack();
+                                    if (!stack[--sp]) {
+                                        ip = first[ip];
                                     }
                                     break;
-                                case ']':
-                                    if (executionStack.pop()) {
-                                        ip = jt[ip];
+                                case OP_BRANCH_END:
+                                    if (sp == 0) throw emptyStack();
+                                    if (stack[--sp]) {
+                                        ip = first[ip];
                                     }
                                     break;
 
-                                case 's':
-                                    return null;
-                                case 'r':
-                                    return executionStack.pop();
+                                case OP_STOP:
+                                    return NO_RESULT;
+                                case OP_RETURN:
+                                    if (sp == 0) throw emptyStack();
+                                    return stack[--sp] ? 1 : 0;
+
+                                default:
+                                    break;
                             }
                             ip++;
                         }
-                    } catch (EmptyStackException e) {
-                        throw new PlcException("empty stack", "Popped while stack was empty.");
                     } catch (StackOverflowError e) {
                         throw new PlcException("stack overflow", "Java stack overflow.");
                     }
                 } catch (PlcException e) {
-                    throw new PlcException(e.getMessage(), errmsg(e.detailedMessage, fno, op, li, pt, tt, lt, pshift,
-                            tshift, lshift, executionStack,
-                            tailcalls));
+                    char op = at < 0 ? '?' : fn.opcodes[at];
+                    LineInfo li = at < 0 ? new LineInfo(0, 0) : fn.lineInfo[at];
+                    throw new PlcException(e.getMessage(), errmsg(e.detailedMessage, fno, op, li, pt,
+                            tables[TABLE_TEMP], tables[TABLE_LOCAL], shifts[TABLE_PERSISTENT], shifts[TABLE_TEMP],
+                            shifts[TABLE_LOCAL], stack, sp, tailcalls));
                 }
-                return null;
+                return NO_RESULT;
             }
     }
 
     private String dumpStateText(boolean[] state) {
 
-        char[] c = new char[state.length];
-        for (int i = 0; i < state.length; i++) {
-            c[i] = state[i] ? '1' : '0';
-        }
-        return new String(c);
+        return dumpStateText(state, state.length);
     }
 
-    private String dumpStateText(Boolean[] state) {
+    private String dumpStateText(boolean[] state, int length) {
 
-        char[] c = new char[state.length];
-        for (int i = 0; i < state.length; i++) {
+        char[] c = new char[length];
+        for (int i = 0; i < length; i++) {
             c[i] = state[i] ? '1' : '0';
         }
         return new String(c);
@@ -642,4 +763,52 @@ public class Perlstone implements PlcLanguage<boolean[], WithLineInfo<String>[]>
 
         return ChatColor.RED + "Persistent Variable Table: \n " + ChatColor.RESET + dumpStateText(state);
     }
+
+    /**
+     * The tables and frames of one execution.
+     */
+    private static final class Context {
+
+        private final boolean[] temp = new boolean[32];
+        private final Frame[] frames = new Frame[MAX_RECURSION + 2];
+        private int instructions;
+        private Context next;
+
+        private Frame frame(int depth) {
+
+            Frame frame = frames[depth];
+            if (frame == null) {
+                frame = new Frame(temp);
+                frames[depth] = frame;
+            }
+            return frame;
+        }
+    }
+
+    /**
+     * The stack, local table and shifts of the function running at one depth.
+     */
+    private static final class Frame {
+
+        private final boolean[][] tables = new boolean[3][];
+        private final int[] shifts = new int[3];
+        private final boolean[] locals = new boolean[32];
+        private boolean[] stack = new boolean[MAX_STACK_SIZE + 1];
+        private int sp;
+
+        private Frame(boolean[] temp) {
+
+            tables[TABLE_TEMP] = temp;
+            tables[TABLE_LOCAL] = locals;
+        }
+
+        /**
+         * Makes room for at least the given amount of values. The values on the stack may be lost.
+         */
+        private void reserve(int size) {
+
+            if (stack.length < size)
+                stack = new boolean[size];
+        }
+    }
 }
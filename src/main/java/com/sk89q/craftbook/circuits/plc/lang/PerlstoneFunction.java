@@ -0,0 +1,25 @@
+package com.sk89q.craftbook.circuits.plc.lang;
+
+/**
+ * A compiled Perlstone function. Instruction {@code i} is {@code ops[i]} with its operands in {@code first[i]} and
+ * {@code second[i]}; brackets hold the index of their matching bracket, and addresses are already decoded. The opcode
+ * and position each instruction was compiled from are kept for error messages.
+ */
+class PerlstoneFunction {
+
+    public final byte[] ops;
+    public final int[] first;
+    public final int[] second;
+
+    public final char[] opcodes;
+    public final LineInfo[] lineInfo;
+
+    PerlstoneFunction(byte[] ops, int[] first, int[] second, char[] opcodes, LineInfo[] lineInfo) {
+
+        this.ops = ops;
+        this.first = first;
+        this.second = second;
+        this.opcodes = opcodes;
+        this.lineInfo = lineInfo;
+    }
+}
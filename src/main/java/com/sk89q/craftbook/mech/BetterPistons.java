@@ -1,6 +1,10 @@
 package com.sk89q.craftbook.mech;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -45,6 +49,18 @@ public class BetterPistons extends AbstractMechanic {
             this.type = type;
         }
 
+        @Override
+        public Set<Integer> getTriggerBlocks() {
+
+            return new HashSet<Integer>(Arrays.asList(BlockID.PISTON_BASE, BlockID.PISTON_STICKY_BASE));
+        }
+
+        @Override
+        public Set<String> getTriggerSignTags() {
+
+            return Collections.singleton("[" + type.name() + "]");
+        }
+
         /**
          * Explore around the trigger to find a functional elevator; throw if things look funny.
          *
@@ -1,7 +1,9 @@
 package com.sk89q.craftbook.mech;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -54,6 +56,12 @@ public class CookingPot extends PersistentMechanic implements SelfTriggeringMech
 
     public static class Factory extends AbstractMechanicFactory<CookingPot> {
 
+        @Override
+        public Set<String> getTriggerSignTags() {
+
+            return new HashSet<String>(Arrays.asList("[Cook]"));
+        }
+
         @Override
         public CookingPot detect(BlockWorldVector pt) {
 
@@ -91,6 +99,18 @@ public class CookingPot extends PersistentMechanic implements SelfTriggeringMech
 
     }
 
+    @Override
+    public int getThinkInterval() {
+
+        return 0;
+    }
+
+    @Override
+    public int getThinkPhase() {
+
+        return -1;
+    }
+
     @Override
     public void think() {
 
@@ -16,8 +16,10 @@
 
 package com.sk89q.craftbook.mech;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 
 import org.bukkit.GameMode;
 import org.bukkit.Location;
@@ -56,6 +58,18 @@ public class Elevator extends AbstractMechanic {
 
     public static class Factory extends AbstractMechanicFactory<Elevator> {
 
+        @Override
+        public Set<Integer> getTriggerBlocks() {
+
+            return new HashSet<Integer>(Arrays.asList(BlockID.STONE_BUTTON, BlockID.WOODEN_BUTTON));
+        }
+
+        @Override
+        public Set<String> getTriggerSignTags() {
+
+            return new HashSet<String>(Arrays.asList("[Lift Up]", "[Lift Down]", "[Lift]"));
+        }
+
         /**
          * Explore around the trigger to find a functional elevator; throw if things look funny.
          *
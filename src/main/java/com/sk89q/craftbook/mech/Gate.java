@@ -16,6 +16,7 @@
 
 package com.sk89q.craftbook.mech;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -333,6 +334,12 @@ public class Gate extends AbstractMechanic {
 
     public static class Factory extends AbstractMechanicFactory<Gate> {
 
+        @Override
+        public Set<String> getTriggerSignTags() {
+
+            return new HashSet<String>(Arrays.asList("[Gate]", "[DGate]"));
+        }
+
         @Override
         public Gate detect(BlockWorldVector pt) {
 
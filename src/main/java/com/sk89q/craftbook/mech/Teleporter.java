@@ -1,5 +1,9 @@
 package com.sk89q.craftbook.mech;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -19,6 +23,7 @@ import com.sk89q.craftbook.util.exceptions.ProcessedMechanismException;
 import com.sk89q.worldedit.BlockWorldVector;
 import com.sk89q.worldedit.Location;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 
 /**
@@ -32,6 +37,18 @@ public class Teleporter extends AbstractMechanic {
 
     public static class Factory extends AbstractMechanicFactory<Teleporter> {
 
+        @Override
+        public Set<Integer> getTriggerBlocks() {
+
+            return new HashSet<Integer>(Arrays.asList(BlockID.STONE_BUTTON, BlockID.WOODEN_BUTTON));
+        }
+
+        @Override
+        public Set<String> getTriggerSignTags() {
+
+            return new HashSet<String>(Arrays.asList("[Teleporter]"));
+        }
+
         /**
          * Explore around the trigger to find a functional elevator; throw if things look funny.
          *
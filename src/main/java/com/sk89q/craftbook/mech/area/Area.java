@@ -1,7 +1,10 @@
 package com.sk89q.craftbook.mech.area;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -34,6 +37,12 @@ public class Area extends AbstractMechanic {
 
         private final CraftBookPlugin plugin = CraftBookPlugin.inst();
 
+        @Override
+        public Set<String> getTriggerSignTags() {
+
+            return new HashSet<String>(Arrays.asList("[Area]", "[SaveArea]"));
+        }
+
         /**
          * Detect the mechanic at a placed sign.
          *
@@ -3,7 +3,9 @@ package com.sk89q.craftbook.mech.cauldron;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -48,6 +50,12 @@ public class ImprovedCauldron extends AbstractMechanic implements Listener {
             recipes = new ImprovedCauldronCookbook(new YAMLProcessor(new File(plugin.getDataFolder(), "cauldron-recipes.yml"), true, YAMLFormat.EXTENDED), plugin.getLogger());
         }
 
+        @Override
+        public Set<Integer> getTriggerBlocks() {
+
+            return Collections.singleton(Material.CAULDRON.getId());
+        }
+
         @Override
         public ImprovedCauldron detect(BlockWorldVector pos) throws InvalidMechanismException {
 
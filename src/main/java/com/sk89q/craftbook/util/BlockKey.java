@@ -0,0 +1,43 @@
+package com.sk89q.craftbook.util;
+
+/**
+ * Packs block coordinates into a single long, for use as a key in a {@link LongHashMap}. X and Z take 26 bits each,
+ * which covers the whole 30 million block radius of a world, and Y takes the remaining 12 bits.
+ */
+public class BlockKey {
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+
+    /**
+     * Packs block coordinates into a key.
+     *
+     * @param x
+     * @param y
+     * @param z
+     *
+     * @return the key
+     */
+    public static long pack(int x, int y, int z) {
+
+        return (x & XZ_MASK) << XZ_BITS + Y_BITS | (z & XZ_MASK) << Y_BITS | y & Y_MASK;
+    }
+
+    public static int getX(long key) {
+
+        return (int) (key >> XZ_BITS + Y_BITS);
+    }
+
+    public static int getY(long key) {
+
+        return (int) (key << 64 - Y_BITS >> 64 - Y_BITS);
+    }
+
+    public static int getZ(long key) {
+
+        return (int) (key << XZ_BITS >> XZ_BITS + Y_BITS);
+    }
+}
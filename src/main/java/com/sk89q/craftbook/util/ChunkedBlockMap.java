@@ -0,0 +1,212 @@
+package com.sk89q.craftbook.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sk89q.worldedit.BlockWorldVector;
+import com.sk89q.worldedit.BlockWorldVector2D;
+
+/**
+ * A map of block positions that is indexed first by world, then by chunk. This allows every entry within a chunk to be
+ * retrieved in time proportional to the number of entries in that chunk, rather than the size of the whole map.
+ * <p>
+ * Chunks and positions are stored as packed longs in {@link LongHashMap}s, so looking up a position by its coordinates
+ * does not allocate.
+ * </p>
+ *
+ * @param <V> the value type
+ */
+public class ChunkedBlockMap<V> {
+
+    /**
+     * World name -> packed chunk coordinates -> packed block coordinates -> value.
+     */
+    private final Map<String, LongHashMap<LongHashMap<V>>> worlds = new HashMap<String, LongHashMap<LongHashMap<V>>>();
+
+    private int size = 0;
+
+    /**
+     * Packs a pair of chunk coordinates into a single long.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     *
+     * @return the packed chunk key
+     */
+    public static long getChunkKey(int chunkX, int chunkZ) {
+
+        return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+    }
+
+    private LongHashMap<V> getChunkMap(String world, long chunkKey, boolean create) {
+
+        LongHashMap<LongHashMap<V>> chunks = worlds.get(world);
+        if(chunks == null) {
+            if(!create)
+                return null;
+            chunks = new LongHashMap<LongHashMap<V>>();
+            worlds.put(world, chunks);
+        }
+
+        LongHashMap<V> chunk = chunks.get(chunkKey);
+        if(chunk == null && create) {
+            chunk = new LongHashMap<V>();
+            chunks.put(chunkKey, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Gets the value stored at a position.
+     *
+     * @param pos the position
+     *
+     * @return the value, or null if there is none
+     */
+    public V get(BlockWorldVector pos) {
+
+        return get(pos.getWorld().getName(), pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+    }
+
+    /**
+     * Gets the value stored at a position.
+     *
+     * @param world the world name
+     * @param x
+     * @param y
+     * @param z
+     *
+     * @return the value, or null if there is none
+     */
+    public V get(String world, int x, int y, int z) {
+
+        LongHashMap<V> chunk = getChunkMap(world, getChunkKey(x >> 4, z >> 4), false);
+        return chunk == null ? null : chunk.get(BlockKey.pack(x, y, z));
+    }
+
+    /**
+     * Stores a value at a position.
+     *
+     * @param pos the position
+     * @param value the value, which may not be null
+     *
+     * @return the previous value, or null if there was none
+     */
+    public V put(BlockWorldVector pos, V value) {
+
+        return put(pos.getWorld().getName(), pos.getBlockX(), pos.getBlockY(), pos.getBlockZ(), value);
+    }
+
+    /**
+     * Stores a value at a position.
+     *
+     * @param world the world name
+     * @param x
+     * @param y
+     * @param z
+     * @param value the value, which may not be null
+     *
+     * @return the previous value, or null if there was none
+     */
+    public V put(String world, int x, int y, int z, V value) {
+
+        LongHashMap<V> chunk = getChunkMap(world, getChunkKey(x >> 4, z >> 4), true);
+        V old = chunk.put(BlockKey.pack(x, y, z), value);
+        if(old == null)
+            size++;
+        return old;
+    }
+
+    /**
+     * Removes the value stored at a position. Chunks and worlds that become empty are released.
+     *
+     * @param pos the position
+     *
+     * @return the removed value, or null if there was none
+     */
+    public V remove(BlockWorldVector pos) {
+
+        return remove(pos.getWorld().getName(), pos.getBlockX(), pos.getBlockY(), pos.getBlockZ());
+    }
+
+    /**
+     * Removes the value stored at a position. Chunks and worlds that become empty are released.
+     *
+     * @param world the world name
+     * @param x
+     * @param y
+     * @param z
+     *
+     * @return the removed value, or null if there was none
+     */
+    public V remove(String world, int x, int y, int z) {
+
+        long chunkKey = getChunkKey(x >> 4, z >> 4);
+        LongHashMap<V> chunk = getChunkMap(world, chunkKey, false);
+        if(chunk == null)
+            return null;
+
+        V value = chunk.remove(BlockKey.pack(x, y, z));
+        if(value == null)
+            return null;
+        size--;
+        if(chunk.isEmpty()) {
+            LongHashMap<LongHashMap<V>> chunks = worlds.get(world);
+            chunks.remove(chunkKey);
+            if(chunks.isEmpty())
+                worlds.remove(world);
+        }
+        return value;
+    }
+
+    /**
+     * Gets every value within a chunk.
+     *
+     * @param chunk the chunk, with chunk (not block) coordinates
+     *
+     * @return a snapshot of the values in the chunk
+     */
+    public List<V> getChunkValues(BlockWorldVector2D chunk) {
+
+        LongHashMap<V> entries = getChunkMap(chunk.getWorld().getName(), getChunkKey(chunk.getBlockX(), chunk.getBlockZ()), false);
+        if(entries == null)
+            return Collections.emptyList();
+        return entries.values();
+    }
+
+    /**
+     * Gets every value in this map.
+     *
+     * @return a snapshot of the values
+     */
+    public List<V> values() {
+
+        List<V> values = new ArrayList<V>(size);
+        for(LongHashMap<LongHashMap<V>> chunks : worlds.values())
+            for(LongHashMap<V> chunk : chunks.values())
+                values.addAll(chunk.values());
+        return values;
+    }
+
+    /**
+     * Gets the number of positions stored in this map.
+     *
+     * @return the size
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Removes every entry from this map.
+     */
+    public void clear() {
+
+        worlds.clear();
+        size = 0;
+    }
+}
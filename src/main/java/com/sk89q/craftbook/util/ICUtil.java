@@ -25,8 +25,10 @@ import org.bukkit.material.Lever;
 import com.sk89q.craftbook.ChangedSign;
 import com.sk89q.craftbook.LocalPlayer;
 import com.sk89q.craftbook.bukkit.BukkitPlayer;
+import com.sk89q.craftbook.bukkit.CircuitCore;
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+import com.sk89q.craftbook.circuits.ic.ICOutputBuffer;
 import com.sk89q.craftbook.circuits.ic.ICVerificationException;
 import com.sk89q.worldedit.IncompleteRegionException;
 import com.sk89q.worldedit.Vector;
@@ -45,6 +47,8 @@ public class ICUtil {
     /**
      * Set an IC's output state at a block.
      *
+     * If IC outputs are buffered, the lever is written when the buffer is next flushed.
+     *
      * @param block
      * @param state
      *
@@ -60,6 +64,10 @@ public class ICUtil {
         if (!block.getRelative(lever.getAttachedFace()).equals(source))
             return false;
 
+        ICOutputBuffer buffer = CircuitCore.isEnabled() ? CircuitCore.inst().getOutputBuffer() : null;
+        if (buffer != null)
+            return buffer.set(block, state, source);
+
         // check if the lever was toggled on
         boolean wasOn = (block.getData() & 0x8) > 0;
 
@@ -94,6 +102,24 @@ public class ICUtil {
         return false;
     }
 
+    /**
+     * Gets the state of an IC's output lever, including a change to it that has not been written yet.
+     *
+     * @param block the lever
+     *
+     * @return whether the lever is on
+     */
+    public static boolean getState(Block block) {
+
+        ICOutputBuffer buffer = CircuitCore.isEnabled() ? CircuitCore.inst().getOutputBuffer() : null;
+        if (buffer != null) {
+            Boolean state = buffer.get(block);
+            if (state != null)
+                return state;
+        }
+        return ((Lever) block.getState().getData()).isPowered();
+    }
+
     public static void parseSignFlags(LocalPlayer player, ChangedSign sign) {
 
         for(int i = 2; i < 4; i++) {
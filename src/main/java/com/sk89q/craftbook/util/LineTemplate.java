@@ -0,0 +1,143 @@
+package com.sk89q.craftbook.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sign line that has been split into the variables it may reference, so that it only has to be parsed again when one
+ * of those variables changes.
+ * <p>
+ * Rendering is done by {@link ParsingUtil#parseVariables(String, org.bukkit.command.CommandSender)} without a player,
+ * so a template gives exactly the same result as parsing the line every time. Every variable that is set or removed
+ * must be reported through {@link #variableChanged(String, String)}, which the plugin does by listening to its
+ * {@link VariableStore}.
+ * </p>
+ */
+public class LineTemplate {
+
+    /**
+     * Namespace and name -> the revision at which the variable last changed.
+     */
+    private static final Map<String, Long> revisions = new HashMap<String, Long>();
+
+    private static long revision = 1;
+
+    private final String source;
+
+    /**
+     * The variables this line may reference, as namespace and name.
+     */
+    private final String[] dependencies;
+
+    private String rendered = null;
+    private long renderedAt = 0;
+
+    private LineTemplate(String source, String[] dependencies) {
+
+        this.source = source;
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Compile a line into a template.
+     *
+     * @param line
+     *
+     * @return the template
+     */
+    public static LineTemplate compile(String line) {
+
+        if (line.indexOf('%') < 0)
+            return new LineTemplate(line, new String[0]);
+
+        List<String> dependencies = new ArrayList<String>();
+        for (String var : ParsingUtil.getPossibleVariables(line)) {
+            String[] bits = RegexUtil.PIPE_PATTERN.split(var);
+            String key;
+            if (var.contains("|") && bits.length >= 2)
+                key = VariableStore.getKey(bits[1], bits[0]);
+            else
+                key = VariableStore.getKey(var, "global");
+            if (!dependencies.contains(key))
+                dependencies.add(key);
+        }
+        return new LineTemplate(line, dependencies.toArray(new String[dependencies.size()]));
+    }
+
+    /**
+     * Gets the line this template was compiled from.
+     *
+     * @return the line
+     */
+    public String getSource() {
+
+        return source;
+    }
+
+    /**
+     * Gets the keys of the variables this line may reference.
+     *
+     * @return the keys, as given by {@link VariableStore#getKey(String, String)}
+     */
+    public String[] getDependencies() {
+
+        return dependencies;
+    }
+
+    /**
+     * Checks whether this template was compiled from the given line.
+     *
+     * @param line
+     *
+     * @return true if the lines are equal
+     */
+    public boolean matches(String line) {
+
+        return source == line || source.equals(line);
+    }
+
+    /**
+     * Gets the line with its variables filled in, parsing it again only if a variable it references has changed since
+     * the last time.
+     *
+     * @return the parsed line
+     */
+    public String render() {
+
+        if (dependencies.length == 0)
+            return source;
+
+        if (rendered == null || isStale()) {
+            renderedAt = revision;
+            rendered = ParsingUtil.parseVariables(source, null);
+        }
+        return rendered;
+    }
+
+    private boolean isStale() {
+
+        if (renderedAt == revision)
+            return false;
+        for (String dependency : dependencies) {
+            Long changed = revisions.get(dependency);
+            if (changed != null && changed > renderedAt)
+                return true;
+        }
+        // None of the changes since the last render were to this line, so there is no need to look at them again.
+        renderedAt = revision;
+        return false;
+    }
+
+    /**
+     * Record that a variable has been set or removed, so that every line referencing it is parsed again.
+     *
+     * @param variable
+     * @param namespace
+     */
+    public static void variableChanged(String variable, String namespace) {
+
+        revisions.put(VariableStore.getKey(variable, namespace), ++revision);
+    }
+}
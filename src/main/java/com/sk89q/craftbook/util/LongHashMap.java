@@ -0,0 +1,216 @@
+package com.sk89q.craftbook.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash map from primitive longs to values, using open addressing with linear probing. Looking up, adding and
+ * removing entries does not allocate (other than when the table grows), and keys are never boxed.
+ * <p>
+ * Null values are not supported, a null value marks an empty slot.
+ * </p>
+ *
+ * @param <V> the value type
+ */
+public class LongHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeAt;
+
+    public LongHashMap() {
+
+        this(16);
+    }
+
+    /**
+     * Construct the map.
+     *
+     * @param expectedSize the amount of entries to make room for
+     */
+    public LongHashMap(int expectedSize) {
+
+        int capacity = 4;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    private int find(long key) {
+
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key)
+                return slot;
+            slot = slot + 1 & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value stored for a key.
+     *
+     * @param key
+     *
+     * @return the value, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(long key) {
+
+        return find(key) >= 0;
+    }
+
+    /**
+     * Stores a value for a key.
+     *
+     * @param key
+     * @param value the value, which may not be null
+     *
+     * @return the previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+
+        if (value == null)
+            throw new IllegalArgumentException("Null values are not supported");
+
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = slot + 1 & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt)
+            rehash(keys.length << 1);
+        return null;
+    }
+
+    /**
+     * Removes the value stored for a key.
+     *
+     * @param key
+     *
+     * @return the removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+
+        int slot = find(key);
+        if (slot < 0)
+            return null;
+
+        V old = (V) values[slot];
+        size--;
+
+        // Shift the following entries back, so that no probe sequence is broken by the gap.
+        int gap = slot;
+        int next = gap + 1 & mask;
+        while (values[next] != null) {
+            int home = slot(keys[next]);
+            if ((next - home & mask) >= (next - gap & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = next + 1 & mask;
+        }
+        values[gap] = null;
+        return old;
+    }
+
+    private void rehash(int capacity) {
+
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+            int slot = slot(oldKeys[i]);
+            while (values[slot] != null)
+                slot = slot + 1 & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    public boolean isEmpty() {
+
+        return size == 0;
+    }
+
+    /**
+     * Removes every entry, keeping the current capacity.
+     */
+    public void clear() {
+
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Gets a snapshot of every key.
+     *
+     * @return the keys
+     */
+    public long[] keys() {
+
+        long[] result = new long[size];
+        int index = 0;
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null)
+                result[index++] = keys[i];
+        return result;
+    }
+
+    /**
+     * Gets a snapshot of every value.
+     *
+     * @return the values
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+
+        List<V> result = new ArrayList<V>(size);
+        for (Object value : values)
+            if (value != null)
+                result.add((V) value);
+        return result;
+    }
+}
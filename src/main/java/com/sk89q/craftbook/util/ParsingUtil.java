@@ -2,7 +2,6 @@ package com.sk89q.craftbook.util;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map.Entry;
 
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -51,7 +50,7 @@ public class ParsingUtil {
 
     public static String parseVariables(String line, CommandSender player) {
 
-        if(CraftBookPlugin.inst() == null)
+        if(CraftBookPlugin.inst() == null || line.indexOf('%') < 0)
             return line;
 
         CraftBookPlugin.logDebugMessage("Attempting to parse variables. Input line: " + line, "variables.line-parsing");
@@ -78,10 +77,9 @@ public class ParsingUtil {
                     continue;
             CraftBookPlugin.logDebugMessage(var + " permissions granted!", "variables.line-parsing");
 
-            for(Entry<Tuple2<String, String>, String> bit : CraftBookPlugin.inst().getVariableStore().entrySet()) {
-                if(bit.getKey().b.equalsIgnoreCase(key) && bit.getKey().a.equalsIgnoreCase(value))
-                    line = line.replace("%" + var + "%", bit.getValue());
-            }
+            String bit = CraftBookPlugin.inst().getVariableStore().get(value, key);
+            if(bit != null)
+                line = line.replace("%" + var + "%", bit);
         }
 
         return line;
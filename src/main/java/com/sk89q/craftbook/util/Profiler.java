@@ -0,0 +1,316 @@
+package com.sk89q.craftbook.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+
+import com.sk89q.craftbook.Mechanic;
+import com.sk89q.craftbook.PersistentMechanic;
+import com.sk89q.craftbook.circuits.ic.ICMechanic;
+import com.sk89q.worldedit.BlockWorldVector;
+
+/**
+ * Records how much time mechanics, ICs and event handlers take.
+ * <p>
+ * While disabled, {@link #start()} returns 0 and {@link #stop(Object, String, long, Object)} returns straight away,
+ * so profiled code only pays for a volatile read. Timings are kept per mechanic class (or IC ID) and action, along
+ * with a histogram for percentiles and the slowest locations.
+ * </p>
+ */
+public class Profiler {
+
+    /**
+     * The amount of slowest locations to remember for each timing.
+     */
+    private static final int WORST_LOCATIONS = 5;
+
+    private static volatile boolean enabled = false;
+    private static volatile long startTime = System.currentTimeMillis();
+
+    private static final ConcurrentHashMap<String, Timing> timings = new ConcurrentHashMap<String, Timing>();
+
+    public static boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Turns profiling on or off. Turning it on resets the timings.
+     *
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled) {
+
+        if (enabled && !Profiler.enabled)
+            reset();
+        Profiler.enabled = enabled;
+    }
+
+    /**
+     * Forget every timing.
+     */
+    public static void reset() {
+
+        timings.clear();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the time at which the current timings started.
+     *
+     * @return the time in milliseconds
+     */
+    public static long getStartTime() {
+
+        return startTime;
+    }
+
+    /**
+     * Starts timing a call.
+     *
+     * @return the start time to pass to {@link #stop(Object, String, long, Object)}, or 0 if profiling is disabled
+     */
+    public static long start() {
+
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops timing a call. The name and location are only worked out while profiling is enabled.
+     *
+     * @param subject the mechanic or listener that was called
+     * @param action what the subject was doing
+     * @param start the value returned by {@link #start()}
+     * @param location a {@link BlockWorldVector}, {@link Block}, {@link Location}, {@link Entity}, event or mechanic
+     *                 to report as the location of the call, or null
+     */
+    public static void stop(Object subject, String action, long start, Object location) {
+
+        if (start == 0 || !enabled)
+            return;
+        long time = System.nanoTime() - start;
+
+        String name = getName(subject) + ' ' + action;
+        Timing timing = timings.get(name);
+        if (timing == null) {
+            Timing created = new Timing(name);
+            timing = timings.putIfAbsent(name, created);
+            if (timing == null)
+                timing = created;
+        }
+        timing.record(time, location);
+    }
+
+    /**
+     * Gets every timing, slowest in total first.
+     *
+     * @return the timings
+     */
+    public static List<Timing> getTimings() {
+
+        List<Timing> list = new ArrayList<Timing>(timings.values());
+        Collections.sort(list, new Comparator<Timing>() {
+
+            @Override
+            public int compare(Timing o1, Timing o2) {
+
+                long t1 = o1.getTotal(), t2 = o2.getTotal();
+                return t1 > t2 ? -1 : t1 < t2 ? 1 : 0;
+            }
+        });
+        return list;
+    }
+
+    private static String getName(Object subject) {
+
+        if (subject instanceof ICMechanic)
+            return "IC " + ((ICMechanic) subject).getId();
+        if (subject instanceof Mechanic)
+            return "Mechanic " + subject.getClass().getSimpleName();
+        return subject.getClass().getSimpleName();
+    }
+
+    private static String getLocation(Object location) {
+
+        if (location instanceof Mechanic)
+            location = location instanceof PersistentMechanic && !((PersistentMechanic) location).getTriggerPositions().isEmpty()
+                    ? ((PersistentMechanic) location).getTriggerPositions().get(0) : null;
+        else if (location instanceof BlockEvent)
+            location = ((BlockEvent) location).getBlock();
+        else if (location instanceof PlayerEvent)
+            location = ((PlayerEvent) location).getPlayer();
+        else if (location instanceof VehicleEvent)
+            location = ((VehicleEvent) location).getVehicle();
+        else if (location instanceof EntityEvent)
+            location = ((EntityEvent) location).getEntity();
+
+        if (location instanceof Entity)
+            location = ((Entity) location).getLocation();
+
+        if (location instanceof BlockWorldVector) {
+            BlockWorldVector pos = (BlockWorldVector) location;
+            return pos.getWorld().getName() + " " + pos.getBlockX() + "," + pos.getBlockY() + "," + pos.getBlockZ();
+        } else if (location instanceof Block) {
+            Block block = (Block) location;
+            return block.getWorld().getName() + " " + block.getX() + "," + block.getY() + "," + block.getZ();
+        } else if (location instanceof Location) {
+            Location loc = (Location) location;
+            return loc.getWorld().getName() + " " + loc.getBlockX() + "," + loc.getBlockY() + "," + loc.getBlockZ();
+        }
+        return null;
+    }
+
+    /**
+     * The recorded calls of a single subject and action.
+     */
+    public static class Timing {
+
+        /**
+         * Buckets below this hold a single nanosecond value each.
+         */
+        private static final int LINEAR_BUCKETS = 16;
+
+        /**
+         * Each power of two above the linear buckets is split into this many buckets.
+         */
+        private static final int SUB_BUCKET_BITS = 3;
+
+        private final String name;
+
+        private long count = 0;
+        private long total = 0;
+        private long max = 0;
+        private final long[] histogram = new long[LINEAR_BUCKETS + (64 - 4 << SUB_BUCKET_BITS)];
+
+        private final long[] worstTimes = new long[WORST_LOCATIONS];
+        private final String[] worstLocations = new String[WORST_LOCATIONS];
+
+        Timing(String name) {
+
+            this.name = name;
+        }
+
+        synchronized void record(long time, Object location) {
+
+            if (time < 0)
+                time = 0;
+            count++;
+            total += time;
+            max = Math.max(max, time);
+            histogram[getBucket(time)]++;
+
+            if (location != null && time > worstTimes[WORST_LOCATIONS - 1])
+                addWorst(time, getLocation(location));
+        }
+
+        private void addWorst(long time, String location) {
+
+            if (location == null)
+                return;
+
+            // A location is only listed once, with its slowest call.
+            int index = WORST_LOCATIONS - 1;
+            for (int i = 0; i < WORST_LOCATIONS; i++) {
+                if (location.equals(worstLocations[i])) {
+                    if (worstTimes[i] >= time)
+                        return;
+                    index = i;
+                    break;
+                }
+            }
+
+            while (index > 0 && worstTimes[index - 1] < time) {
+                worstTimes[index] = worstTimes[index - 1];
+                worstLocations[index] = worstLocations[index - 1];
+                index--;
+            }
+            worstTimes[index] = time;
+            worstLocations[index] = location;
+        }
+
+        private static int getBucket(long time) {
+
+            if (time < LINEAR_BUCKETS)
+                return (int) time;
+            int exponent = 63 - Long.numberOfLeadingZeros(time);
+            int sub = (int) (time >> exponent - SUB_BUCKET_BITS) & (1 << SUB_BUCKET_BITS) - 1;
+            return LINEAR_BUCKETS + (exponent - 4 << SUB_BUCKET_BITS) + sub;
+        }
+
+        private static long getBucketUpperBound(int bucket) {
+
+            if (bucket < LINEAR_BUCKETS)
+                return bucket;
+            int exponent = (bucket - LINEAR_BUCKETS >> SUB_BUCKET_BITS) + 4;
+            int sub = bucket - LINEAR_BUCKETS & (1 << SUB_BUCKET_BITS) - 1;
+            return (1L << exponent) + ((long) sub + 1 << exponent - SUB_BUCKET_BITS) - 1;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public synchronized long getCount() {
+
+            return count;
+        }
+
+        public synchronized long getTotal() {
+
+            return total;
+        }
+
+        public synchronized long getMean() {
+
+            return count == 0 ? 0 : total / count;
+        }
+
+        public synchronized long getMax() {
+
+            return max;
+        }
+
+        /**
+         * Gets an upper estimate of a percentile of the call times, accurate to within an eighth.
+         *
+         * @param percentile between 0 and 100
+         *
+         * @return the time in nanoseconds
+         */
+        public synchronized long getPercentile(double percentile) {
+
+            long target = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= target && seen > 0)
+                    return Math.min(getBucketUpperBound(i), max);
+            }
+            return max;
+        }
+
+        /**
+         * Gets the locations of the slowest calls, slowest first.
+         *
+         * @return the locations, each with the time of its slowest call in nanoseconds
+         */
+        public synchronized List<Tuple2<String, Long>> getWorstLocations() {
+
+            List<Tuple2<String, Long>> list = new ArrayList<Tuple2<String, Long>>();
+            for (int i = 0; i < WORST_LOCATIONS && worstLocations[i] != null; i++)
+                list.add(new Tuple2<String, Long>(worstLocations[i], worstTimes[i]));
+            return list;
+        }
+    }
+}
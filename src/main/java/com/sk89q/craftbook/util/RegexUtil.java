@@ -22,7 +22,8 @@ public class RegexUtil {
     public static final Pattern PIPE_PATTERN = Pattern.compile("|", Pattern.LITERAL);
     public static final Pattern FSLASH_PATTERN = Pattern.compile("/", Pattern.LITERAL);
     public static final Pattern BSLASH_PATTERN = Pattern.compile("\\", Pattern.LITERAL);
-    public static final Pattern IC_PATTERN = Pattern.compile("^\\[(([A-Z]{1,3})[0-9]{1,4})\\][A-Z]?$", Pattern.CASE_INSENSITIVE);
+    public static final Pattern IC_PATTERN = Pattern.compile("^\\[(([A-Z]{1,3})[0-9]{1,4})\\][A-Z]?(@[0-9]{1,5}(:[0-9]{1,5})?)?$", Pattern.CASE_INSENSITIVE);
+    public static final Pattern IC_THINK_PATTERN = Pattern.compile("@([0-9]{1,5})(?::([0-9]{1,5}))?$");
     public static final Pattern PLC_NAME_PATTERN = Pattern.compile("[-_a-z0-9]+", Pattern.CASE_INSENSITIVE);
     public static final Pattern VARIABLE_KEY_PATTERN = Pattern.compile("[a-z_]+", Pattern.CASE_INSENSITIVE);
     public static final Pattern VARIABLE_VALUE_PATTERN = Pattern.compile("[a-z0-9.,:;_]+", Pattern.CASE_INSENSITIVE);
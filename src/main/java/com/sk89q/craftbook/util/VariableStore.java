@@ -0,0 +1,262 @@
+package com.sk89q.craftbook.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the values of every variable, by namespace and name.
+ * <p>
+ * Namespaces and names are case-insensitive; they are lowercased once into a single key, so every lookup is a single
+ * hash lookup. The case a variable was first defined with is kept for saving. Values that are read as numbers are
+ * parsed once and kept until the value changes. Listeners are told about every variable that is set or removed.
+ * </p>
+ */
+public class VariableStore {
+
+    /**
+     * Gets told when a variable changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called after a variable has been set or removed.
+         *
+         * @param variable
+         * @param namespace
+         */
+        public void variableChanged(String variable, String namespace);
+    }
+
+    /**
+     * A single variable.
+     */
+    public static class Variable {
+
+        private final String name;
+        private final String namespace;
+        private String value;
+
+        private boolean parsed = false;
+        private boolean numeric = false;
+        private double number;
+
+        private Variable(String name, String namespace, String value) {
+
+            this.name = name;
+            this.namespace = namespace;
+            this.value = value;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public String getNamespace() {
+
+            return namespace;
+        }
+
+        public String getValue() {
+
+            return value;
+        }
+
+        private void parse() {
+
+            if (parsed)
+                return;
+            try {
+                number = Double.parseDouble(value);
+                numeric = true;
+            } catch (NumberFormatException e) {
+                numeric = false;
+            }
+            parsed = true;
+        }
+    }
+
+    private final Map<String, Variable> variables = new HashMap<String, Variable>();
+
+    private final List<Listener> listeners = new ArrayList<Listener>();
+
+    /**
+     * Gets the key a variable is stored under.
+     *
+     * @param variable
+     * @param namespace
+     *
+     * @return the key
+     */
+    public static String getKey(String variable, String namespace) {
+
+        return namespace.toLowerCase(Locale.ENGLISH) + "|" + variable.toLowerCase(Locale.ENGLISH);
+    }
+
+    public boolean has(String variable, String namespace) {
+
+        return variables.containsKey(getKey(variable, namespace));
+    }
+
+    /**
+     * Gets the value of a variable.
+     *
+     * @param variable
+     * @param namespace
+     *
+     * @return the value, or null if the variable does not exist
+     */
+    public String get(String variable, String namespace) {
+
+        return getByKey(getKey(variable, namespace));
+    }
+
+    /**
+     * Gets the value of a variable.
+     *
+     * @param key the key of the variable, as given by {@link #getKey(String, String)}
+     *
+     * @return the value, or null if the variable does not exist
+     */
+    public String getByKey(String key) {
+
+        Variable var = variables.get(key);
+        return var == null ? null : var.value;
+    }
+
+    /**
+     * Set the value of a variable, defining it if it does not exist.
+     *
+     * @param variable
+     * @param namespace
+     * @param value
+     *
+     * @return the previous value, or null if the variable did not exist
+     */
+    public String set(String variable, String namespace, String value) {
+
+        String key = getKey(variable, namespace);
+        Variable var = variables.get(key);
+        String previous = null;
+        if (var == null)
+            variables.put(key, new Variable(variable, namespace, value));
+        else {
+            previous = var.value;
+            var.value = value;
+            var.parsed = false;
+        }
+        fireChanged(variable, namespace);
+        return previous;
+    }
+
+    /**
+     * Remove a variable.
+     *
+     * @param variable
+     * @param namespace
+     *
+     * @return the value it had, or null if the variable did not exist
+     */
+    public String remove(String variable, String namespace) {
+
+        Variable var = variables.remove(getKey(variable, namespace));
+        if (var == null)
+            return null;
+        fireChanged(variable, namespace);
+        return var.value;
+    }
+
+    /**
+     * Checks whether a variable exists and holds a number.
+     *
+     * @param variable
+     * @param namespace
+     *
+     * @return true if {@link #getNumber(String, String)} can be used
+     */
+    public boolean isNumeric(String variable, String namespace) {
+
+        Variable var = variables.get(getKey(variable, namespace));
+        if (var == null)
+            return false;
+        var.parse();
+        return var.numeric;
+    }
+
+    /**
+     * Gets the value of a variable as a number.
+     *
+     * @param variable
+     * @param namespace
+     *
+     * @return the number
+     *
+     * @throws NumberFormatException if the variable does not exist or is not a number
+     */
+    public double getNumber(String variable, String namespace) throws NumberFormatException {
+
+        Variable var = variables.get(getKey(variable, namespace));
+        if (var == null)
+            throw new NumberFormatException("Unknown variable: " + namespace + "|" + variable);
+        var.parse();
+        if (!var.numeric)
+            throw new NumberFormatException("Variable not of numeric type: " + namespace + "|" + variable);
+        return var.number;
+    }
+
+    /**
+     * Set a variable to a number. Whole numbers are stored without a fraction.
+     *
+     * @param variable
+     * @param namespace
+     * @param number
+     */
+    public void setNumber(String variable, String namespace, double number) {
+
+        String value = String.valueOf(number);
+        if (value.endsWith(".0"))
+            value = value.substring(0, value.length() - 2);
+        set(variable, namespace, value);
+
+        Variable var = variables.get(getKey(variable, namespace));
+        var.number = number;
+        var.numeric = true;
+        var.parsed = true;
+    }
+
+    /**
+     * Gets every variable.
+     *
+     * @return the variables
+     */
+    public Collection<Variable> getVariables() {
+
+        return Collections.unmodifiableCollection(variables.values());
+    }
+
+    public int size() {
+
+        return variables.size();
+    }
+
+    public void addListener(Listener listener) {
+
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+
+        listeners.remove(listener);
+    }
+
+    private void fireChanged(String variable, String namespace) {
+
+        for (Listener listener : listeners)
+            listener.variableChanged(variable, namespace);
+    }
+}
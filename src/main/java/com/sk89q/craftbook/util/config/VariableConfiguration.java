@@ -1,28 +1,100 @@
 package com.sk89q.craftbook.util.config;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Map.Entry;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
+import org.bukkit.scheduler.BukkitTask;
+
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
 import com.sk89q.craftbook.util.RegexUtil;
-import com.sk89q.craftbook.util.Tuple2;
+import com.sk89q.craftbook.util.VariableStore;
+import com.sk89q.util.yaml.YAMLFormat;
 import com.sk89q.util.yaml.YAMLProcessor;
 
+/**
+ * Loads and saves the variables.
+ * <p>
+ * The variables file is a snapshot. Changes made after it was written are appended to a journal next to it, a batch
+ * every few ticks, so each save only costs as much as the variables that changed. Once the journal grows long enough it
+ * is folded into a new snapshot. Both are written by a background thread, which keeps its own copy of the variables so
+ * it never has to touch the store. On startup any journal left behind by a crash is replayed over the snapshot, and a
+ * snapshot that was written but not yet moved into place is used if the variables file is missing.
+ * </p>
+ */
 public class VariableConfiguration {
 
+    private static final byte RECORD_SET = 'S';
+    private static final byte RECORD_REMOVE = 'R';
+
     public final YAMLProcessor config;
     protected final Logger logger;
 
-    public VariableConfiguration(YAMLProcessor config, Logger logger) {
+    private final File file;
+    private final File journalFile;
+
+    /**
+     * Changes that have not been handed to the writer yet, by the key of their variable. Each is the namespace, name
+     * and new value, or null as the value if the variable was removed.
+     */
+    private final Map<String, String[]> pending = new LinkedHashMap<String, String[]>();
+
+    private final VariableStore.Listener listener = new VariableStore.Listener() {
+
+        @Override
+        public void variableChanged(String variable, String namespace) {
+
+            pending.put(VariableStore.getKey(variable, namespace), new String[] {namespace, variable, CraftBookPlugin.inst().getVariableStore().get(variable, namespace)});
+        }
+    };
+
+    private ExecutorService writer;
+    private BukkitTask flushTask;
+
+    /**
+     * The variables as last written, by key. Only used by the writer once it has started.
+     */
+    private final Map<String, String[]> written = new HashMap<String, String[]>();
+    private DataOutputStream journal;
+    private int journalRecords = 0;
+
+    public VariableConfiguration(YAMLProcessor config, File file, File journalFile, Logger logger) {
 
         this.config = config;
+        this.file = file;
+        this.journalFile = journalFile;
         this.logger = logger;
     }
 
     public void load() {
 
+        // A crash while replacing the variables file can leave only the new snapshot.
+        File temp = new File(file.getPath() + ".tmp");
+        if(temp.exists() && (!file.exists() || file.length() == 0)) {
+            if((!file.exists() || file.delete()) && temp.renameTo(file))
+                logger.info("Recovered the variables from " + temp.getName() + ".");
+            else
+                logger.warning("Failed to recover the variables from " + temp.getName() + "!");
+        }
+
         try {
             config.load();
         } catch (IOException e) {
@@ -36,19 +108,219 @@ public class VariableConfiguration {
             if(keys.length == 1)
                 keys = new String[]{"global",key};
 
-            if(RegexUtil.VARIABLE_KEY_PATTERN.matcher(keys[0]).find() && RegexUtil.VARIABLE_KEY_PATTERN.matcher(keys[1]).find() && RegexUtil.VARIABLE_VALUE_PATTERN.matcher(String.valueOf(config.getProperty("variables." + key))).find()) {
-                CraftBookPlugin.inst().setVariable(keys[1], keys[0], String.valueOf(config.getProperty("variables." + key)));
+            apply(keys[0], keys[1], String.valueOf(config.getProperty("variables." + key)));
+        }
+
+        int recovered = replayJournal();
+        if(recovered > 0)
+            logger.info("Recovered " + recovered + " variable changes from the journal.");
+
+        try {
+            // Start every session from a clean snapshot, so the journal only holds this session's changes. The old
+            // journal is only cleared once it has been read in full and written into the snapshot.
+            boolean clear = recovered >= 0;
+            if(recovered < 0) {
+                File failed = new File(journalFile.getPath() + ".failed");
+                if(!failed.exists() && journalFile.renameTo(failed)) {
+                    logger.warning("The variable journal could not be read, and was kept as " + failed.getName() + ".");
+                    clear = true;
+                }
+            } else if(recovered > 0) {
+                try {
+                    writeSnapshot();
+                } catch (IOException e) {
+                    BukkitUtil.printStacktrace(e);
+                    clear = false;
+                }
+            }
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, !clear)));
+        } catch (IOException e) {
+            BukkitUtil.printStacktrace(e);
+            return;
+        }
+
+        CraftBookPlugin plugin = CraftBookPlugin.inst();
+        writer = Executors.newSingleThreadExecutor();
+        plugin.getVariableStore().addListener(listener);
+        int interval = Math.max(1, plugin.getConfiguration().variablesSaveInterval);
+        flushTask = plugin.getServer().getScheduler().runTaskTimer(plugin, new Runnable() {
+
+            @Override
+            public void run() {
+
+                flush();
+            }
+        }, interval, interval);
+    }
+
+    /**
+     * Hand every pending change to the writer. Runs on the main thread.
+     */
+    public void flush() {
+
+        if(pending.isEmpty() || writer == null)
+            return;
+
+        final List<String[]> changes = new ArrayList<String[]>(pending.values());
+        pending.clear();
+        writer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    writeChanges(changes);
+                } catch (IOException e) {
+                    BukkitUtil.printStacktrace(e);
+                }
             }
+        });
+    }
+
+    /**
+     * Write out every change and a final snapshot, and stop listening to the store. Blocks until the writer is done.
+     */
+    public void close() {
+
+        CraftBookPlugin.inst().getVariableStore().removeListener(listener);
+        if(journal == null)
+            return; // Nothing was loaded, so there is nothing to write over the file.
+        if(flushTask != null)
+            flushTask.cancel();
+        flushTask = null;
+        flush();
+
+        if(writer != null) {
+            writer.shutdown();
+            try {
+                if(!writer.awaitTermination(30, TimeUnit.SECONDS))
+                    logger.warning("Timed out waiting for variables to be written!");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+
+        try {
+            journal.close();
+            journal = null;
+            writeSnapshot();
+            journalFile.delete();
+        } catch (IOException e) {
+            BukkitUtil.printStacktrace(e);
+        }
+    }
+
+    /**
+     * Append changes to the journal, and fold the journal into a snapshot once it is long enough. Runs on the writer.
+     *
+     * @param changes
+     *
+     * @throws IOException
+     */
+    private void writeChanges(List<String[]> changes) throws IOException {
+
+        for(String[] change : changes) {
+            String key = VariableStore.getKey(change[1], change[0]);
+            if(change[2] == null) {
+                written.remove(key);
+                journal.writeByte(RECORD_REMOVE);
+                journal.writeUTF(change[0]);
+                journal.writeUTF(change[1]);
+            } else {
+                written.put(key, change);
+                journal.writeByte(RECORD_SET);
+                journal.writeUTF(change[0]);
+                journal.writeUTF(change[1]);
+                journal.writeUTF(change[2]);
+            }
+            journalRecords++;
+        }
+        journal.flush();
+
+        if(journalRecords >= CraftBookPlugin.inst().getConfiguration().variablesCompactThreshold) {
+            writeSnapshot();
+            journal.close();
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, false)));
+            journalRecords = 0;
+        }
+    }
+
+    /**
+     * Write every variable into a new snapshot, replacing the old one only once it is complete.
+     *
+     * @throws IOException
+     */
+    private void writeSnapshot() throws IOException {
+
+        File temp = new File(file.getPath() + ".tmp");
+        YAMLProcessor snapshot = new YAMLProcessor(temp, false, YAMLFormat.EXTENDED);
+        for(String[] var : written.values())
+            if(RegexUtil.VARIABLE_KEY_PATTERN.matcher(var[0]).find() && RegexUtil.VARIABLE_KEY_PATTERN.matcher(var[1]).find() && RegexUtil.VARIABLE_VALUE_PATTERN.matcher(var[2]).find())
+                snapshot.setProperty("variables." + var[0] + "|" + var[1], var[2]);
+        if(!snapshot.save())
+            throw new IOException("Failed to write " + temp.getName());
+
+        RandomAccessFile sync = new RandomAccessFile(temp, "rw");
+        try {
+            sync.getFD().sync();
+        } finally {
+            sync.close();
         }
+
+        // Renaming replaces the file in one step where the platform allows it.
+        if(!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file)))
+            throw new IOException("Failed to replace " + file.getName());
     }
 
-    public void save() {
+    /**
+     * Apply the changes in the journal to the store. A torn record at the end, from a crash during a write, is ignored.
+     *
+     * @return the amount of changes applied, or -1 if the journal could not be read
+     */
+    private int replayJournal() {
+
+        if(!journalFile.exists())
+            return 0;
+
+        int count = 0;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            while(true) {
+                byte type = in.readByte();
+                String namespace = in.readUTF();
+                String name = in.readUTF();
+                if(type == RECORD_SET)
+                    apply(namespace, name, in.readUTF());
+                else if(type == RECORD_REMOVE) {
+                    CraftBookPlugin.inst().removeVariable(name, namespace);
+                    written.remove(VariableStore.getKey(name, namespace));
+                } else
+                    break;
+                count++;
+            }
+        } catch (EOFException ignored) {
+        } catch (UTFDataFormatException ignored) {
+            // A torn record, like an unknown record type.
+        } catch (IOException e) {
+            BukkitUtil.printStacktrace(e);
+            count = -1;
+        } finally {
+            if(in != null)
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+        }
+        return count;
+    }
 
-        for(Entry<Tuple2<String, String>, String> var : CraftBookPlugin.inst().getVariableStore().entrySet()) {
+    private void apply(String namespace, String name, String value) {
 
-            if(RegexUtil.VARIABLE_KEY_PATTERN.matcher(var.getKey().a).find() && RegexUtil.VARIABLE_KEY_PATTERN.matcher(var.getKey().b).find() && RegexUtil.VARIABLE_VALUE_PATTERN.matcher(var.getValue()).find())
-                config.setProperty("variables." + var.getKey().b + "|" + var.getKey().a, var.getValue());
+        if(RegexUtil.VARIABLE_KEY_PATTERN.matcher(namespace).find() && RegexUtil.VARIABLE_KEY_PATTERN.matcher(name).find() && RegexUtil.VARIABLE_VALUE_PATTERN.matcher(value).find()) {
+            CraftBookPlugin.inst().setVariable(name, namespace, value);
+            written.put(VariableStore.getKey(name, namespace), new String[] {namespace, name, value});
         }
-        config.save();
     }
-}
\ No newline at end of file
+}
@@ -49,6 +49,12 @@ public class YAMLConfiguration extends LocalConfiguration {
         config.setComment("common.variables.enable-in-player-chat", "Allow variables to work in player chat.");
         variablesPlayerChatOverride = config.getBoolean("common.variables.enable-in-player-chat", false);
 
+        config.setComment("common.variables.save-interval", "The amount of ticks between writing changed variables to disk. Changes made within this time are lost if the server crashes.");
+        variablesSaveInterval = config.getInt("common.variables.save-interval", 100);
+
+        config.setComment("common.variables.compact-after", "The amount of changes written to the variable journal before it is folded back into variables.yml.");
+        variablesCompactThreshold = config.getInt("common.variables.compact-after", 1000);
+
 
         /* Circuits Configuration */
 
@@ -59,6 +65,9 @@ public class YAMLConfiguration extends LocalConfiguration {
         config.setComment("circuits.ics.cache", "Saves many CPU cycles with a VERY small cost to memory (Highly Recommended)");
         ICCached = config.getBoolean("circuits.ics.cache", true);
 
+        config.setComment("circuits.ics.cache-size", "The most ICs kept in the cache, removing the least recently used ones first. ICs are always removed when their chunk unloads. 0 for no limit.");
+        ICCacheSize = config.getInt("circuits.ics.cache-size", 0);
+
         config.setComment("circuits.ics.max-radius", "The max radius IC's with a radius setting can use. (WILL cause lag at higher values)");
         ICMaxRange = config.getInt("circuits.ics.max-radius", 10);
 
@@ -83,6 +92,15 @@ public class YAMLConfiguration extends LocalConfiguration {
         config.setComment("circuits.ics.break-on-error", "Break the IC sign when an error occurs from that specific IC.");
         ICBreakOnError = config.getBoolean("circuits.ics.break-on-error", false);
 
+        config.setComment("circuits.ics.plc-save-interval", "The amount of ticks between saves of the PLC states that have changed. PLC states are kept in memory, and are always saved on shutdown.");
+        ICPlcSaveInterval = config.getInt("circuits.ics.plc-save-interval", 100);
+
+        config.setComment("circuits.ics.compile-networks", "Evaluate logic gates that are wired directly to each other in memory, only updating the world where their outputs leave the group. Gates in a group respond in the same tick, instead of a few ticks after the gate before them.");
+        ICCompileNetworks = config.getBoolean("circuits.ics.compile-networks", false);
+
+        config.setComment("circuits.ics.buffer-outputs", "Collect the output changes of ICs and write them once per tick, dropping changes that are undone within the tick. The changes are written at the start of the next tick, so every IC output reaches the world one tick later than it otherwise would.");
+        ICBufferOutputs = config.getBoolean("circuits.ics.buffer-outputs", false);
+
 
         // Circuits Configuration Listener
         config.setComment("circuits.wiring.netherrack-enabled", "Enables the redstone netherrack mechanic, which lights netherrack when it is powered.");
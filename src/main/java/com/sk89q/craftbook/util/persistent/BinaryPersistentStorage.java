@@ -0,0 +1,705 @@
+package com.sk89q.craftbook.util.persistent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
+import com.sk89q.craftbook.bukkit.util.BukkitUtil;
+
+/**
+ * Stores persistent data in a binary log of key/value records.
+ * <p>
+ * Every {@link #set(String, Object)} is encoded straight away and appended to the end of the file by a background
+ * writer, so closing only has to wait for the records that have not been written yet. Snapshots only sync the file.
+ * The latest record of every key is kept in memory, decoded, so reads never touch the file. Records that have been
+ * replaced or removed stay in the file until it is compacted, which the writer does by rewriting only the live records
+ * once they make up less than half of the file.
+ * </p>
+ * <p>
+ * Each record is a type, a key, the length of the value, the encoded value and a checksum of it. A record that was
+ * torn by a crash fails its checksum, claims more bytes than are left or cannot be parsed, and is cut off along with
+ * anything after it, keeping every record before it.
+ * </p>
+ */
+public class BinaryPersistentStorage extends PersistentStorage {
+
+    private static final int MAGIC = 0x43425053; // CBPS
+    private static final int FORMAT = 1;
+
+    private static final byte RECORD_SET = 1;
+    private static final byte RECORD_REMOVE = 2;
+
+    /**
+     * Files smaller than this are never compacted.
+     */
+    private static final long MIN_COMPACT_SIZE = 64 * 1024;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_SHORT = 6;
+    private static final byte TAG_BYTE = 7;
+    private static final byte TAG_BOOLEAN = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_SET = 10;
+    private static final byte TAG_MAP = 11;
+    private static final byte TAG_SERIALIZABLE = 12;
+
+    private File file;
+
+    /**
+     * The decoded value of every key. Only used from the main thread.
+     */
+    private Map<String, Object> values;
+
+    private ExecutorService writer;
+
+    /**
+     * The encoded value of every key, as written. Only used by the writer once it has started.
+     */
+    private final Map<String, byte[]> written = new HashMap<String, byte[]>();
+    private DataOutputStream out;
+    private FileOutputStream fileOut;
+
+    private volatile long fileSize = 0;
+    private volatile long liveSize = 0;
+    private volatile int compactions = 0;
+
+    @Override
+    public void open () {
+
+        CraftBookPlugin.logger().info("Loading persistant data from binary log!");
+
+        file = new File(CraftBookPlugin.inst().getDataFolder(), "persistance.dat");
+        recoverCompacted();
+        values = new HashMap<String, Object>();
+        written.clear();
+        fileSize = 0;
+        liveSize = 0;
+
+        try {
+            if(file.exists() && file.length() > 0)
+                read();
+            for(Entry<String, byte[]> entry : written.entrySet()) {
+                try {
+                    values.put(entry.getKey(), decode(entry.getValue()));
+                } catch (Exception e) {
+                    CraftBookPlugin.logger().warning("Failed to read persistant data at " + entry.getKey() + "! It will be reset!");
+                    BukkitUtil.printStacktrace(e);
+                }
+            }
+            openOutput(true);
+        } catch (IOException e) {
+            BukkitUtil.printStacktrace(e);
+            CraftBookPlugin.logger().warning("Persistant Data Corrupt! Data will be reset!");
+            values.clear();
+            written.clear();
+            try {
+                openOutput(false);
+            } catch (IOException e1) {
+                BukkitUtil.printStacktrace(e1);
+                values = null;
+                return;
+            }
+        }
+
+        writer = Executors.newSingleThreadExecutor();
+        if(shouldCompact())
+            writer.execute(new Runnable() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        compact();
+                    } catch (IOException e) {
+                        BukkitUtil.printStacktrace(e);
+                    }
+                }
+            });
+
+        if(getVersion() != getCurrentVersion()) { //Convert.
+            CraftBookPlugin.logger().info("Converting database of type: " + getType() + " from version " + getVersion() + " to " + getCurrentVersion());
+            convertVersion(getCurrentVersion());
+        }
+    }
+
+    @Override
+    public void close () {
+
+        CraftBookPlugin.logger().info("Saving persistant data to binary log!");
+
+        if(writer != null) {
+            writer.shutdown();
+            try {
+                if(!writer.awaitTermination(30, TimeUnit.SECONDS))
+                    CraftBookPlugin.logger().warning("Timed out waiting for persistant data to be written!");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+
+        try {
+            if(out != null)
+                out.close();
+        } catch (IOException e) {
+            BukkitUtil.printStacktrace(e);
+        }
+        out = null;
+        values = null;
+    }
+
+    @Override
+    public Object get (String location) {
+
+        Object value = values.get(location);
+        if(value != null || values.containsKey(location))
+            return value;
+
+        // Data imported from YAML is nested, so look inside the longest parent that holds a map.
+        int dot = location.lastIndexOf('.');
+        while(dot > 0) {
+            Object parent = values.get(location.substring(0, dot));
+            if(parent instanceof Map) {
+                for(String part : location.substring(dot + 1).split("\\.")) {
+                    if(!(parent instanceof Map))
+                        return null;
+                    parent = ((Map<?, ?>) parent).get(part);
+                }
+                return parent;
+            }
+            dot = location.lastIndexOf('.', dot - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public void set (String location, Object data) {
+
+        final String key = location;
+        final byte[] encoded;
+        if(data == null) {
+            if(values.remove(location) == null)
+                return;
+            encoded = null;
+        } else {
+            try {
+                encoded = encode(data);
+            } catch (IOException e) {
+                BukkitUtil.printStacktrace(e);
+                return;
+            }
+            values.put(location, data);
+        }
+
+        writer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                try {
+                    write(key, encoded);
+                    if(shouldCompact())
+                        compact();
+                } catch (IOException e) {
+                    BukkitUtil.printStacktrace(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void snapshot () {
+
+        // Every record is already written as it is set, so only make sure they have reached the disk.
+        if(writer == null)
+            return;
+        writer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                if(out == null)
+                    return;
+                try {
+                    out.flush();
+                    fileOut.getFD().sync();
+                } catch (IOException e) {
+                    BukkitUtil.printStacktrace(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isValid () {
+        return values != null;
+    }
+
+    @Override
+    public String getType () {
+        return "BINARY";
+    }
+
+    @Override
+    public int getVersion () {
+        Object version = values.get("version");
+        return version instanceof Number ? ((Number) version).intValue() : getCurrentVersion();
+    }
+
+    @Override
+    public void convertVersion (int version) {
+        //Not yet needed.
+    }
+
+    @Override
+    public int getCurrentVersion () {
+        return 1;
+    }
+
+    @Override
+    public void importData (Map<String, Object> data, boolean replace) {
+
+        if(replace)
+            for(String key : new ArrayList<String>(values.keySet()))
+                set(key, null);
+        for(Entry<String, Object> dat : data.entrySet())
+            set(dat.getKey(), dat.getValue());
+    }
+
+    @Override
+    public Map<String, Object> exportData () {
+
+        // Sorted so that a parent is always set before the keys nested inside it.
+        return new TreeMap<String, Object>(values);
+    }
+
+    @Override
+    public Map<String, String> getStatistics () {
+
+        Map<String, String> stats = super.getStatistics();
+        long size = fileSize;
+        long live = liveSize;
+        stats.put("File Size", size + " bytes");
+        stats.put("Live Keys", String.valueOf(values.size()));
+        stats.put("Live Data", live + " bytes");
+        stats.put("Live Ratio", size == 0 ? "100%" : live * 100 / size + "%");
+        stats.put("Compactions", String.valueOf(compactions));
+        return stats;
+    }
+
+    /**
+     * Deal with a compacted file left behind by a crash. It is only complete if it was about to replace the file, in
+     * which case the file is already gone.
+     */
+    private void recoverCompacted() {
+
+        File temp = new File(file.getPath() + ".tmp");
+        if(!temp.exists())
+            return;
+        if(file.exists()) {
+            if(!temp.delete())
+                CraftBookPlugin.logger().warning("Failed to delete " + temp.getName() + "!");
+        } else if(temp.renameTo(file))
+            CraftBookPlugin.logger().info("Recovered persistant data from " + temp.getName() + ".");
+        else
+            CraftBookPlugin.logger().warning("Failed to recover persistant data from " + temp.getName() + "!");
+    }
+
+    /**
+     * Read every intact record in the file.
+     *
+     * @throws IOException if the file is not a binary log
+     */
+    private void read() throws IOException {
+
+        long fileLength = file.length();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if(in.readInt() != MAGIC || in.readInt() != FORMAT)
+                throw new IOException("Unknown persistant data format!");
+            long size = 8;
+            long live = 0;
+            Map<String, Integer> recordSizes = new HashMap<String, Integer>();
+
+            try {
+                while(true) {
+                    byte type = in.readByte();
+                    String key = in.readUTF();
+                    int length = in.readInt();
+                    if(length < 0 || type != RECORD_SET && type != RECORD_REMOVE)
+                        break;
+                    // A torn length could be anything, so never trust it with more than the file holds.
+                    if(length > fileLength - size - getRecordSize(key, 0))
+                        break;
+                    byte[] data = new byte[length];
+                    in.readFully(data);
+                    if(in.readLong() != checksum(data))
+                        break;
+
+                    int recordSize = getRecordSize(key, length);
+                    size += recordSize;
+                    Integer previous = recordSizes.remove(key);
+                    if(previous != null)
+                        live -= previous;
+                    if(type == RECORD_SET) {
+                        written.put(key, data);
+                        recordSizes.put(key, recordSize);
+                        live += recordSize;
+                    } else
+                        written.remove(key);
+                }
+            } catch (IOException ignored) {
+                // The end of the file, or a torn record such as a key that is not valid UTF.
+            }
+
+            fileSize = size;
+            liveSize = live;
+        } finally {
+            in.close();
+        }
+
+        // Drop a torn record, so that new records are not appended behind it.
+        if(file.length() > fileSize) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(fileSize);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Append a record to the file. Runs on the writer.
+     *
+     * @param key
+     * @param data the encoded value, or null if the key was removed
+     *
+     * @throws IOException
+     */
+    private void write(String key, byte[] data) throws IOException {
+
+        if(out == null)
+            throw new IOException("Failed to write " + key + ", as " + file.getName() + " is not open");
+        byte[] previous = data == null ? written.remove(key) : written.put(key, data);
+        if(previous != null)
+            liveSize -= getRecordSize(key, previous.length);
+
+        writeRecord(out, data == null ? RECORD_REMOVE : RECORD_SET, key, data == null ? new byte[0] : data);
+        out.flush();
+        int recordSize = getRecordSize(key, data == null ? 0 : data.length);
+        fileSize += recordSize;
+        if(data != null)
+            liveSize += recordSize;
+    }
+
+    private boolean shouldCompact() {
+
+        return fileSize > MIN_COMPACT_SIZE && liveSize < fileSize / 2;
+    }
+
+    /**
+     * Rewrite the file with only the live records. Runs on the writer.
+     *
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream compactedOut = new FileOutputStream(temp);
+        DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(compactedOut));
+        long size = 8;
+        try {
+            compacted.writeInt(MAGIC);
+            compacted.writeInt(FORMAT);
+            for(Entry<String, byte[]> entry : written.entrySet()) {
+                writeRecord(compacted, RECORD_SET, entry.getKey(), entry.getValue());
+                size += getRecordSize(entry.getKey(), entry.getValue().length);
+            }
+            compacted.flush();
+            compactedOut.getFD().sync();
+        } finally {
+            compacted.close();
+        }
+
+        out.close();
+        // Renaming replaces the file in one step where the platform allows it. Otherwise the file is only deleted once
+        // the compacted file is complete, and is recovered from it on the next load.
+        if(!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+            // Never start a new file over the compacted one, which then holds the only copy.
+            if(file.exists())
+                openOutput(true);
+            else
+                out = null;
+            throw new IOException("Failed to replace " + file.getName());
+        }
+        openOutput(true);
+        fileSize = size;
+        liveSize = size - 8;
+        compactions++;
+    }
+
+    private void openOutput(boolean append) throws IOException {
+
+        boolean header = !append || !file.exists() || file.length() == 0;
+        fileOut = new FileOutputStream(file, !header);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        if(header) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.flush();
+            fileSize = 8;
+            liveSize = 0;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte type, String key, byte[] data) throws IOException {
+
+        out.writeByte(type);
+        out.writeUTF(key);
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeLong(checksum(data));
+    }
+
+    private static int getRecordSize(String key, int length) {
+
+        // Type, key, length, data and checksum.
+        return 1 + 2 + getUTFLength(key) + 4 + length + 8;
+    }
+
+    /**
+     * Gets the amount of bytes {@link DataOutputStream#writeUTF(String)} writes for a string, without its length.
+     *
+     * @param value
+     *
+     * @return the amount of bytes
+     */
+    private static int getUTFLength(String value) {
+
+        int length = 0;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c >= 0x0001 && c <= 0x007F)
+                length++;
+            else if(c > 0x07FF)
+                length += 3;
+            else
+                length += 2;
+        }
+        return length;
+    }
+
+    private static long checksum(byte[] data) {
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    /**
+     * Encode a value. Handles strings, boxed primitives, lists, sets, maps, anything Bukkit can serialize to a map, and
+     * anything {@link Serializable}.
+     *
+     * @param value
+     *
+     * @return the encoded value
+     *
+     * @throws IOException if the value cannot be encoded
+     */
+    public static byte[] encode(Object value) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeValue(out, value);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a value written by {@link #encode(Object)}.
+     *
+     * @param data
+     *
+     * @return the value
+     *
+     * @throws IOException if the data is corrupt
+     */
+    public static Object decode(byte[] data) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            return readValue(in);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class: " + e.getMessage());
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+
+        if(value == null)
+            out.writeByte(TAG_NULL);
+        else if(value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if(value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if(value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if(value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if(value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if(value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if(value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if(value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if(value instanceof List || value instanceof Set) {
+            out.writeByte(value instanceof List ? TAG_LIST : TAG_SET);
+            Collection<?> collection = (Collection<?>) value;
+            out.writeInt(collection.size());
+            for(Object element : collection)
+                writeValue(out, element);
+        } else if(value instanceof Map) {
+            out.writeByte(TAG_MAP);
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeInt(map.size());
+            for(Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if(value instanceof ConfigurationSerializable) {
+            // Stored the way Bukkit stores them in YAML, as a map naming its type.
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(((ConfigurationSerializable) value).getClass()));
+            map.putAll(((ConfigurationSerializable) value).serialize());
+            writeValue(out, map);
+        } else if(value instanceof Serializable) {
+            out.writeByte(TAG_SERIALIZABLE);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(value);
+            objects.close();
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        } else
+            throw new IOException("Cannot store a " + value.getClass().getName());
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+
+        byte tag = in.readByte();
+        switch(tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_LIST:
+            case TAG_SET: {
+                int size = in.readInt();
+                Collection<Object> collection = tag == TAG_LIST ? new ArrayList<Object>(size) : new HashSet<Object>();
+                for(int i = 0; i < size; i++)
+                    collection.add(readValue(in));
+                return collection;
+            }
+            case TAG_MAP: {
+                int size = in.readInt();
+                Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                for(int i = 0; i < size; i++)
+                    map.put(readValue(in), readValue(in));
+                if(map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY))
+                    return deserialize(map);
+                return map;
+            }
+            case TAG_SERIALIZABLE: {
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(data));
+                try {
+                    return objects.readObject();
+                } finally {
+                    objects.close();
+                }
+            }
+            default:
+                throw new IOException("Unknown value type: " + tag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object deserialize(Map<Object, Object> map) {
+
+        return ConfigurationSerialization.deserializeObject((Map<String, ?>) (Map<?, ?>) map);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
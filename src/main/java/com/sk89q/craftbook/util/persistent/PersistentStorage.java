@@ -1,14 +1,30 @@
 package com.sk89q.craftbook.util.persistent;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 
 /**
  * The base of the CraftBook persistant storage system. Used by mechanics to store data that is needed persistently.
+ * <p>
+ * Storage types keep track of which locations have been set since they were last written, so that periodic snapshots
+ * only have to copy those. Data that is changed in place (such as a map that was read from here) must be set again to
+ * be saved.
+ * </p>
  */
 public abstract class PersistentStorage {
 
+    /**
+     * The locations that have been set since the last snapshot.
+     */
+    private Set<String> dirty = new LinkedHashSet<String>();
+
     /**
      * Open (and load if neccesary) the connection.
      */
@@ -79,7 +95,11 @@ public abstract class PersistentStorage {
 
         Map<String, Object> data = exportData();
         PersistentStorage stor = createFromType(type);
+        if(stor == null)
+            throw new IllegalArgumentException("Unknown storage type: " + type);
+        stor.open();
         stor.importData(data, true);
+        close();
         CraftBookPlugin.inst().setPersistentStorage(stor);
     }
 
@@ -97,6 +117,89 @@ public abstract class PersistentStorage {
      */
     public abstract Map<String, Object> exportData();
 
+    /**
+     * Write the changes since the last snapshot to disk, without blocking the main thread for longer than it takes to
+     * copy them. Called periodically from the main thread.
+     */
+    public void snapshot() {
+
+    }
+
+    /**
+     * Record that a location has been set and needs to be written.
+     * 
+     * @param location The location that was set.
+     */
+    protected void markDirty(String location) {
+
+        dirty.add(location);
+    }
+
+    /**
+     * Checks whether anything has been set since the last snapshot.
+     * 
+     * @return If there are changes to write.
+     */
+    public boolean isDirty() {
+
+        return !dirty.isEmpty();
+    }
+
+    /**
+     * Copies the data at every location that has been set since the last snapshot, and marks them as written. Maps and
+     * collections are copied, so the copy can be written from another thread while the originals are changed.
+     * 
+     * @return The data by location, with null for removed locations.
+     */
+    protected Map<String, Object> takeDirty() {
+
+        Map<String, Object> changes = new LinkedHashMap<String, Object>();
+        for(String location : dirty)
+            changes.put(location, copy(get(location)));
+        dirty = new LinkedHashSet<String>();
+        return changes;
+    }
+
+    /**
+     * Copies maps and collections, and everything inside them.
+     * 
+     * @param value The value to copy.
+     * @return The copy.
+     */
+    protected static Object copy(Object value) {
+
+        if(value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                map.put(entry.getKey(), copy(entry.getValue()));
+            return map;
+        } else if(value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<Object>();
+            for(Object element : (Set<?>) value)
+                set.add(copy(element));
+            return set;
+        } else if(value instanceof Collection) {
+            List<Object> list = new ArrayList<Object>();
+            for(Object element : (Collection<?>) value)
+                list.add(copy(element));
+            return list;
+        }
+        return value;
+    }
+
+    /**
+     * Gets statistics about this database, such as its size, for display to server admins.
+     * 
+     * @return The statistics, by name.
+     */
+    public Map<String, String> getStatistics() {
+
+        Map<String, String> stats = new LinkedHashMap<String, String>();
+        stats.put("Type", getType());
+        stats.put("Unsaved Changes", String.valueOf(dirty.size()));
+        return stats;
+    }
+
     /**
      * Generates a new PersistentStorage method from the type specified.
      * 
@@ -107,6 +210,8 @@ public abstract class PersistentStorage {
 
         if(type.equalsIgnoreCase("YAML"))
             return new YAMLPersistentStorage();
+        if(type.equalsIgnoreCase("BINARY"))
+            return new BinaryPersistentStorage();
         if(type.equalsIgnoreCase("DUMMY"))
             return new DummyPersistentStorage();
         else
@@ -2,24 +2,45 @@ package com.sk89q.craftbook.util.persistent;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.sk89q.craftbook.bukkit.CraftBookPlugin;
 import com.sk89q.craftbook.bukkit.util.BukkitUtil;
 import com.sk89q.util.yaml.YAMLFormat;
 import com.sk89q.util.yaml.YAMLProcessor;
 
+/**
+ * Stores persistent data in persistance.yml.
+ * <p>
+ * The file is written by a background writer, which keeps its own copy of the data. Snapshots hand it copies of the
+ * locations that were set since the last one; it applies them to its copy, writes the whole file to a temporary file,
+ * syncs it to disk and renames it over the old one, so a crash leaves either the old or the new file.
+ * </p>
+ */
 public class YAMLPersistentStorage extends PersistentStorage {
 
     private YAMLProcessor processor;
 
+    private File file;
+
+    private ExecutorService writer;
+
+    /**
+     * The data as the writer will write it. Only used by the writer once it has started.
+     */
+    private YAMLProcessor written;
+
     @Override
     public void open () {
 
         CraftBookPlugin.logger().info("Loading persistant data from YAML!");
 
-        File file = new File(CraftBookPlugin.inst().getDataFolder(), "persistance.yml");
+        file = new File(CraftBookPlugin.inst().getDataFolder(), "persistance.yml");
         try {
             if(!file.exists())
                 file.createNewFile();
@@ -46,6 +67,11 @@ public class YAMLPersistentStorage extends PersistentStorage {
                 CraftBookPlugin.logger().warning("Persistant Data Corrupt! Data will be reset!");
             }
         }
+
+        written = new YAMLProcessor(new File(file.getPath() + ".tmp"), false, YAMLFormat.COMPACT);
+        for(Entry<String, Object> entry : processor.getMap().entrySet())
+            written.setProperty(entry.getKey(), copy(entry.getValue()));
+        writer = Executors.newSingleThreadExecutor();
     }
 
     @Override
@@ -53,10 +79,71 @@ public class YAMLPersistentStorage extends PersistentStorage {
 
         CraftBookPlugin.logger().info("Saving persistant data to YAML!");
 
-        processor.save();
+        snapshot();
+        if(writer != null) {
+            writer.shutdown();
+            try {
+                if(!writer.awaitTermination(60, TimeUnit.SECONDS))
+                    CraftBookPlugin.logger().warning("Timed out waiting for persistant data to be written!");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
         processor.clear();
     }
 
+    @Override
+    public void snapshot () {
+
+        if(!isDirty() || writer == null)
+            return;
+
+        final Map<String, Object> changes = takeDirty();
+        writer.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                for(Entry<String, Object> change : changes.entrySet()) {
+                    if(change.getValue() == null)
+                        written.removeProperty(change.getKey());
+                    else
+                        written.setProperty(change.getKey(), change.getValue());
+                }
+
+                try {
+                    write();
+                } catch (IOException e) {
+                    BukkitUtil.printStacktrace(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Write the writer's copy of the data to disk. Runs on the writer.
+     *
+     * @throws IOException
+     */
+    private void write() throws IOException {
+
+        File temp = new File(file.getPath() + ".tmp");
+        if(!written.save())
+            throw new IOException("Failed to write " + temp.getName());
+
+        RandomAccessFile sync = new RandomAccessFile(temp, "rw");
+        try {
+            sync.getFD().sync();
+        } finally {
+            sync.close();
+        }
+
+        // Renaming replaces the file in one step where the platform allows it.
+        if(!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file)))
+            throw new IOException("Failed to replace " + file.getName());
+    }
+
     @Override
     public Object get (String location) {
         return processor.getProperty(location);
@@ -65,6 +152,7 @@ public class YAMLPersistentStorage extends PersistentStorage {
     @Override
     public void set (String location, Object data) {
         processor.setProperty(location, data);
+        markDirty(location);
     }
 
     @Override
@@ -94,10 +182,13 @@ public class YAMLPersistentStorage extends PersistentStorage {
 
     @Override
     public void importData (Map<String, Object> data, boolean replace) {
-        if(replace)
+        if(replace) {
+            for(String key : processor.getMap().keySet())
+                markDirty(key);
             processor.clear();
+        }
         for(Entry<String, Object> dat : data.entrySet())
-            processor.setProperty(dat.getKey(), dat.getValue());
+            set(dat.getKey(), dat.getValue());
     }
 
     @Override
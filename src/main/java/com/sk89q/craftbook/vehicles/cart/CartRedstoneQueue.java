@@ -0,0 +1,176 @@
+package com.sk89q.craftbook.vehicles.cart;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import com.sk89q.craftbook.bukkit.CraftBookPlugin;
+import com.sk89q.craftbook.util.ChunkedBlockMap;
+import com.sk89q.craftbook.util.exceptions.InvalidMechanismException;
+import com.sk89q.craftbook.vehicles.cart.events.CartBlockRedstoneEvent;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.blocks.BlockType;
+
+/**
+ * Collects the redstone changes next to cart mechanisms during a tick, and fires their {@link CartBlockRedstoneEvent}s
+ * from a single task on the next tick.
+ * <p>
+ * Changes are grouped by the rail of the mechanism they belong to, so a mechanism powered from several sides gets one
+ * event per tick, from the level before its first change in the tick to the level after its last. A change back to the
+ * level a mechanism started the tick at is not merged into the change before it, so a pulse that is over within the
+ * tick still reaches the mechanism as two events. Blocks that cannot be part of a mechanism, because neither they nor
+ * the block under their rail are a registered mechanism material, are dropped straight away.
+ * </p>
+ */
+public class CartRedstoneQueue {
+
+    /**
+     * A pending change at a mechanism.
+     */
+    private static class Change {
+
+        Block block;
+        Block source;
+        int oldLevel;
+        int newLevel;
+    }
+
+    /**
+     * Block types that cart mechanisms are built on.
+     */
+    private final boolean[] materials = new boolean[4096];
+
+    /**
+     * The pending changes, by the position of their rail.
+     */
+    private final ChunkedBlockMap<Change> pending = new ChunkedBlockMap<Change>();
+
+    /**
+     * The pending changes in the order they were first queued.
+     */
+    private List<Change> order = new ArrayList<Change>();
+
+    private final Runnable drain = new Runnable() {
+
+        @Override
+        public void run() {
+
+            drain();
+        }
+    };
+
+    /**
+     * Construct the queue.
+     *
+     * @param mechanisms the enabled cart mechanisms
+     */
+    public CartRedstoneQueue(Collection<CartBlockMechanism> mechanisms) {
+
+        for (CartBlockMechanism mechanism : mechanisms) {
+            int id = mechanism.getMaterial().getId();
+            if (id >= 0 && id < materials.length)
+                materials[id] = true;
+        }
+    }
+
+    /**
+     * Queue a redstone change next to a block, if the block could be part of a cart mechanism.
+     *
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     * @param source the block the change came from
+     * @param oldLevel
+     * @param newLevel
+     */
+    public void offer(World world, int x, int y, int z, Block source, int oldLevel, int newLevel) {
+
+        int typeId = world.getBlockTypeIdAt(x, y, z);
+        Block block;
+        int railY;
+
+        if (BlockType.isRailBlock(typeId)) {
+            if (!isMaterial(world.getBlockTypeIdAt(x, y - 1, z)))
+                return;
+            block = world.getBlockAt(x, y, z);
+            railY = y;
+        } else if (typeId == BlockID.SIGN_POST || typeId == BlockID.WALL_SIGN) {
+            // Signs can sit below or beside their base, so let the full detection find the rail.
+            block = world.getBlockAt(x, y, z);
+            try {
+                CartMechanismBlocks blocks = CartMechanismBlocks.findBySign(block);
+                if (!isMaterial(blocks.base.getTypeId()))
+                    return;
+                x = blocks.rail.getX();
+                railY = blocks.rail.getY();
+                z = blocks.rail.getZ();
+            } catch (InvalidMechanismException e) {
+                return;
+            }
+        } else {
+            if (!isMaterial(typeId) || !BlockType.isRailBlock(world.getBlockTypeIdAt(x, y + 1, z)))
+                return;
+            block = world.getBlockAt(x, y, z);
+            railY = y + 1;
+        }
+
+        Change change = pending.get(world.getName(), x, railY, z);
+        if (change == null) {
+            change = new Change();
+            change.block = block;
+            change.oldLevel = oldLevel;
+            pending.put(world.getName(), x, railY, z, change);
+            if (order.isEmpty())
+                CraftBookPlugin.server().getScheduler().runTask(CraftBookPlugin.inst(), drain);
+            order.add(change);
+        } else if (newLevel == change.oldLevel && change.newLevel != change.oldLevel) {
+            // Merging would turn a pulse into no change at all.
+            change = new Change();
+            change.block = block;
+            change.oldLevel = oldLevel;
+            pending.put(world.getName(), x, railY, z, change);
+            order.add(change);
+        }
+        change.source = source;
+        change.newLevel = newLevel;
+    }
+
+    /**
+     * Fire the events for every pending change.
+     */
+    public void drain() {
+
+        // Events may cause more redstone changes, which go into the next tick's batch.
+        List<Change> changes = order;
+        order = new ArrayList<Change>();
+        pending.clear();
+
+        for (Change change : changes) {
+            try {
+                CartMechanismBlocks blocks = CartMechanismBlocks.find(change.block);
+                CartBlockRedstoneEvent event = new CartBlockRedstoneEvent(change.block, change.source, change.oldLevel, change.newLevel, blocks, CartBlockMechanism.getCart(blocks.rail));
+                CraftBookPlugin.inst().getServer().getPluginManager().callEvent(event);
+            } catch (InvalidMechanismException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of mechanisms with a pending change.
+     *
+     * @return the amount of changes
+     */
+    public int size() {
+
+        return order.size();
+    }
+
+    private boolean isMaterial(int typeId) {
+
+        return typeId >= 0 && typeId < materials.length && materials[typeId];
+    }
+}
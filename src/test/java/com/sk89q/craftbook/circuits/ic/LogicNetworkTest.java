@@ -0,0 +1,138 @@
+package com.sk89q.craftbook.circuits.ic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(LogicNetwork.class)
+public class LogicNetworkTest {
+
+    private final List<String> triggers = new ArrayList<String>();
+    private final AbstractChipState firstWorld = mock(AbstractChipState.class);
+    private final AbstractChipState secondWorld = mock(AbstractChipState.class);
+    private LogicNetwork.Node first;
+    private LogicNetwork.Node second;
+
+    @Test
+    public void testInputsChanged() {
+
+        LogicNetwork network = createNetwork();
+
+        // Blocks that are not an input of the IC, and inputs that read a net, are ignored.
+        network.inputsChanged(first.mechanic, first.sign, Arrays.asList(createBlock(5, 64, 5)));
+        network.inputsChanged(second.mechanic, second.sign, Arrays.asList(createBlock(0, 64, 1)));
+        assertTrue(triggers.isEmpty());
+        assertEquals(0, network.getEvaluations());
+
+        // The first inverter turns its net on in memory, which triggers the second at the pin that reads it.
+        network.inputsChanged(first.mechanic, first.sign, Arrays.asList(createBlock(0, 64, 1)));
+        assertEquals(Arrays.asList("first 0", "second 0"), triggers);
+        verify(firstWorld, never()).set(anyInt(), anyBoolean());
+        verify(secondWorld).set(1, false);
+
+        assertEquals(1, network.getEvaluations());
+        assertEquals(2, network.getTriggers());
+        assertEquals(1, network.getAvoidedWrites());
+    }
+
+    @Test
+    public void testDissolve() {
+
+        LogicNetwork network = createNetwork();
+        network.dissolve();
+        assertFalse(network.isValid());
+        // The net still matches its lever.
+        verify(firstWorld, never()).set(anyInt(), anyBoolean());
+
+        network = createNetwork();
+        network.inputsChanged(first.mechanic, first.sign, Arrays.asList(createBlock(0, 64, 1)));
+        network.dissolve();
+        verify(firstWorld).set(1, true);
+
+        // A dissolved network no longer evaluates, and is only written back once.
+        triggers.clear();
+        network.inputsChanged(first.mechanic, first.sign, Arrays.asList(createBlock(0, 64, 1)));
+        network.dissolve();
+        assertTrue(triggers.isEmpty());
+        verify(firstWorld, times(1)).set(anyInt(), anyBoolean());
+    }
+
+    /**
+     * Creates a network of two inverters, the output of the first wired to the input of the second. Both levers are
+     * off, and so is the input of the first.
+     */
+    private LogicNetwork createNetwork() {
+
+        first = createNode(0, "first", firstWorld);
+        second = createNode(2, "second", secondWorld);
+        first.nets = new int[] {-1, 0};
+        second.nets = new int[] {0, -1};
+
+        LogicNetwork.Net net = new LogicNetwork.Net(first, 1);
+        net.sinkNodes = new int[] {1};
+        net.sinkPins = new int[] {0};
+
+        Block input = createBlock(0, 64, 1);
+        when(firstWorld.getBlock(0)).thenReturn(input);
+
+        return new LogicNetwork(mock(World.class), new LogicNetwork.Node[] {first, second},
+                new LogicNetwork.Net[] {net}, new long[0]);
+    }
+
+    private LogicNetwork.Node createNode(int x, final String name, AbstractChipState world) {
+
+        IC ic = mock(IC.class);
+        doAnswer(new Answer<Object>() {
+
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+
+                ChipState chip = (ChipState) invocation.getArguments()[0];
+                triggers.add(name + (chip.isTriggered(0) ? " 0" : ""));
+                chip.setOutput(0, !chip.getInput(0));
+                return null;
+            }
+        }).when(ic).trigger(any(ChipState.class));
+
+        ICMechanic mechanic = mock(ICMechanic.class);
+        when(mechanic.getIC()).thenReturn(ic);
+        when(world.getInputCount()).thenReturn(1);
+        when(world.getOutputCount()).thenReturn(1);
+
+        LogicNetwork.Node node = new LogicNetwork.Node(createBlock(x, 64, 0), mechanic, world);
+        node.validPins = 3;
+        return node;
+    }
+
+    private static Block createBlock(int x, int y, int z) {
+
+        Block block = mock(Block.class);
+        when(block.getX()).thenReturn(x);
+        when(block.getY()).thenReturn(y);
+        when(block.getZ()).thenReturn(z);
+        return block;
+    }
+}
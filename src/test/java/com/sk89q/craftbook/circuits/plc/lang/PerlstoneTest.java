@@ -0,0 +1,218 @@
+package com.sk89q.craftbook.circuits.plc.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import com.sk89q.craftbook.circuits.ic.ChipState;
+import com.sk89q.craftbook.circuits.plc.PlcException;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(Perlstone.class)
+public class PerlstoneTest {
+
+    private final Perlstone perlstone = new Perlstone();
+
+    @Test
+    public void testLogicTable() throws Exception {
+
+        // The table is indexed by 2 * top + second, so only B without A is true.
+        PerlstoneFunction[] code = perlstone.compile("AB.0010r:AB.--+-r");
+        for (int i = 0; i < 4; i++) {
+            boolean a = (i & 1) != 0;
+            boolean b = (i & 2) != 0;
+            Pins pins = new Pins(2, a, b);
+            perlstone.execute(pins, perlstone.initState(), code);
+            assertEquals(b && !a, pins.outputs[0]);
+            assertEquals(b && !a, pins.outputs[1]);
+        }
+    }
+
+    @Test
+    public void testAddressesWrap() throws Exception {
+
+        boolean[] state = perlstone.initState();
+        perlstone.execute(new Pins(1), state, perlstone.compile("<p+Sp0>p>p>p+Spv"));
+        assertTrue(state[31]);
+        assertTrue(state[1]);
+        assertFalse(state[0]);
+
+        Pins pins = new Pins(2);
+        perlstone.execute(pins, state, perlstone.compile("LPvr:<p<pLp1r"));
+        assertTrue(pins.outputs[0]);
+        assertTrue(pins.outputs[1]);
+
+        // Resetting the shift goes back to the unshifted address.
+        perlstone.execute(pins, state, perlstone.compile("<pepLp0r"));
+        assertFalse(pins.outputs[0]);
+    }
+
+    @Test
+    public void testTailCalls() throws Exception {
+
+        // Tail calls reuse their frame, so a chain longer than the recursion limit still returns.
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < 40; i++)
+            chain.append(String.format("t%02d0:", i + 1));
+        chain.append("+r");
+        Pins pins = new Pins(1);
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile(chain.toString()));
+        assertTrue(pins.outputs[0]);
+
+        // The arguments of a tail call are all false.
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile("+t011:!r"));
+        assertTrue(pins.outputs[0]);
+    }
+
+    @Test
+    public void testRecursionLimit() throws Exception {
+
+        Pins pins = new Pins(1);
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile(calls(16)));
+        assertTrue(pins.outputs[0]);
+
+        try {
+            perlstone.execute(pins, perlstone.initState(), perlstone.compile(calls(17)));
+            fail("The recursion limit was not enforced");
+        } catch (PlcException e) {
+            assertEquals("stack overflow", e.getMessage());
+        }
+
+        // A PLC that failed does not leave anything behind for the next.
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile(calls(16)));
+        assertTrue(pins.outputs[0]);
+    }
+
+    @Test
+    public void testInstructionLimit() throws Exception {
+
+        Pins pins = new Pins(1);
+        try {
+            perlstone.execute(pins, perlstone.initState(), perlstone.compile("+[+]"));
+            fail("The instruction limit was not enforced");
+        } catch (PlcException e) {
+            assertEquals("ran too long", e.getMessage());
+        }
+
+        // The limit is per output, so two outputs may each run most of it.
+        StringBuilder function = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+            function.append("+p");
+        function.append("+r");
+        pins = new Pins(2);
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile(function + ":" + function));
+        assertTrue(pins.outputs[0]);
+        assertTrue(pins.outputs[1]);
+    }
+
+    @Test
+    public void testTempTable() throws Exception {
+
+        // The temp table is shared by every output and call of an execution.
+        Pins pins = new Pins(2);
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile("+ST0:LT0r"));
+        assertTrue(pins.outputs[1]);
+
+        pins = new Pins(1);
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile("+ST0c010r:LT0r"));
+        assertTrue(pins.outputs[0]);
+
+        // Local tables are not.
+        perlstone.execute(pins, perlstone.initState(), perlstone.compile("+SL0c010r:LL0r"));
+        assertFalse(pins.outputs[0]);
+
+        // And the temp table starts empty on every execution.
+        PerlstoneFunction[] code = perlstone.compile("LT0r:+ST0");
+        pins = new Pins(2);
+        for (int i = 0; i < 2; i++) {
+            perlstone.execute(pins, perlstone.initState(), code);
+            assertFalse(pins.outputs[0]);
+        }
+    }
+
+    /**
+     * Makes a chain of functions that call the next, the last of which is called at the given depth and returns true.
+     */
+    private static String calls(int depth) {
+
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            code.append(String.format("c%02d0r:", i + 1));
+        return code.append("+r").toString();
+    }
+
+    private static class Pins implements ChipState {
+
+        private final boolean[] inputs;
+        private final boolean[] outputs;
+
+        private Pins(int outputs, boolean... inputs) {
+
+            this.inputs = inputs;
+            this.outputs = new boolean[outputs];
+        }
+
+        @Override
+        public boolean get(int pin) {
+
+            return pin < inputs.length ? inputs[pin] : outputs[pin - inputs.length];
+        }
+
+        @Override
+        public boolean getInput(int inputIndex) {
+
+            return inputs[inputIndex];
+        }
+
+        @Override
+        public boolean getOutput(int outputIndex) {
+
+            return outputs[outputIndex];
+        }
+
+        @Override
+        public void set(int pin, boolean value) {
+
+            if (pin < inputs.length)
+                inputs[pin] = value;
+            else
+                outputs[pin - inputs.length] = value;
+        }
+
+        @Override
+        public void setOutput(int outputIndex, boolean value) {
+
+            outputs[outputIndex] = value;
+        }
+
+        @Override
+        public boolean isTriggered(int pin) {
+
+            return false;
+        }
+
+        @Override
+        public boolean isValid(int pin) {
+
+            return true;
+        }
+
+        @Override
+        public int getInputCount() {
+
+            return inputs.length;
+        }
+
+        @Override
+        public int getOutputCount() {
+
+            return outputs.length;
+        }
+    }
+}
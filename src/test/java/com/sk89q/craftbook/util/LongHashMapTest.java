@@ -0,0 +1,59 @@
+package com.sk89q.craftbook.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({LongHashMap.class, BlockKey.class})
+public class LongHashMapTest {
+
+    @Test
+    public void testAgainstHashMap() {
+
+        LongHashMap<String> map = new LongHashMap<String>();
+        Map<Long, String> expected = new HashMap<Long, String>();
+        Random random = new Random(4502);
+
+        for (int i = 0; i < 100000; i++) {
+            // A small key range makes collisions, overwrites and removals of present keys common.
+            long key = BlockKey.pack(random.nextInt(64) - 32, random.nextInt(256), random.nextInt(64) - 32);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = String.valueOf(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (Map.Entry<Long, String> entry : expected.entrySet())
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        assertEquals(expected.size(), map.values().size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(BlockKey.pack(0, 64, 0)));
+    }
+
+    @Test
+    public void testBlockKey() {
+
+        int[][] coordinates = {{0, 0, 0}, {-1, 255, -1}, {30000000, 64, -30000000}, {-30000000, -64, 30000000}, {12345, 4095 - 4096, -678}};
+        for (int[] c : coordinates) {
+            long key = BlockKey.pack(c[0], c[1], c[2]);
+            assertEquals(c[0], BlockKey.getX(key));
+            assertEquals(c[1], BlockKey.getY(key));
+            assertEquals(c[2], BlockKey.getZ(key));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.sk89q.craftbook.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(VariableStore.class)
+public class VariableStoreTest {
+
+    @Test
+    public void testCaseInsensitive() {
+
+        VariableStore store = new VariableStore();
+        assertNull(store.set("Counter", "Global", "1"));
+
+        assertTrue(store.has("counter", "global"));
+        assertEquals("1", store.get("COUNTER", "GLOBAL"));
+        assertEquals("1", store.set("counter", "global", "2"));
+        assertEquals(1, store.size());
+
+        VariableStore.Variable var = store.getVariables().iterator().next();
+        assertEquals("Counter", var.getName());
+        assertEquals("Global", var.getNamespace());
+
+        assertEquals("2", store.remove("COUNTER", "global"));
+        assertFalse(store.has("Counter", "Global"));
+    }
+
+    @Test
+    public void testNumbers() {
+
+        VariableStore store = new VariableStore();
+        store.set("a", "global", "text");
+        assertFalse(store.isNumeric("a", "global"));
+        assertFalse(store.isNumeric("b", "global"));
+
+        store.set("a", "global", "2.5");
+        assertTrue(store.isNumeric("a", "global"));
+        assertEquals(2.5, store.getNumber("a", "global"), 0);
+
+        store.setNumber("a", "global", 4);
+        assertEquals("4", store.get("a", "global"));
+        assertEquals(4, store.getNumber("a", "global"), 0);
+    }
+
+    @Test
+    public void testListeners() {
+
+        VariableStore store = new VariableStore();
+        final List<String> changes = new ArrayList<String>();
+        store.addListener(new VariableStore.Listener() {
+
+            @Override
+            public void variableChanged(String variable, String namespace) {
+
+                changes.add(namespace + "|" + variable);
+            }
+        });
+
+        store.set("a", "global", "1");
+        store.setNumber("b", "player", 2);
+        store.remove("c", "global");
+        store.remove("a", "global");
+
+        assertEquals(3, changes.size());
+        assertEquals("global|a", changes.get(0));
+        assertEquals("player|b", changes.get(1));
+        assertEquals("global|a", changes.get(2));
+    }
+}